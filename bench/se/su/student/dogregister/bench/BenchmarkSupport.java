@@ -0,0 +1,118 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.bench;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Helpers shared by the benchmark harnesses.
+ * The harnesses are plain programs, built and run with javac and java:
+ * <pre>
+ * javac -encoding UTF-8 -d out $(find src bench -name "*.java")
+ * java -cp out se.su.student.dogregister.bench.LookupBenchmark
+ * </pre>
+ * Each harness warms up before it measures, and prints one line per result.
+ * The numbers depend on the machine, so they are for comparing the
+ * alternatives in one run, not for comparing runs on different machines.
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Reads an integer option given as "name=value" among the arguments.
+     *
+     * @param args the command line arguments.
+     * @param name the name of the option.
+     * @param defaultValue the value if the option isn't given.
+     * @return the value.
+     */
+    static int intOption(String[] args, String name, int defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(name + "=")) return Integer.parseInt(arg.substring(name.length() + 1));
+        }
+
+        return defaultValue;
+    }
+
+    /**
+     * Reads an option given as "name=value" among the arguments.
+     *
+     * @param args the command line arguments.
+     * @param name the name of the option.
+     * @param defaultValue the value if the option isn't given.
+     * @return the value.
+     */
+    static String stringOption(String[] args, String name, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(name + "=")) return arg.substring(name.length() + 1);
+        }
+
+        return defaultValue;
+    }
+
+    /**
+     * Runs a piece of work a number of times to warm it up, and then measures it.
+     * The work returns a value that is kept, so the JIT can't remove it.
+     *
+     * @param warmups the number of runs that aren't measured.
+     * @param runs the number of runs that are measured.
+     * @param work the work to run.
+     * @return the fastest measured run, in nanoseconds.
+     */
+    static long bestOf(int warmups, int runs, LongSupplier work) {
+        long sink = 0;
+        for (int i = 0; i < warmups; i++) sink += work.getAsLong();
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long startTime = System.nanoTime();
+            sink += work.getAsLong();
+            best = Math.min(best, System.nanoTime() - startTime);
+        }
+
+        if (sink == 42) System.out.print("");
+        return best;
+    }
+
+    /**
+     * Gets a percentile of latencies.
+     *
+     * @param latencies the latencies, sorted.
+     * @param percentile the percentile, such as 99.0.
+     * @return the latency at the percentile.
+     */
+    static long percentile(long[] latencies, double percentile) {
+        if (latencies.length == 0) return 0;
+
+        int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+        return latencies[Math.max(0, Math.min(index, latencies.length - 1))];
+    }
+
+    /**
+     * Prints the median, p99, p99.9 and largest of latencies in microseconds.
+     *
+     * @param label what was measured.
+     * @param latencies the latencies in nanoseconds, sorted here.
+     */
+    static void printLatencies(String label, long[] latencies) {
+        Arrays.sort(latencies);
+        System.out.printf("%-40s n=%-9d p50=%9.1f us  p99=%9.1f us  p99.9=%9.1f us  max=%9.1f us%n", label, latencies.length,
+                percentile(latencies, 50) / 1e3, percentile(latencies, 99) / 1e3, percentile(latencies, 99.9) / 1e3,
+                percentile(latencies, 100) / 1e3);
+    }
+
+    /**
+     * Prints a rate.
+     *
+     * @param label what was measured.
+     * @param operations the number of operations.
+     * @param nanos the time the operations took.
+     */
+    static void printRate(String label, long operations, long nanos) {
+        System.out.printf("%-40s %12.0f ops/s  (%.1f ns/op)%n", label, operations / (nanos / 1e9), (double) nanos / operations);
+    }
+}
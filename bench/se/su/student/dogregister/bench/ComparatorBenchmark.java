@@ -0,0 +1,77 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.bench;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+import se.su.student.dogregister.comparators.DogNameComparator;
+import se.su.student.dogregister.comparators.DogTailNameComparator;
+import se.su.student.dogregister.data.Dog;
+import se.su.student.dogregister.sorter.DogSorter;
+import se.su.student.dogregister.sorter.SortAlgorithm;
+
+/**
+ * Compares ways of sorting dogs by tail length and name: the shared "DogTailNameComparator",
+ * a comparator built from key extractors with "Comparator.comparingDouble", and a radix sort
+ * by tail length of dogs that are sorted by name. Prints the time and the bytes allocated
+ * per sort, apart from the copy of the list that every sort starts with.
+ * <p>
+ * Options: dogs=N (100000), runs=N (10).
+ */
+public class ComparatorBenchmark {
+
+    public static void main(String[] args) {
+        int dogCount = BenchmarkSupport.intOption(args, "dogs", 100_000);
+        int runs = BenchmarkSupport.intOption(args, "runs", 10);
+
+        ArrayList<Dog> dogs = new ArrayList<>(dogCount);
+        Random random = new Random(dogCount);
+        for (int i = 0; i < dogCount; i++) {
+            dogs.add(new Dog("Dog" + i, i % 7 == 0 ? "Tax" : "Labrador", 1 + random.nextInt(15), 1 + random.nextInt(50)));
+        }
+        Collections.shuffle(dogs, random);
+
+        ArrayList<Dog> byName = new ArrayList<>(dogs);
+        byName.sort(DogNameComparator.INSTANCE);
+
+        Comparator<Dog> keyExtracting = Comparator.comparingDouble(Dog::getTailLength).thenComparing(Dog::getName);
+
+        System.out.printf("%d dogs%n", dogCount);
+        measure("shared DogTailNameComparator", runs, dogs, copy -> DogSorter.sortDogs(DogTailNameComparator.INSTANCE, copy, SortAlgorithm.MERGE));
+        measure("Comparator.comparingDouble", runs, dogs, copy -> DogSorter.sortDogs(keyExtracting, copy, SortAlgorithm.MERGE));
+        measure("radix by tail, sorted by name", runs, byName, copy -> DogSorter.sortDogsByKey(Dog::getTailLength, copy, null));
+    }
+
+    /**
+     * Helper method that measures a sort of copies of a list.
+     */
+    private static void measure(String label, int runs, ArrayList<Dog> dogs, java.util.function.Consumer<ArrayList<Dog>> sort) {
+        long nanos = BenchmarkSupport.bestOf(runs, runs, () -> {
+            ArrayList<Dog> copy = new ArrayList<>(dogs);
+            sort.accept(copy);
+            return copy.size();
+        });
+
+        ArrayList<Dog> copy = new ArrayList<>(dogs);
+        long allocatedBefore = allocatedBytes();
+        sort.accept(copy);
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        BenchmarkSupport.printRate(label, dogs.size(), nanos);
+        System.out.printf("%-40s %12d bytes allocated per sort%n", "", allocated);
+    }
+
+    /**
+     * Helper method that gets the bytes this thread has allocated, if the JVM counts them.
+     */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads) {
+            return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
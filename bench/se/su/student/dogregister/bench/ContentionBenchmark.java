@@ -0,0 +1,118 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.bench;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import se.su.student.dogregister.RegisterEngine;
+import se.su.student.dogregister.RegisterOptions;
+import se.su.student.dogregister.persistence.LogRecord;
+
+/**
+ * Measures how many changes threads make per second through one "RegisterEngine"
+ * without a log, as the number of threads grows. In the "spread" case each thread
+ * changes its own dogs, so the changes take different name locks. In the "hot" case
+ * every thread changes the same few dogs, so the changes wait for each other.
+ * The "one lock" lines hold a lock around every change, which is how the register
+ * was shared before the name locks, for comparison.
+ * The gain of the name locks grows with the number of cores, so compare runs on the same machine.
+ * <p>
+ * Options: seconds=N (2), threads=N (16, the most threads).
+ */
+public class ContentionBenchmark {
+
+    // The number of dogs each thread changes in the spread case, and that all threads share in the hot case.
+    private static final int SPREAD_DOGS = 1000;
+    private static final int HOT_DOGS = 4;
+
+    public static void main(String[] args) throws Exception {
+        int seconds = BenchmarkSupport.intOption(args, "seconds", 2);
+        int maxThreads = BenchmarkSupport.intOption(args, "threads", 16);
+
+        // One unmeasured round of every case first, so every measured case runs on code the JIT has already compiled.
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        runAll(maxThreads, seconds);
+        System.setOut(out);
+
+        System.out.printf("%d cores%n", Runtime.getRuntime().availableProcessors());
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            System.out.printf("%d threads%n", threads);
+            runAll(threads, seconds);
+        }
+    }
+
+    private static void runAll(int threads, int seconds) throws Exception {
+        run("spread", threads, seconds, false, false);
+        run("spread, one lock", threads, seconds, false, true);
+        run("hot", threads, seconds, true, false);
+        run("hot, one lock", threads, seconds, true, true);
+    }
+
+    /**
+     * Helper method that makes changes from a number of threads for a while and prints the rate.
+     */
+    private static void run(String label, int threadCount, int seconds, boolean hot, boolean oneLock) throws Exception {
+        RegisterEngine engine = new RegisterEngine(new RegisterOptions(), new PrintStream(OutputStream.nullOutputStream()));
+        engine.apply(LogRecord.addOwner("Anna"));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong changes = new AtomicLong();
+        Object lock = new Object();
+        ArrayList<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < threadCount; i++) {
+            String prefix = hot ? "Hot" : "Thread" + i + "Dog";
+            int dogCount = hot ? HOT_DOGS : SPREAD_DOGS;
+            threads.add(new Thread(() -> changes.addAndGet(change(engine, prefix, dogCount, running, oneLock ? lock : null))));
+        }
+
+        long startTime = System.nanoTime();
+        threads.forEach(Thread::start);
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread thread : threads) thread.join();
+
+        BenchmarkSupport.printRate("  " + label, changes.get(), System.nanoTime() - startTime);
+    }
+
+    /**
+     * Helper method that adds, ages, gives away and removes dogs until stopped.
+     *
+     * @param lock a lock to hold around each change, or null.
+     * @return the number of changes.
+     */
+    private static long change(RegisterEngine engine, String prefix, int dogCount, AtomicBoolean running, Object lock) {
+        long count = 0;
+
+        try {
+            for (int i = 0; running.get(); i++) {
+                String name = prefix + (i / 4 % dogCount);
+                LogRecord record = switch (i % 4) {
+                    case 0 -> LogRecord.addDog(name, "Labrador", 3, 30);
+                    case 1 -> LogRecord.increaseAge(name);
+                    case 2 -> LogRecord.giveDogToOwner(name, "Anna");
+                    default -> LogRecord.removeDog(name);
+                };
+
+                if (lock == null) {
+                    engine.apply(record);
+                } else {
+                    synchronized (lock) {
+                        engine.apply(record);
+                    }
+                }
+                count++;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.bench;
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.function.Consumer;
+import se.su.student.dogregister.data.Dog;
+import se.su.student.dogregister.output.ListingWriter;
+
+/**
+ * Compares listing dogs the way the register used to, one "println" per dog on a
+ * print stream that flushes every line, like "System.out", with a "ListingWriter"
+ * that is flushed once at the end of the listing. Both write to a file, "/dev/null"
+ * by default, so the time is spent formatting and writing rather than on a terminal.
+ * Prints the time and the bytes allocated per dog.
+ * <p>
+ * Options: dogs=N (100000), runs=N (10), file=PATH (/dev/null).
+ */
+public class ListingBenchmark {
+
+    public static void main(String[] args) throws FileNotFoundException {
+        int dogCount = BenchmarkSupport.intOption(args, "dogs", 100_000);
+        int runs = BenchmarkSupport.intOption(args, "runs", 10);
+        String file = BenchmarkSupport.stringOption(args, "file", "/dev/null");
+
+        ArrayList<Dog> dogs = new ArrayList<>(dogCount);
+        Random random = new Random(dogCount);
+        for (int i = 0; i < dogCount; i++) {
+            dogs.add(new Dog("Dog" + i, i % 7 == 0 ? "Tax" : "Labrador", 1 + random.nextInt(15), 1 + random.nextInt(50)));
+        }
+
+        try (PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(file)), true)) {
+            ListingWriter writer = new ListingWriter(out);
+
+            System.out.printf("%d dogs%n", dogCount);
+            measure("println per dog", runs, dogs, listed -> {
+                for (Dog dog : listed) out.println(dog);
+            });
+            measure("ListingWriter", runs, dogs, listed -> {
+                for (Dog dog : listed) writer.printDog(dog);
+                writer.flush();
+                out.flush();
+            });
+        }
+    }
+
+    /**
+     * Helper method that measures a listing of the dogs.
+     */
+    private static void measure(String label, int runs, ArrayList<Dog> dogs, Consumer<ArrayList<Dog>> listing) {
+        long nanos = BenchmarkSupport.bestOf(runs, runs, () -> {
+            listing.accept(dogs);
+            return dogs.size();
+        });
+
+        long allocatedBefore = allocatedBytes();
+        listing.accept(dogs);
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        BenchmarkSupport.printRate(label, dogs.size(), nanos);
+        System.out.printf("%-40s %12d bytes allocated per dog%n", "", allocated / dogs.size());
+    }
+
+    /**
+     * Helper method that gets the bytes this thread has allocated, if the JVM counts them.
+     */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads) {
+            return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
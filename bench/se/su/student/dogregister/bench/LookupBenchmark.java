@@ -0,0 +1,61 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.bench;
+import java.util.ArrayList;
+import se.su.student.dogregister.collections.DogCollection;
+import se.su.student.dogregister.data.Dog;
+
+/**
+ * Compares looking dogs up by name in a "DogCollection", which finds the name key
+ * in an index, with searching a list of dogs for the name, which is how a lookup
+ * was made before the index.
+ * <p>
+ * Options: dogs=N (100000), lookups=N (10000), runs=N (10).
+ */
+public class LookupBenchmark {
+
+    public static void main(String[] args) {
+        int dogCount = BenchmarkSupport.intOption(args, "dogs", 100_000);
+        int lookupCount = BenchmarkSupport.intOption(args, "lookups", 10_000);
+        int runs = BenchmarkSupport.intOption(args, "runs", 10);
+
+        DogCollection dogCollection = new DogCollection();
+        ArrayList<Dog> dogList = new ArrayList<>(dogCount);
+        for (int i = 0; i < dogCount; i++) {
+            Dog dog = new Dog("Dog" + i, "Labrador", 1 + i % 15, 1 + i % 50);
+            dogCollection.addDog(dog);
+            dogList.add(dog);
+        }
+
+        // Names in lowercase, spread over the list, so a lookup has to ignore the case.
+        String[] names = new String[lookupCount];
+        for (int i = 0; i < lookupCount; i++) names[i] = "dog" + (int) ((long) i * dogCount / lookupCount);
+
+        long indexNanos = BenchmarkSupport.bestOf(runs, runs, () -> {
+            long found = 0;
+            for (String name : names) if (dogCollection.getDog(name) != null) found++;
+            return found;
+        });
+
+        // The list search is linear, so it only looks up a hundredth of the names.
+        int listLookups = Math.max(1, lookupCount / 100);
+        long listNanos = BenchmarkSupport.bestOf(1, Math.min(runs, 3), () -> {
+            long found = 0;
+            for (int i = 0; i < listLookups; i++) {
+                for (Dog dog : dogList) {
+                    if (dog.getName().equalsIgnoreCase(names[i * 100 % lookupCount])) {
+                        found++;
+                        break;
+                    }
+                }
+            }
+            return found;
+        });
+
+        System.out.printf("%d dogs%n", dogCount);
+        BenchmarkSupport.printRate("getDog by name key index", lookupCount, indexNanos);
+        BenchmarkSupport.printRate("linear search of a list", listLookups, listNanos);
+    }
+}
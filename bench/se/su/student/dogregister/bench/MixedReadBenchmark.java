@@ -0,0 +1,189 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.bench;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import se.su.student.dogregister.RegisterEngine;
+import se.su.student.dogregister.RegisterOptions;
+import se.su.student.dogregister.data.Dog;
+import se.su.student.dogregister.persistence.LogRecord;
+
+/**
+ * Measures the latency of "list dogs" and "list owners" reads while other
+ * threads keep changing the register, see "RegisterEngine.read".
+ * Readers list the dogs with a long tail, about a hundred of them, and pages
+ * of owners. Writers add and remove dogs, age them and give them to owners.
+ * <p>
+ * Options: dogs=N (default 1000000), readers=N (8), writers=N (4), seconds=N (10).
+ */
+public class MixedReadBenchmark {
+
+    // Tail lengths go up to 75, so about a hundred dogs have one this long.
+    private static final double MIN_TAIL_LENGTH = 74.0;
+    private static final int OWNERS = 10_000;
+    private static final int OWNER_PAGE = 20;
+
+    public static void main(String[] args) throws Exception {
+        int dogCount = BenchmarkSupport.intOption(args, "dogs", 1_000_000);
+        int readerCount = BenchmarkSupport.intOption(args, "readers", 8);
+        int writerCount = BenchmarkSupport.intOption(args, "writers", 4);
+        int seconds = BenchmarkSupport.intOption(args, "seconds", 10);
+
+        RegisterEngine engine = new RegisterEngine(new RegisterOptions(), new PrintStream(OutputStream.nullOutputStream()));
+        fill(engine, dogCount);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong writes = new AtomicLong();
+        ArrayList<long[]> dogLatencies = new ArrayList<>();
+        ArrayList<long[]> ownerLatencies = new ArrayList<>();
+        ArrayList<Thread> threads = new ArrayList<>();
+        CountDownLatch started = new CountDownLatch(readerCount + writerCount);
+
+        for (int i = 0; i < writerCount; i++) {
+            int writer = i;
+            threads.add(new Thread(() -> {
+                started.countDown();
+                writes.addAndGet(write(engine, writer, dogCount, running));
+            }));
+        }
+
+        long[][] dogResults = new long[readerCount][];
+        long[][] ownerResults = new long[readerCount][];
+        for (int i = 0; i < readerCount; i++) {
+            int reader = i;
+            threads.add(new Thread(() -> {
+                started.countDown();
+                LatencyRecorder dogs = new LatencyRecorder();
+                LatencyRecorder owners = new LatencyRecorder();
+                read(engine, running, dogs, owners);
+                dogResults[reader] = dogs.toArray();
+                ownerResults[reader] = owners.toArray();
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        started.await();
+
+        // The first seconds warm up and aren't measured separately, the run is long enough to dwarf them.
+        long startTime = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread thread : threads) thread.join();
+        long nanos = System.nanoTime() - startTime;
+
+        for (int i = 0; i < readerCount; i++) {
+            dogLatencies.add(dogResults[i]);
+            ownerLatencies.add(ownerResults[i]);
+        }
+
+        System.out.printf("%d dogs, %d owners, %d readers, %d writers, %d s%n", dogCount, OWNERS, readerCount, writerCount, seconds);
+        BenchmarkSupport.printLatencies("list dogs with tail >= " + MIN_TAIL_LENGTH, concat(dogLatencies));
+        BenchmarkSupport.printLatencies("list owners, page of " + OWNER_PAGE, concat(ownerLatencies));
+        BenchmarkSupport.printRate("changes", writes.get(), nanos);
+    }
+
+    /**
+     * Helper method that adds the dogs and owners, with ages 1-15 and weights 1-50.
+     */
+    private static void fill(RegisterEngine engine, int dogCount) throws IOException {
+        ArrayList<Dog> dogs = new ArrayList<>(dogCount);
+        for (int i = 0; i < dogCount; i++) {
+            dogs.add(new Dog("Dog" + i, i % 7 == 0 ? "Tax" : "Breed" + (i % 50), 1 + i % 15, 1 + (i / 15) % 50));
+        }
+        engine.getDogCollection().addAll(dogs);
+
+        for (int i = 0; i < OWNERS; i++) {
+            engine.apply(LogRecord.addOwner("Owner" + i));
+        }
+    }
+
+    /**
+     * Helper method that changes the register until stopped.
+     * Each writer adds and removes its own dogs, and ages and gives away the preloaded ones.
+     *
+     * @return the number of changes.
+     */
+    private static long write(RegisterEngine engine, int writer, int dogCount, AtomicBoolean running) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long changes = 0;
+
+        try {
+            for (long i = 0; running.get(); i++) {
+                String name = "Writer" + writer + "Dog" + (i % 1000);
+                String preloaded = "Dog" + random.nextInt(dogCount);
+
+                switch ((int) (i % 4)) {
+                    case 0 -> engine.apply(LogRecord.addDog(name, "Labrador", 1 + random.nextInt(15), 1 + random.nextInt(50)));
+                    case 1 -> engine.apply(LogRecord.increaseAge(preloaded));
+                    case 2 -> engine.apply(LogRecord.giveDogToOwner(preloaded, "Owner" + random.nextInt(OWNERS)));
+                    default -> engine.apply(LogRecord.removeDog("Writer" + writer + "Dog" + ((i + 500) % 1000)));
+                }
+                changes++;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return changes;
+    }
+
+    /**
+     * Helper method that lists dogs and owner pages until stopped, and records how long each listing took.
+     */
+    private static void read(RegisterEngine engine, AtomicBoolean running, LatencyRecorder dogs, LatencyRecorder owners) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long sink = 0;
+
+        for (long i = 0; running.get(); i++) {
+            long startTime = System.nanoTime();
+            if (i % 2 == 0) {
+                sink += engine.read(() -> RegisterEngine.copyDogs(engine.getDogCollection().streamDogsWithLongerTail(MIN_TAIL_LENGTH))).size();
+                dogs.record(System.nanoTime() - startTime);
+            } else {
+                String after = "Owner" + random.nextInt(OWNERS);
+                sink += engine.read(() -> RegisterEngine.copyOwners(engine.getOwnerCollection().streamOwners(after).limit(OWNER_PAGE))).size();
+                owners.record(System.nanoTime() - startTime);
+            }
+        }
+
+        if (sink == 42) System.out.print("");
+    }
+
+    private static long[] concat(ArrayList<long[]> parts) {
+        int length = 0;
+        for (long[] part : parts) length += part.length;
+
+        long[] all = new long[length];
+        int position = 0;
+        for (long[] part : parts) {
+            System.arraycopy(part, 0, all, position, part.length);
+            position += part.length;
+        }
+        return all;
+    }
+
+    /**
+     * Growable list of latencies for one thread.
+     */
+    private static class LatencyRecorder {
+        private long[] latencies = new long[1 << 16];
+        private int size = 0;
+
+        void record(long nanos) {
+            if (this.size == this.latencies.length) this.latencies = java.util.Arrays.copyOf(this.latencies, this.size * 2);
+            this.latencies[this.size++] = nanos;
+        }
+
+        long[] toArray() {
+            return java.util.Arrays.copyOf(this.latencies, this.size);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.bench;
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import se.su.student.dogregister.DogRegister;
+import se.su.student.dogregister.RegisterEngine;
+import se.su.student.dogregister.RegisterOptions;
+import se.su.student.dogregister.input.InputMode;
+import se.su.student.dogregister.input.InputReader;
+
+/**
+ * Compares the input modes of "InputReader": reading names, integers and decimals one
+ * line at a time, and running a whole script of one-line "register new dog" commands.
+ * <p>
+ * Options: lines=N (1000000), runs=N (5).
+ */
+public class ParserBenchmark {
+
+    public static void main(String[] args) {
+        int lineCount = BenchmarkSupport.intOption(args, "lines", 1_000_000);
+        int runs = BenchmarkSupport.intOption(args, "runs", 5);
+
+        // A name, an integer and a decimal, over and over.
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < lineCount / 3; i++) {
+            values.append("Dog").append(i).append('\n').append(i % 1000).append('\n').append(i % 100).append(".5\n");
+        }
+        byte[] valueBytes = values.toString().getBytes(StandardCharsets.UTF_8);
+
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < lineCount; i++) {
+            script.append("rnd Dog").append(i).append("|Labrador|").append(1 + i % 15).append('|').append(1 + i % 50).append('\n');
+        }
+        script.append("exit\n");
+        byte[] scriptBytes = script.toString().getBytes(StandardCharsets.UTF_8);
+
+        PrintStream nowhere = new PrintStream(OutputStream.nullOutputStream());
+        System.out.printf("%d lines%n", lineCount);
+
+        for (InputMode mode : InputMode.values()) {
+            long readNanos = BenchmarkSupport.bestOf(runs, runs, () -> {
+                InputReader inputReader = new InputReader(new ByteArrayInputStream(valueBytes), nowhere, mode);
+                long sum = 0;
+                try {
+                    for (int i = 0; i < lineCount / 3; i++) {
+                        sum += inputReader.readString("Name").length();
+                        sum += inputReader.readInt("Integer");
+                        sum += (long) inputReader.readDouble("Decimal");
+                    }
+                } finally {
+                    inputReader.release();
+                }
+                return sum;
+            });
+            BenchmarkSupport.printRate(mode + " read name, int, double", lineCount / 3 * 3, readNanos);
+
+            // The register grows with every command, so each run gets a new one.
+            long scriptNanos = BenchmarkSupport.bestOf(1, Math.min(runs, 3), () -> {
+                InputReader inputReader = new InputReader(new ByteArrayInputStream(scriptBytes), nowhere, mode);
+                RegisterEngine engine = new RegisterEngine(new RegisterOptions(), nowhere);
+                try {
+                    new DogRegister(engine, inputReader, nowhere).runSession();
+                } finally {
+                    inputReader.release();
+                }
+                return engine.getDogCollection().size();
+            });
+            BenchmarkSupport.printRate(mode + " script of rnd commands", lineCount, scriptNanos);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.bench;
+import java.util.ArrayList;
+import java.util.function.Predicate;
+import se.su.student.dogregister.collections.DogCollection;
+import se.su.student.dogregister.collections.DogFilter;
+import se.su.student.dogregister.collections.DogStorage;
+import se.su.student.dogregister.collections.OwnerCollection;
+import se.su.student.dogregister.comparators.DogNameComparator;
+import se.su.student.dogregister.data.BreedDictionary;
+import se.su.student.dogregister.data.Dog;
+import se.su.student.dogregister.data.Owner;
+import se.su.student.dogregister.query.DogQuery;
+import se.su.student.dogregister.query.QueryPlan;
+import se.su.student.dogregister.query.QueryPlanner;
+import se.su.student.dogregister.sorter.DogSorter;
+import se.su.student.dogregister.sorter.SortAlgorithm;
+
+/**
+ * Compares planned queries with scanning every dog with "DogCollection.getDogsMatching"
+ * and sorting the matches by name, for queries that the planner answers from each index.
+ * Also measures choosing a plan on its own for queries whose indexes give many dogs,
+ * where the breed and tail length indexes are counted from the counts they keep
+ * and a name prefix is read up to the number of dogs divided by four.
+ * <p>
+ * Options: dogs=N (1000000), runs=N (20), storage=object|columnar (object).
+ */
+public class QueryPlannerBenchmark {
+
+    public static void main(String[] args) {
+        int dogCount = BenchmarkSupport.intOption(args, "dogs", 1_000_000);
+        int runs = BenchmarkSupport.intOption(args, "runs", 20);
+        DogStorage storage = DogStorage.valueOf(BenchmarkSupport.stringOption(args, "storage", "object").toUpperCase());
+
+        DogCollection dogCollection = new DogCollection(storage);
+        OwnerCollection ownerCollection = new OwnerCollection();
+        Owner anna = new Owner("Anna");
+        ownerCollection.addOwner(anna);
+
+        // A rare breed for every thousandth dog, and a dog for Anna for every ten thousandth dog.
+        for (int i = 0; i < dogCount; i++) {
+            dogCollection.addDog(new Dog("Dog" + i, i % 1000 == 0 ? "Poodle" : "Breed" + (i % 50), 1 + i % 15, 1 + (i / 15) % 50));
+            if (i % 10_000 == 0) dogCollection.giveDogToOwner("Dog" + i, anna);
+        }
+
+        int poodle = BreedDictionary.find("Poodle");
+        QueryPlanner planner = new QueryPlanner(dogCollection, ownerCollection);
+
+        System.out.printf("%d dogs, %s, best of %d runs%n", dogCount, storage, runs);
+        measure("owner=anna age=1..", runs, planner, dogCollection, (age, weight, tailLength, breedId) -> age >= 1, dog -> dog.getOwner() == anna);
+        measure("name=dog12345", runs, planner, dogCollection, (age, weight, tailLength, breedId) -> true,
+                dog -> dog.getName().startsWith("Dog12345"));
+        measure("breed=poodle", runs, planner, dogCollection, (age, weight, tailLength, breedId) -> breedId == poodle, dog -> true);
+        measure("tail=74..", runs, planner, dogCollection, (age, weight, tailLength, breedId) -> tailLength >= 74, dog -> true);
+        measure("age=15 weight=..10", runs, planner, dogCollection, (age, weight, tailLength, breedId) -> age == 15 && weight <= 10, dog -> true);
+
+        System.out.println("Choosing a plan for queries whose indexes give many dogs:");
+        measurePlanning("breed=breed7", runs, planner);
+        measurePlanning("tail=0..1000", runs, planner);
+        measurePlanning("name=dog", runs, planner);
+        measurePlanning("breed=breed7 tail=0..1000", runs, planner);
+    }
+
+    /**
+     * Helper method that measures a planned query and a scan that finds the same dogs,
+     * the scan testing the numbers in the store and the rest of the query on the matches.
+     */
+    private static void measure(String text, int runs, QueryPlanner planner, DogCollection dogCollection,
+                                DogFilter numbers, Predicate<Dog> rest) {
+        DogQuery query = DogQuery.parse(text);
+        QueryPlan plan = planner.plan(query);
+
+        long plannedNanos = BenchmarkSupport.bestOf(runs / 2, runs, () -> planner.execute(query).size());
+        long scanNanos = BenchmarkSupport.bestOf(runs / 2, runs, () -> {
+            ArrayList<Dog> dogs = dogCollection.getDogsMatching(numbers);
+            dogs.removeIf(rest.negate());
+            DogSorter.sortDogs(DogNameComparator.INSTANCE, dogs, SortAlgorithm.MERGE);
+            return dogs.size();
+        });
+
+        System.out.printf("%-22s %-12s %8d dogs read, %6d found%n", text, plan.getIndex(), plan.getEstimatedDogs(), plan.execute().size());
+        System.out.printf("%-22s planned %10.3f ms, scan %10.3f ms%n", "", plannedNanos / 1e6, scanNanos / 1e6);
+    }
+
+    /**
+     * Helper method that measures choosing a plan for a query, without answering it.
+     */
+    private static void measurePlanning(String text, int runs, QueryPlanner planner) {
+        DogQuery query = DogQuery.parse(text);
+        long planNanos = BenchmarkSupport.bestOf(runs / 2, runs, () -> planner.plan(query).getEstimatedDogs());
+
+        System.out.printf("%-26s %-12s %10.3f ms%n", text, planner.plan(query).getIndex(), planNanos / 1e6);
+    }
+}
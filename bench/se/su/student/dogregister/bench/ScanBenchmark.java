@@ -0,0 +1,44 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.bench;
+import java.util.ArrayList;
+import se.su.student.dogregister.collections.DogCollection;
+import se.su.student.dogregister.collections.DogFilter;
+import se.su.student.dogregister.collections.DogStorage;
+import se.su.student.dogregister.data.Dog;
+
+/**
+ * Compares scans of every dog with "DogCollection.getDogsMatching" between the storages,
+ * for a filter on age and tail length that matches few dogs and one that matches many.
+ * <p>
+ * Options: dogs=N (1000000), runs=N (20).
+ */
+public class ScanBenchmark {
+
+    public static void main(String[] args) {
+        int dogCount = BenchmarkSupport.intOption(args, "dogs", 1_000_000);
+        int runs = BenchmarkSupport.intOption(args, "runs", 20);
+
+        ArrayList<Dog> dogs = new ArrayList<>(dogCount);
+        for (int i = 0; i < dogCount; i++) {
+            dogs.add(new Dog("Dog" + i, "Breed" + (i % 50), 1 + i % 15, 1 + (i / 15) % 50));
+        }
+
+        // Tail lengths go up to 75: about one dog in ten thousand has a tail this long, and about half the dogs are young enough.
+        DogFilter few = (age, weight, tailLength, breedId) -> age >= 15 && tailLength >= 74.0;
+        DogFilter many = (age, weight, tailLength, breedId) -> age <= 8 && tailLength >= 0.0;
+
+        System.out.printf("%d dogs, best of %d runs%n", dogCount, runs);
+        for (DogStorage storage : DogStorage.values()) {
+            DogCollection dogCollection = new DogCollection(storage);
+            dogCollection.addAll(dogs);
+
+            long fewNanos = BenchmarkSupport.bestOf(runs / 2, runs, () -> dogCollection.getDogsMatching(few).size());
+            long manyNanos = BenchmarkSupport.bestOf(runs / 2, runs, () -> dogCollection.getDogsMatching(many).size());
+            BenchmarkSupport.printRate(storage + " scan, few matches", dogCount, fewNanos);
+            BenchmarkSupport.printRate(storage + " scan, many matches", dogCount, manyNanos);
+        }
+    }
+}
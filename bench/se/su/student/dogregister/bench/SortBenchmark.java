@@ -0,0 +1,67 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.bench;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import se.su.student.dogregister.comparators.DogNameComparator;
+import se.su.student.dogregister.comparators.DogTailNameComparator;
+import se.su.student.dogregister.data.Dog;
+import se.su.student.dogregister.sorter.DogSorter;
+import se.su.student.dogregister.sorter.SortAlgorithm;
+
+/**
+ * Compares the sort algorithms of "DogSorter" when sorting shuffled dogs by tail length and name,
+ * and the radix sort by tail length of dogs that are already sorted by name.
+ * Selection sort is quadratic, so it only sorts the smaller lists.
+ * <p>
+ * Options: dogs=N (1000000), runs=N (5).
+ */
+public class SortBenchmark {
+
+    // Selection sort only sorts lists up to this size.
+    private static final int MAX_SELECTION_SORT = 10_000;
+
+    public static void main(String[] args) {
+        int maxDogs = BenchmarkSupport.intOption(args, "dogs", 1_000_000);
+        int runs = BenchmarkSupport.intOption(args, "runs", 5);
+
+        for (int dogCount = 1000; dogCount <= maxDogs; dogCount *= 10) {
+            ArrayList<Dog> dogs = shuffledDogs(dogCount);
+            ArrayList<Dog> byName = new ArrayList<>(dogs);
+            byName.sort(DogNameComparator.INSTANCE);
+
+            System.out.printf("%d dogs%n", dogCount);
+            for (SortAlgorithm algorithm : SortAlgorithm.values()) {
+                if (algorithm == SortAlgorithm.SELECTION && dogCount > MAX_SELECTION_SORT) continue;
+
+                long nanos = BenchmarkSupport.bestOf(runs, runs, () -> {
+                    ArrayList<Dog> copy = new ArrayList<>(dogs);
+                    DogSorter.sortDogs(DogTailNameComparator.INSTANCE, copy, algorithm);
+                    return copy.size();
+                });
+                BenchmarkSupport.printRate("  " + algorithm + " by tail and name", dogCount, nanos);
+            }
+
+            long radixNanos = BenchmarkSupport.bestOf(runs, runs, () -> {
+                ArrayList<Dog> copy = new ArrayList<>(byName);
+                DogSorter.sortDogsByKey(Dog::getTailLength, copy, null);
+                return copy.size();
+            });
+            BenchmarkSupport.printRate("  radix by tail, sorted by name", dogCount, radixNanos);
+        }
+    }
+
+    private static ArrayList<Dog> shuffledDogs(int count) {
+        ArrayList<Dog> dogs = new ArrayList<>(count);
+        Random random = new Random(count);
+        for (int i = 0; i < count; i++) {
+            dogs.add(new Dog("Dog" + i, i % 7 == 0 ? "Tax" : "Labrador", 1 + random.nextInt(15), 1 + random.nextInt(50)));
+        }
+
+        Collections.shuffle(dogs, random);
+        return dogs;
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.bench;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Locale;
+import se.su.student.dogregister.collections.DogCollection;
+import se.su.student.dogregister.collections.DogStorage;
+import se.su.student.dogregister.data.Dog;
+
+/**
+ * Compares the dog storages: how fast threads can add dogs at the same time,
+ * how much heap the register takes afterwards, and how long a full garbage
+ * collection takes with the register on the heap.
+ * Run it once per storage, each in its own JVM, so the heap of one doesn't
+ * affect the other:
+ * <pre>
+ * java -Xmx4g -cp out se.su.student.dogregister.bench.StorageBenchmark storage=object
+ * java -Xmx4g -cp out se.su.student.dogregister.bench.StorageBenchmark storage=columnar
+ * </pre>
+ * Options: storage=object|columnar (object), dogs=N (10000000), writers=N (4).
+ */
+public class StorageBenchmark {
+
+    private static final int FULL_COLLECTIONS = 3;
+
+    public static void main(String[] args) throws Exception {
+        DogStorage storage = DogStorage.valueOf(BenchmarkSupport.stringOption(args, "storage", "object").toUpperCase(Locale.ROOT));
+        int dogCount = BenchmarkSupport.intOption(args, "dogs", 10_000_000);
+        int writerCount = BenchmarkSupport.intOption(args, "writers", 4);
+
+        DogCollection dogCollection = new DogCollection(storage);
+        long gcTimeBefore = collectionTime();
+
+        // Each writer adds every writerCount:th dog, so they add to all parts of the store at the same time.
+        ArrayList<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < writerCount; i++) {
+            int writer = i;
+            writers.add(new Thread(() -> {
+                for (int j = writer; j < dogCount; j += writerCount) {
+                    dogCollection.addDog(new Dog("Dog" + j, "Breed" + (j % 50), 1 + j % 15, 1 + (j / 15) % 50));
+                }
+            }));
+        }
+
+        long startTime = System.nanoTime();
+        writers.forEach(Thread::start);
+        for (Thread writer : writers) writer.join();
+        long nanos = System.nanoTime() - startTime;
+        long gcTimeWhileAdding = collectionTime() - gcTimeBefore;
+
+        System.out.printf("%s storage, %d dogs, %d writers%n", storage, dogCollection.size(), writerCount);
+        BenchmarkSupport.printRate("concurrent addDog", dogCount, nanos);
+        System.out.printf("%-40s %d ms%n", "GC time while adding", gcTimeWhileAdding);
+
+        long longestPause = 0;
+        long totalPause = 0;
+        for (int i = 0; i < FULL_COLLECTIONS; i++) {
+            long pauseStart = System.nanoTime();
+            System.gc();
+            long pause = System.nanoTime() - pauseStart;
+            longestPause = Math.max(longestPause, pause);
+            totalPause += pause;
+        }
+
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        System.out.printf("%-40s %.1f MB%n", "heap used after full GC", heapUsed / 1e6);
+        System.out.printf("%-40s avg=%.1f ms  max=%.1f ms%n", "full GC pause", totalPause / 1e6 / FULL_COLLECTIONS, longestPause / 1e6);
+
+        // Keep the register reachable until everything is measured.
+        if (dogCollection.size() == 42) System.out.print("");
+    }
+
+    /**
+     * Helper method that gets the total time the garbage collectors have run, in milliseconds.
+     */
+    private static long collectionTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, collector.getCollectionTime());
+        }
+        return time;
+    }
+}
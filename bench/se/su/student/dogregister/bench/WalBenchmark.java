@@ -0,0 +1,119 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.bench;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import se.su.student.dogregister.persistence.LogRecord;
+import se.su.student.dogregister.persistence.SyncPolicy;
+import se.su.student.dogregister.persistence.WriteAheadLog;
+
+/**
+ * Measures how many changes a "WriteAheadLog" commits per second, and how long a
+ * commit takes, for each sync policy and a growing number of committing threads.
+ * With EVERY_OP the threads that commit at the same time share one sync (group commit).
+ * The "one sync per change" lines hold a lock around each append and commit,
+ * so every change waits for its own sync, which is what group commit avoids.
+ * <p>
+ * Options: dir=PATH (the temporary directory), seconds=N (2), threads=N (16, the most threads).
+ */
+public class WalBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int seconds = BenchmarkSupport.intOption(args, "seconds", 2);
+        int maxThreads = BenchmarkSupport.intOption(args, "threads", 16);
+        String dir = BenchmarkSupport.stringOption(args, "dir", null);
+        Path directory = dir == null ? Files.createTempDirectory("wal-benchmark") : Files.createTempDirectory(Path.of(dir), "wal-benchmark");
+
+        try {
+            for (int threads = 1; threads <= maxThreads; threads *= 4) {
+                System.out.printf("%d threads%n", threads);
+                run(directory, SyncPolicy.EVERY_OP, threads, seconds, false);
+                run(directory, SyncPolicy.EVERY_OP, threads, seconds, true);
+                run(directory, SyncPolicy.INTERVAL, threads, seconds, false);
+                run(directory, SyncPolicy.OS, threads, seconds, false);
+            }
+        } finally {
+            Files.deleteIfExists(directory.resolve("register.wal"));
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Helper method that commits changes from a number of threads for a while and prints the results.
+     *
+     * @param serialize true to hold a lock around each append and commit, so no syncs are shared.
+     */
+    private static void run(Path directory, SyncPolicy syncPolicy, int threadCount, int seconds, boolean serialize) throws Exception {
+        Path file = directory.resolve("register.wal");
+        Files.deleteIfExists(file);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Object commitLock = new Object();
+        long[][] latencies = new long[threadCount][];
+        ArrayList<Thread> threads = new ArrayList<>();
+
+        try (WriteAheadLog log = WriteAheadLog.open(file, 0, syncPolicy, 100)) {
+            for (int i = 0; i < threadCount; i++) {
+                int thread = i;
+                threads.add(new Thread(() -> latencies[thread] = commit(log, thread, running, serialize ? commitLock : null)));
+            }
+
+            long startTime = System.nanoTime();
+            threads.forEach(Thread::start);
+            Thread.sleep(seconds * 1000L);
+            running.set(false);
+            for (Thread thread : threads) thread.join();
+            long nanos = System.nanoTime() - startTime;
+
+            long commits = 0;
+            int length = 0;
+            for (long[] threadLatencies : latencies) length += threadLatencies.length;
+            long[] all = new long[length];
+            for (long[] threadLatencies : latencies) {
+                System.arraycopy(threadLatencies, 0, all, (int) commits, threadLatencies.length);
+                commits += threadLatencies.length;
+            }
+
+            String label = "  " + syncPolicy + (serialize ? ", one sync per change" : "");
+            BenchmarkSupport.printRate(label, commits, nanos);
+            BenchmarkSupport.printLatencies("", all);
+        }
+    }
+
+    /**
+     * Helper method that appends and commits changes until stopped.
+     *
+     * @param lock a lock to hold around each change, or null.
+     * @return how long each commit took.
+     */
+    private static long[] commit(WriteAheadLog log, int thread, AtomicBoolean running, Object lock) {
+        long[] latencies = new long[1024];
+        int count = 0;
+
+        try {
+            for (int i = 0; running.get(); i++) {
+                LogRecord record = LogRecord.addDog("Thread" + thread + "Dog" + i, "Labrador", 3, 30);
+                long startTime = System.nanoTime();
+                if (lock == null) {
+                    log.commit(log.append(record));
+                } else {
+                    synchronized (lock) {
+                        log.commit(log.append(record));
+                    }
+                }
+
+                if (count == latencies.length) latencies = java.util.Arrays.copyOf(latencies, count * 2);
+                latencies[count++] = System.nanoTime() - startTime;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return java.util.Arrays.copyOf(latencies, count);
+    }
+}
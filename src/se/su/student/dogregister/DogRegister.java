@@ -8,28 +8,173 @@ import se.su.student.dogregister.collections.OwnerCollection;
 import se.su.student.dogregister.data.Dog;
 import se.su.student.dogregister.data.Owner;
 import se.su.student.dogregister.input.InputReader;
+import se.su.student.dogregister.output.ListingWriter;
+import se.su.student.dogregister.persistence.CheckpointReport;
+import se.su.student.dogregister.persistence.LogRecord;
+import se.su.student.dogregister.query.DogQuery;
+import se.su.student.dogregister.query.QueryPlanner;
 import se.su.student.dogregister.util.Utilities;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.InputMismatchException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
 
 /**
  * Dog register that has a collection for dogs and owners.
  * Reads commands from the console and executes the commands
  * until an exit command is provided.
+ * <p>
+ * A dog register is one session with the register. Several sessions can
+ * share the same "RegisterEngine", each reading commands from its own input
+ * and printing to its own output, see "RegisterServer".
+ * <p>
+ * A command can also be given on one line together with its answers,
+ * separated by "|", such as "rnd Rex|Labrador|3|30". Such commands don't
+ * prompt, so a script can send many of them without waiting for the answers.
+ * The changes they make are committed together, and their answers are sent
+ * together after the commit, when there are no more commands waiting.
+ * <p>
+ * The one-line listing commands can also list one page at a time, such as
+ * "lo 20", and end the page with the command for the next page, such as
+ * "Next page: lo 20|Bob". Pages are read lazily from the sorted views of
+ * the collections, so a page takes the same time in a register of any size.
  */
 public class DogRegister {
     private static final String EXIT_COMMAND = "exit";
-    private final DogCollection dogCollection = new DogCollection();
-    private final OwnerCollection ownerCollection = new OwnerCollection();
-    private final InputReader inputReader = new InputReader();
 
+    // The names of the commands, for finding the command at the start of a one-line command.
+    private static final String[] COMMANDS = {
+            "register new dog", "rnd", "remove dog", "rd", "register new owner", "rno",
+            "remove owner", "ro", "list dogs", "ld", "list owners", "lo", "increase age", "ia",
+            "give dog to owner", "gdto", "remove dog from owner", "rdfo", "import", "im",
+            "query dogs", "qd", "last checkpoint", "lc", EXIT_COMMAND
+    };
+
+    // The most one-line commands that are answered together, so a script that never
+    // stops sending doesn't wait forever for the answers.
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private final RegisterEngine engine;
+    private final DogCollection dogCollection;
+    private final OwnerCollection ownerCollection;
+    private final InputReader inputReader;
+    private final PrintStream out;
+    private final ListingWriter listingWriter;
+
+    // Holds the replies to a network client back while changes aren't committed, or null on the console.
+    private final ReplyBuffer replies;
+    private final QueryPlanner queryPlanner;
+
+    // Set while a one-line command runs, the changes are then committed at the end of the batch.
+    private boolean batching = false;
+    private boolean uncommittedChanges = false;
+    private int batchSize = 0;
+
+    public DogRegister() {
+        this(new RegisterEngine(new RegisterOptions(), System.out));
+    }
+
+    public DogRegister(RegisterEngine engine) {
+        this(engine, new InputReader(), System.out);
+    }
+
+    /**
+     * Creates a session with a register.
+     *
+     * @param engine the register.
+     * @param inputReader the reader to read commands from.
+     * @param out the stream to print to, which the prompts of the input reader should also be printed to.
+     */
+    public DogRegister(RegisterEngine engine, InputReader inputReader, PrintStream out) {
+        this(engine, inputReader, out, null);
+    }
+
+    /**
+     * Creates a session with a register for a network client, see "RegisterServer".
+     *
+     * @param engine the register.
+     * @param inputReader the reader to read commands from.
+     * @param out the stream to print to, which writes to the replies.
+     * @param replies the replies to the client, held back while changes aren't committed.
+     */
+    DogRegister(RegisterEngine engine, InputReader inputReader, PrintStream out, ReplyBuffer replies) {
+        this.engine = engine;
+        this.dogCollection = engine.getDogCollection();
+        this.ownerCollection = engine.getOwnerCollection();
+        this.inputReader = inputReader;
+        this.out = out;
+        this.replies = replies;
+        this.listingWriter = new ListingWriter(out);
+        this.queryPlanner = new QueryPlanner(this.dogCollection, this.ownerCollection);
+    }
+
+    /**
+     * Starts the register.
+     * See "RegisterOptions" for the options.
+     *
+     * @param args the command line arguments.
+     */
     public static void main(String[] args) {
-        new DogRegister().start();
+        RegisterOptions options;
+        try {
+            options = RegisterOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+
+        RegisterEngine engine = new RegisterEngine(options, System.out);
+        if (options.getPort() != 0) RegisterServer.run(engine, options, System.out);
+        else new DogRegister(engine, new InputReader(System.in, System.out, options.getInputMode()), System.out).start();
     }
 
     private void start() {
+        if (!engine.open()) return;
+
+        runSession();
+        shutDown();
+    }
+
+    /**
+     * Prints the welcome message and executes commands until the exit command.
+     * Doesn't open or close the register, which may be shared with other sessions.
+     */
+    public void runSession() {
         initialize();
         runCommandLoop();
-        shutDown();
+    }
+
+    /**
+     * Helper method that makes a change through the engine, which logs it first if there is a log.
+     * Prints an error if the change no longer applies, which happens when someone else
+     * changed the register after the command checked it, or if the change couldn't be logged.
+     *
+     * @param record the change.
+     * @param errorFormat the error to print if the change doesn't apply, without "Error: ".
+     * @param errorArgs the arguments of the error.
+     * @return true if the change was made, false otherwise.
+     */
+    private boolean makeChange(LogRecord record, String errorFormat, Object... errorArgs) {
+        try {
+            if (engine.apply(record, !batching)) {
+                if (batching) {
+                    uncommittedChanges = true;
+                    if (replies != null) replies.holdReplies();
+                }
+                return true;
+            }
+
+            out.printf("Error: " + errorFormat + "%n", errorArgs);
+        } catch (IOException e) {
+            out.println(e.getMessage());
+        }
+
+        return false;
     }
 
     /**
@@ -37,7 +182,7 @@ public class DogRegister {
      * and the available commands.
      */
     private void initialize() {
-        System.out.println("Welcome to the dog register!");
+        out.println("Welcome to the dog register!");
         printCommands();
     }
 
@@ -45,7 +190,7 @@ public class DogRegister {
      * Prints the available commands.
      */
     private void printCommands() {
-        System.out.println("""
+        out.println("""
 				The following commands are available:
 				* Register new dog
 				* Remove dog
@@ -56,6 +201,8 @@ public class DogRegister {
 				* Increase age
 				* Give dog to owner
 				* Remove dog from owner
+				* Import
+				* Query dogs
 				* Exit
 				""");
     }
@@ -66,16 +213,106 @@ public class DogRegister {
     public void runCommandLoop() {
         String command;
         do {
-            command = inputReader.readString("Command").toLowerCase();
-            executeCommand(command);
+            // Answer the commands so far when there are no more waiting, instead of one at a time.
+            if (batchSize >= MAX_BATCH_SIZE || !inputReader.isInputWaiting()) endBatch();
+
+            command = executeLine(inputReader.readString("Command"));
         } while (!command.equals(EXIT_COMMAND));
+
+        endBatch();
+    }
+
+    /**
+     * Helper method that executes a command, which is either a command on its own
+     * that prompts for what it needs, or a one-line command with its answers.
+     *
+     * @param line the command.
+     * @return the command in lowercase, without the answers.
+     */
+    private String executeLine(String line) {
+        String lowerCaseLine = line.toLowerCase();
+        String command = findCommand(lowerCaseLine);
+
+        if (command == null) {
+            // A command followed only by blanks is the command on its own.
+            lowerCaseLine = lowerCaseLine.stripTrailing();
+
+            // Answer the one-line commands before prompting, the prompts are sent right away.
+            endBatch();
+            executeCommand(lowerCaseLine);
+            return lowerCaseLine;
+        }
+
+        inputReader.supplyArguments(command.length() + 1);
+        batching = true;
+        try {
+            executeCommand(command);
+        } catch (NoSuchElementException e) {
+            // Too few answers, a blank answer, or an answer that isn't a number.
+            out.println(e.getMessage());
+        } finally {
+            batching = false;
+            inputReader.clearArguments();
+        }
+
+        batchSize++;
+        return command;
+    }
+
+    /**
+     * Helper method that finds the command at the start of a one-line command.
+     * The longest one is used, since "remove dog from owner" starts with "remove dog".
+     * A command followed only by blanks isn't a one-line command.
+     *
+     * @param line the one-line command in lowercase.
+     * @return the command, or null if the line isn't a one-line command.
+     */
+    private static String findCommand(String line) {
+        String command = null;
+
+        for (String name : COMMANDS) {
+            if (line.length() > name.length() && line.charAt(name.length()) == ' ' && line.startsWith(name)
+                    && !line.substring(name.length()).isBlank()
+                    && (command == null || name.length() > command.length())) command = name;
+        }
+
+        return command;
+    }
+
+    /**
+     * Helper method that ends a batch of one-line commands. Commits their changes
+     * and then sends their answers, so a client never hears of a change that
+     * could be lost.
+     */
+    private void endBatch() {
+        if (uncommittedChanges) {
+            uncommittedChanges = false;
+            try {
+                engine.commit();
+            } catch (IOException e) {
+                out.println(e.getMessage());
+            }
+        }
+
+        if (replies != null) {
+            try {
+                replies.sendHeldReplies();
+            } catch (IOException e) {
+                // The client disconnected, which ends the session when it's read from next.
+            }
+        }
+
+        batchSize = 0;
+        out.flush();
     }
 
     /**
      * Print a message when shutting down the program.
+     * Saves the register first if a snapshot file was provided.
      */
     public void shutDown() {
-        System.out.println("Dog register shutting down");
+        engine.close();
+        out.println("Dog register shutting down");
     }
 
     /**
@@ -94,8 +331,11 @@ public class DogRegister {
             case "increase age", "ia" -> increaseAge();
             case "give dog to owner", "gdto" -> giveDogToOwner();
             case "remove dog from owner", "rdfo" -> removeDogFromOwner();
+            case "import", "im" -> importFile();
+            case "query dogs", "qd" -> queryDogs();
+            case "last checkpoint", "lc" -> lastCheckpoint();
             case "exit" -> {}
-            default -> System.out.println("Error: Invalid command.");
+            default -> out.println("Error: Invalid command.");
         }
     }
 
@@ -110,7 +350,7 @@ public class DogRegister {
         String name = Utilities.toTitleCase(validateInputString("Enter dog name"));
 
         if (dogCollection.containsDog(name)) {
-            System.out.printf("Error: %s is already registered.%n", name);
+            out.printf("Error: %s is already registered.%n", name);
             return;
         }
 
@@ -118,8 +358,8 @@ public class DogRegister {
         int age = inputReader.readInt("Enter dog age");
         int weight = inputReader.readInt("Enter dog weight");
 
-        dogCollection.addDog(new Dog(name, breed, age, weight));
-        System.out.printf("%s has been added to the register.%n", name);
+        if (!makeChange(LogRecord.addDog(name, breed, age, weight), "%s is already registered.", name)) return;
+        out.printf("%s has been added to the register.%n", name);
     }
 
     /**
@@ -130,8 +370,8 @@ public class DogRegister {
      * or the dog isn't present in the collection.
      */
     private void removeDog() {
-        if (dogCollection.getDogs().isEmpty()) {
-            System.out.println("Error: No dogs in the register.");
+        if (dogCollection.isEmpty()) {
+            out.println("Error: No dogs in the register.");
             return;
         }
 
@@ -139,14 +379,13 @@ public class DogRegister {
         Dog dog = dogCollection.getDog(name);
 
         if (dog == null) {
-            System.out.printf("Error: %s is not registered.%n", name);
+            out.printf("Error: %s is not registered.%n", name);
             return;
         }
 
-        dog.setOwner(null);
-        dogCollection.removeDog(dog);
+        if (!makeChange(LogRecord.removeDog(name), "%s is not registered.", name)) return;
 
-        System.out.printf("%s has been removed from the register.%n", name);
+        out.printf("%s has been removed from the register.%n", name);
     }
 
     /**
@@ -159,12 +398,12 @@ public class DogRegister {
     private void registerNewOwner() {
         String name = Utilities.toTitleCase(validateInputString("Enter owner name"));
         if (ownerCollection.containsOwner(name)) {
-            System.out.printf("Error: %s is already registered.%n", name);
+            out.printf("Error: %s is already registered.%n", name);
             return;
         }
 
-        ownerCollection.addOwner(new Owner(name));
-        System.out.printf("%s has been added to the register.%n", name);
+        if (!makeChange(LogRecord.addOwner(name), "%s is already registered.", name)) return;
+        out.printf("%s has been added to the register.%n", name);
     }
 
     /**
@@ -175,8 +414,8 @@ public class DogRegister {
      * or the owner isn't present in the collection.
      */
     private void removeOwner() {
-        if (ownerCollection.getOwners().isEmpty()) {
-            System.out.println("Error: No owners in register.");
+        if (ownerCollection.isEmpty()) {
+            out.println("Error: No owners in register.");
             return;
         }
 
@@ -184,52 +423,166 @@ public class DogRegister {
         Owner owner = ownerCollection.getOwner(name);
 
         if (owner == null) {
-            System.out.printf("Error: %s is not registered.%n", name);
+            out.printf("Error: %s is not registered.%n", name);
             return;
         }
 
-        for (Dog dog : owner.getDogs()) {
-            dog.setOwner(null);
-            dogCollection.removeDog(dog);
-        }
-
-        ownerCollection.removeOwner(owner);
-        System.out.printf("%s has been removed from the register.%n", name);
+        if (!makeChange(LogRecord.removeOwner(name), "%s is not registered.", name)) return;
+        out.printf("%s has been removed from the register.%n", name);
     }
 
     /**
      * Command "list dogs" or "ld".
      * Asks for a minimum tail length and lists all dogs with a longer tail.
      * Doesn't list the dogs if there are no dogs registered.
+     * As a one-line command it can also be given a page size, and the tail
+     * length and name of the dog to list after, such as "ld 2.5|20|9.00|Rex".
      */
     private void listDogs() {
-        if (dogCollection.getDogs().isEmpty()) {
-            System.out.println("Error: No dogs in register.");
+        if (dogCollection.isEmpty()) {
+            out.println("Error: No dogs in register.");
             return;
         }
 
         double minTailLength = inputReader.readDouble("Enter minimum tail length");
-        List<Dog> matches = dogCollection.getDogsWithLongerTail(minTailLength);
+        if (inputReader.hasArgument()) {
+            listDogPage(minTailLength);
+            return;
+        }
+
+        // A range lookup in the tail length index, copied without holding changes back.
+        List<Dog> matches = engine.read(() -> RegisterEngine.copyDogs(dogCollection.streamDogsWithLongerTail(minTailLength)));
 
-        System.out.println("Dogs in register:");
+        listingWriter.println("Dogs in register:");
         for (Dog dog : matches) {
-            System.out.println(dog);
+            listingWriter.printDog(dog);
         }
+        listingWriter.flush();
+    }
+
+    /**
+     * Helper method that lists one page of the dogs with a longer tail than the minimum.
+     * Reads the dogs from the collection instead of a view, so it doesn't copy the register.
+     * The page starts after the dog with the tail length and name that may be given after the page size.
+     *
+     * @param minTailLength the minimum tail length.
+     */
+    private void listDogPage(double minTailLength) {
+        int pageSize = readPageSize();
+        if (pageSize == 0) return;
+
+        Stream<Dog> dogs = dogCollection.streamDogsWithLongerTail(minTailLength);
+        if (inputReader.hasArgument()) {
+            double afterTailLength = inputReader.readDouble("Enter tail length to list after");
+            String afterName = Utilities.toTitleCase(inputReader.readString("Enter name to list after"));
+
+            // A position before the minimum starts with the first dog with a long enough tail.
+            if (afterTailLength >= minTailLength) dogs = dogCollection.streamDogsAfter(afterTailLength, afterName);
+        }
+
+        listingWriter.println("Dogs in register:");
+
+        // One more dog than fits on the page is read, to know if there is a next page.
+        Iterator<Dog> page = dogs.limit(pageSize + 1L).iterator();
+        for (int i = 0; i < pageSize && page.hasNext(); i++) {
+            Dog dog = page.next();
+            listingWriter.printDog(dog);
+
+            if (i == pageSize - 1 && page.hasNext()) {
+                double tailLength = dog.getTailLength();
+                listingWriter.printNextPage("ld", tailLength, pageSize, tailLength, dog.getName());
+            }
+        }
+
+        listingWriter.flush();
     }
 
     /**
      * Command "list owners" or "lo".
      * Lists all the owners in the collection.
      * Doesn't list any owners if there are no owners registered.
+     * As a one-line command it can also be given a page size,
+     * and the name of the owner to list after, such as "lo 20|Bob".
      */
     private void listOwners() {
-        if (ownerCollection.getOwners().isEmpty()) {
-            System.out.println("Error: No owners in register.");
+        if (ownerCollection.isEmpty()) {
+            out.println("Error: No owners in register.");
             return;
         }
 
-        System.out.println("Owners in register:");
-        ownerCollection.getOwners().forEach(System.out::println);
+        if (inputReader.hasArgument()) {
+            listOwnerPage();
+            return;
+        }
+
+        listingWriter.println("Owners in register:");
+        engine.read(() -> RegisterEngine.copyOwners(ownerCollection.streamOwners(null))).forEach(listingWriter::printOwner);
+        listingWriter.flush();
+    }
+
+    /**
+     * Helper method that lists one page of the owners, the same way as "listDogPage".
+     */
+    private void listOwnerPage() {
+        int pageSize = readPageSize();
+        if (pageSize == 0) return;
+
+        String afterName = null;
+        if (inputReader.hasArgument()) afterName = Utilities.toTitleCase(inputReader.readString("Enter name to list after"));
+
+        listingWriter.println("Owners in register:");
+
+        Iterator<Owner> page = ownerCollection.streamOwners(afterName).limit(pageSize + 1L).iterator();
+        for (int i = 0; i < pageSize && page.hasNext(); i++) {
+            Owner owner = page.next();
+            listingWriter.printOwner(owner);
+
+            if (i == pageSize - 1 && page.hasNext()) listingWriter.printNextPage("lo", pageSize, owner.getName());
+        }
+
+        listingWriter.flush();
+    }
+
+    /**
+     * Helper method that reads the number of dogs or owners to list on a page.
+     *
+     * @return the page size, or 0 if it's less than one, after printing an error.
+     */
+    private int readPageSize() {
+        int pageSize = inputReader.readInt("Enter page size");
+        if (pageSize >= 1) return pageSize;
+
+        out.println("Error: The page size must be at least 1.");
+        return 0;
+    }
+
+    /**
+     * Command "query dogs" or "qd".
+     * Asks for a query, such as "breed=labrador age=2..5 sort=tail limit=10",
+     * and lists the dogs that match it, see "DogQuery" for the terms.
+     * The "QueryPlanner" reads the dogs from the index that gives the fewest
+     * dogs, so a selective query doesn't look at every dog in the register.
+     * Doesn't list the dogs if there are no dogs registered.
+     */
+    private void queryDogs() {
+        if (dogCollection.isEmpty()) {
+            out.println("Error: No dogs in register.");
+            return;
+        }
+
+        DogQuery query;
+        try {
+            query = DogQuery.parse(inputReader.readString("Enter query"));
+        } catch (IllegalArgumentException e) {
+            out.println(e.getMessage());
+            return;
+        }
+
+        listingWriter.println("Dogs matching the query:");
+        for (Dog dog : queryPlanner.execute(query)) {
+            listingWriter.printDog(dog);
+        }
+        listingWriter.flush();
     }
 
     /**
@@ -241,21 +594,21 @@ public class DogRegister {
      * empty has been provided.
      */
     private void increaseAge() {
-        if (dogCollection.getDogs().isEmpty()) {
-            System.out.println("Error: No dogs in register.");
+        if (dogCollection.isEmpty()) {
+            out.println("Error: No dogs in register.");
             return;
         }
 
         String name = Utilities.toTitleCase(validateInputString("Enter dog name"));
-        Dog dog = dogCollection.getDog(name);
 
-        if (dog == null) {
-            System.out.printf("Error: %s is not registered.%n", name);
+        if (!dogCollection.containsDog(name)) {
+            out.printf("Error: %s is not registered.%n", name);
             return;
         }
 
-        dog.increaseAge();
-        System.out.printf("%s is now one year older.%n", name);
+        if (!makeChange(LogRecord.increaseAge(name), "%s is not registered.", name)) return;
+
+        out.printf("%s is now one year older.%n", name);
     }
 
     /**
@@ -270,11 +623,11 @@ public class DogRegister {
      */
     private void giveDogToOwner() {
         // Check if either collection is empty.
-        if (dogCollection.getDogs().isEmpty()) {
-            System.out.println("Error: No dogs in register.");
+        if (dogCollection.isEmpty()) {
+            out.println("Error: No dogs in register.");
             return;
-        } else if (ownerCollection.getOwners().isEmpty()) {
-            System.out.println("Error: No owners in register.");
+        } else if (ownerCollection.isEmpty()) {
+            out.println("Error: No owners in register.");
             return;
         }
 
@@ -284,13 +637,13 @@ public class DogRegister {
 
         // If there was no dog, print error.
         if (dog == null) {
-            System.out.printf("Error: %s is not registered.%n", dogName);
+            out.printf("Error: %s is not registered.%n", dogName);
             return;
         }
 
         // If the dog has an owner, print error.
         if (dog.getOwner() != null) {
-            System.out.printf("Error: %s already has an owner.%n", dogName);
+            out.printf("Error: %s already has an owner.%n", dogName);
             return;
         }
 
@@ -300,12 +653,12 @@ public class DogRegister {
 
         // If there was no owner, print error.
         if (owner == null) {
-            System.out.printf("Error: %s is not registered.%n", ownerName);
+            out.printf("Error: %s is not registered.%n", ownerName);
             return;
         }
 
-        dog.setOwner(owner);
-        System.out.printf("%s is now owned by %s.%n", dogName, ownerName);
+        if (!makeChange(LogRecord.giveDogToOwner(dogName, ownerName), "%s could not be given to %s.", dogName, ownerName)) return;
+        out.printf("%s is now owned by %s.%n", dogName, ownerName);
     }
 
     /**
@@ -319,11 +672,11 @@ public class DogRegister {
      */
     private void removeDogFromOwner() {
         // Check if either collection is empty.
-        if (dogCollection.getDogs().isEmpty()) {
-            System.out.println("Error: No dogs in register.");
+        if (dogCollection.isEmpty()) {
+            out.println("Error: No dogs in register.");
             return;
-        } else if (ownerCollection.getOwners().isEmpty()) {
-            System.out.println("Error: No owners in register.");
+        } else if (ownerCollection.isEmpty()) {
+            out.println("Error: No owners in register.");
             return;
         }
 
@@ -333,32 +686,75 @@ public class DogRegister {
 
         // If there was no dog, print error.
         if (dog == null) {
-            System.out.printf("Error: %s is not registered.%n", dogName);
+            out.printf("Error: %s is not registered.%n", dogName);
             return;
         }
 
         // If the dog doesn't have an owner, print error.
         if (dog.getOwner() == null) {
-            System.out.printf("Error: %s doesn't have an owner.%n", dogName);
+            out.printf("Error: %s doesn't have an owner.%n", dogName);
+            return;
+        }
+
+        if (!makeChange(LogRecord.removeDogFromOwner(dogName), "%s doesn't have an owner.", dogName)) return;
+        out.printf("%s no longer has an owner.%n", dogName);
+    }
+
+    /**
+     * Command "import" or "im".
+     * Asks for the path of a CSV or NDJSON file and imports the
+     * dogs, owners and ownerships in it into the register.
+     * See "RegisterImporter" for the file formats.
+     * Will keep asking for a path until a string that's not blank and not
+     * empty has been provided.
+     */
+    private void importFile() {
+        String pathName = validateInputString("Enter file path").trim();
+
+        try {
+            engine.importFile(Path.of(pathName), out);
+        } catch (IOException e) {
+            out.println(e.getMessage());
+        } catch (InvalidPathException e) {
+            out.printf("Error: %s could not be read.%n", pathName);
+        }
+    }
+
+    /**
+     * Command "last checkpoint" or "lc".
+     * Prints what the last checkpoint saved to the snapshot file, how long it took
+     * and how much it compacted the log, including checkpoints made in the background.
+     */
+    private void lastCheckpoint() {
+        CheckpointReport checkpoint = engine.getLastCheckpoint();
+
+        if (checkpoint == null) {
+            out.println("No checkpoint has been made.");
             return;
         }
 
-        dog.setOwner(null);
-        System.out.printf("%s no longer has an owner.%n", dogName);
+        out.println(checkpoint.describe());
+        out.printf("The checkpoint was made %s, at LSN %d.%n", checkpoint.isBackground() ? "in the background" : "on shutdown", checkpoint.getLsn());
     }
 
     /**
      * Helper function that validates that the string provided
      * is not blank and not empty.
+     * An argument of a one-line command isn't asked for again, since the
+     * next argument is the answer to the next prompt, so the command fails instead.
      *
      * @param prompt the prompt to print to the user.
      * @return inputted string that's not empty or blank.
+     * @throws InputMismatchException if an argument of a one-line command is blank.
      */
     private String validateInputString(String prompt) {
         String input = inputReader.readString(prompt);
+        if (input.isBlank() && inputReader.isUsingArguments()) {
+            throw new InputMismatchException(String.format("Error: %s can't be empty.", prompt));
+        }
 
         while (input.isBlank() || input.isEmpty()) {
-            System.out.printf("Error: %s can't be empty.%n", prompt);
+            out.printf("Error: %s can't be empty.%n", prompt);
             input = inputReader.readString("Name");
         }
 
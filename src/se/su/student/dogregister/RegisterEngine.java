@@ -0,0 +1,544 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister;
+import se.su.student.dogregister.collections.DogCollection;
+import se.su.student.dogregister.collections.OwnerCollection;
+import se.su.student.dogregister.data.Dog;
+import se.su.student.dogregister.data.Owner;
+import se.su.student.dogregister.input.RegisterImporter;
+import se.su.student.dogregister.persistence.CheckpointReport;
+import se.su.student.dogregister.persistence.CheckpointScheduler;
+import se.su.student.dogregister.persistence.LogRecord;
+import se.su.student.dogregister.persistence.RegisterSnapshot;
+import se.su.student.dogregister.persistence.WriteAheadLog;
+import se.su.student.dogregister.util.Utilities;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * The dogs and owners of a register, shared by everyone using the register,
+ * together with the snapshot file and the log that keep them between runs.
+ * <p>
+ * The collections can be read by any number of threads at the same time.
+ * Changes are made with "apply", which logs and makes each change while
+ * holding the locks for the names of the dog and owner it is about, so
+ * changes to the same dog or owner are made in the same order as they are
+ * logged, and replaying the log gives the same register. Changes to
+ * different names are logged and made at the same time; only giving the
+ * change its place in the log is done one at a time. Removing an owner also
+ * removes its dogs, so it holds all other changes back instead. Waiting for
+ * the log to reach the disk is done after the locks are released, so changes
+ * from different threads share syncs.
+ * <p>
+ * Dogs and owners are listed with "read", which reads the sorted views of
+ * the collections without taking a lock, the same way as an optimistic read
+ * of a StampedLock: the read is kept if no change was being made when it
+ * started and none started while it was made, and made again otherwise.
+ * A listing copies only the dogs and owners it lists, so listing the dogs
+ * with a long tail is still a range lookup. Readers don't hold changes back,
+ * unless changes keep spoiling the reads; the last read then holds changes
+ * back while it reads, so every listing is the register as it was at one
+ * point, never a mix of before and after a change. Checkpoints copy the whole
+ * register for the snapshot file the same way, on the checkpoint thread, and
+ * hold changes back if changes keep spoiling the copies.
+ */
+public class RegisterEngine {
+
+    // The number of times a snapshot is copied without holding changes back before giving up.
+    private static final int OPTIMISTIC_COPY_ATTEMPTS = 3;
+
+    // The number of times a listing is read without holding changes back before the last read holds them back.
+    // Each read reads the whole listing again, so only a few are made.
+    private static final int OPTIMISTIC_READ_ATTEMPTS = 4;
+
+    // The number of locks that the names of dogs and owners are spread over, a power of two.
+    private static final int NAME_LOCKS = 64;
+
+    private final DogCollection dogCollection;
+    private final OwnerCollection ownerCollection = new OwnerCollection();
+    private final RegisterOptions options;
+    private final PrintStream out;
+
+    // Read locked while logging and making a change together with the locks for its names,
+    // and write locked for changes that can't be made at the same time as others,
+    // and while a snapshot is copied that can't wait for changes to stop.
+    private final ReentrantReadWriteLock changeLock = new ReentrantReadWriteLock();
+    private final ReentrantLock[] nameLocks = new ReentrantLock[NAME_LOCKS];
+
+    // Counts the changes that have started and finished, so a read or copy can tell if a change
+    // was made while it was made, and the changes that were made, the version of the register.
+    private final AtomicLong startedChanges = new AtomicLong();
+    private final AtomicLong finishedChanges = new AtomicLong();
+    private final AtomicLong version = new AtomicLong();
+
+    private WriteAheadLog writeAheadLog;
+    private CheckpointScheduler checkpointScheduler;
+
+    // The LSN of the last logged change in the loaded snapshot.
+    private long snapshotLsn = 0;
+
+    /**
+     * Creates an engine.
+     *
+     * @param options the storage, snapshot and log options.
+     * @param out the stream to report loading, saving and checkpoints to.
+     */
+    public RegisterEngine(RegisterOptions options, PrintStream out) {
+        this.dogCollection = new DogCollection(options.getStorage());
+        this.options = options;
+        this.out = out;
+
+        for (int i = 0; i < NAME_LOCKS; i++) {
+            this.nameLocks[i] = new ReentrantLock();
+        }
+    }
+
+    public DogCollection getDogCollection() {
+        return this.dogCollection;
+    }
+
+    public OwnerCollection getOwnerCollection() {
+        return this.ownerCollection;
+    }
+
+    /**
+     * Loads the snapshot and replays the log, if there are any.
+     *
+     * @return true if the register is ready to use, false if the snapshot or log couldn't be loaded.
+     */
+    public boolean open() {
+        // Don't start with an empty register if the snapshot or log couldn't be loaded,
+        // since it would replace the snapshot when shutting down.
+        if (!loadSnapshot() || !openLog()) return false;
+
+        if (this.options.getSnapshotPath() != null) {
+            this.checkpointScheduler = new CheckpointScheduler(this.options.getSnapshotPath(), this.writeAheadLog, this::captureSnapshot,
+                    this.options.getCheckpointIntervalSeconds(), this.options.getCheckpointRecords(), this.out);
+        }
+
+        return true;
+    }
+
+    /**
+     * Logs and makes a change. Returns when the change is as durable as the sync policy makes it.
+     *
+     * @param record the change.
+     * @return true if the change was made, false if it didn't apply, such as adding a dog that is already registered.
+     * @throws IOException if the change couldn't be logged, with a message that can be shown to the user.
+     */
+    public boolean apply(LogRecord record) throws IOException {
+        return apply(record, true);
+    }
+
+    /**
+     * Logs and makes a change, and waits until it is as durable as the sync policy makes it, if asked to.
+     * A caller that doesn't wait must call "commit" before telling anyone that the change was made,
+     * so that many changes can share one wait.
+     *
+     * @param record the change.
+     * @param waitForCommit true to wait until the change is durable.
+     * @return true if the change was made, false if it didn't apply, such as adding a dog that is already registered.
+     * @throws IOException if the change couldn't be logged, with a message that can be shown to the user.
+     */
+    public boolean apply(LogRecord record, boolean waitForCommit) throws IOException {
+        // Removing an owner removes its dogs, which other changes may be about.
+        boolean alone = record.getOperation() == LogRecord.Operation.REMOVE_OWNER;
+        Lock lock = alone ? this.changeLock.writeLock() : this.changeLock.readLock();
+        int dogLock = alone ? -1 : nameLockIndex(record.getDogName());
+        int ownerLock = alone ? -1 : nameLockIndex(record.getOwnerName());
+
+        long lsn = 0;
+        lock.lock();
+        lockNames(dogLock, ownerLock);
+        this.startedChanges.incrementAndGet();
+        try {
+            if (this.writeAheadLog != null) {
+                try {
+                    lsn = this.writeAheadLog.append(record);
+                } catch (IOException e) {
+                    throw logFailure(e);
+                }
+            }
+
+            // A change that doesn't apply is still logged, and is skipped again when replayed.
+            if (!record.apply(this.dogCollection, this.ownerCollection)) return false;
+
+            this.version.incrementAndGet();
+        } finally {
+            this.finishedChanges.incrementAndGet();
+            unlockNames(dogLock, ownerLock);
+            lock.unlock();
+        }
+
+        if (this.writeAheadLog == null) return true;
+
+        this.checkpointScheduler.checkpointIfDue(lsn);
+        if (waitForCommit) commit(lsn);
+        return true;
+    }
+
+    /**
+     * Waits until every change made so far is as durable as the sync policy makes it.
+     *
+     * @throws IOException if the changes couldn't be logged, with a message that can be shown to the user.
+     */
+    public void commit() throws IOException {
+        if (this.writeAheadLog != null) commit(this.writeAheadLog.getLastLsn());
+    }
+
+    /**
+     * Imports a CSV or NDJSON file, see "RegisterImporter".
+     * The rows are logged and added in batches, and other changes are
+     * made between the batches. If a batch can't be logged the import
+     * stops, and the batches before it stay imported.
+     *
+     * @param path the file to import.
+     * @param importOut the stream to report the progress of the import to.
+     * @throws IOException if the file can't be read or a batch couldn't be logged,
+     *                     with a message that can be shown to the user.
+     */
+    public void importFile(Path path, PrintStream importOut) throws IOException {
+        try {
+            new RegisterImporter(this.dogCollection, this.ownerCollection, this::applyBatch, importOut).importFile(path);
+        } catch (UncheckedIOException e) {
+            // Already has a message for the user, from "logFailure".
+            throw e.getCause();
+        } catch (IOException e) {
+            throw new IOException("Error: " + path + " could not be read.", e);
+        }
+    }
+
+    /**
+     * Gets the version of the register, the number of changes that have been made.
+     *
+     * @return the version.
+     */
+    public long getVersion() {
+        return this.version.get();
+    }
+
+    /**
+     * Gets what the last checkpoint saved and how long it took, see "CheckpointScheduler".
+     *
+     * @return the report, or null if there is no snapshot file or no checkpoint has been written yet.
+     */
+    public CheckpointReport getLastCheckpoint() {
+        return this.checkpointScheduler == null ? null : this.checkpointScheduler.getLastCheckpoint();
+    }
+
+    /**
+     * Reads the register as it was at one point, without holding changes back
+     * unless changes keep spoiling the reads, see "RegisterEngine".
+     * The reader is called again if a change was made while it read, so it must
+     * not change anything, and must copy what it returns, such as with "copyDogs",
+     * since the dogs and owners themselves keep changing after the read.
+     *
+     * @param reader reads the collections.
+     * @return what the reader returned the last time it was called.
+     */
+    public <T> T read(Supplier<T> reader) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            long started = this.startedChanges.get();
+            if (this.finishedChanges.get() != started) {
+                // Changes only take microseconds, let them finish.
+                Thread.yield();
+                continue;
+            }
+
+            T result = reader.get();
+            if (this.startedChanges.get() == started) return result;
+        }
+
+        // Holds changes back the same way as a checkpoint that can't wait, see "captureAlone".
+        // Readers that get here also wait for each other, which is fine since it's rare.
+        this.changeLock.writeLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            this.changeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the dogs without their connections to the register, for a listing made with "read".
+     * The owner of a copy is a copy of the owner with only the copy of the dog.
+     *
+     * @param dogs the dogs to copy.
+     * @return the copies, in the same order.
+     */
+    public static List<Dog> copyDogs(Stream<Dog> dogs) {
+        return dogs.map(dog -> {
+            Dog copy = dog.copy();
+            Owner owner = dog.getOwner();
+            if (owner != null) copy.setOwner(owner.copy());
+            return copy;
+        }).toList();
+    }
+
+    /**
+     * Copies the owners and the dogs they own, for a listing made with "read".
+     *
+     * @param owners the owners to copy.
+     * @return the copies, in the same order.
+     */
+    public static List<Owner> copyOwners(Stream<Owner> owners) {
+        return owners.map(owner -> {
+            Owner copy = owner.copy();
+            for (Dog dog : owner.getDogs()) {
+                copy.addDog(dog.copy());
+            }
+            return copy;
+        }).toList();
+    }
+
+    /**
+     * Saves the register to the snapshot file, if there is one, and closes the log.
+     */
+    public void close() {
+        // A running checkpoint may need to hold changes back to copy the register.
+        if (this.checkpointScheduler != null) this.checkpointScheduler.close();
+
+        this.changeLock.writeLock().lock();
+        try {
+            if (this.checkpointScheduler != null) this.checkpointScheduler.checkpoint();
+
+            closeLog();
+        } finally {
+            this.changeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Helper method that logs and makes a batch of changes while holding all other changes back,
+     * and waits until the batch is as durable as the sync policy makes it, see "ImportTarget".
+     *
+     * @param records the changes in the batch.
+     * @param changes makes the changes.
+     */
+    private void applyBatch(List<LogRecord> records, Runnable changes) {
+        long lsn = 0;
+
+        this.changeLock.writeLock().lock();
+        this.startedChanges.incrementAndGet();
+        try {
+            if (this.writeAheadLog != null) {
+                try {
+                    lsn = this.writeAheadLog.append(records);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(logFailure(e));
+                }
+            }
+
+            changes.run();
+            this.version.incrementAndGet();
+        } finally {
+            this.finishedChanges.incrementAndGet();
+            this.changeLock.writeLock().unlock();
+        }
+
+        if (this.writeAheadLog == null) return;
+
+        this.checkpointScheduler.checkpointIfDue(lsn);
+        try {
+            commit(lsn);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Helper method that gets the index of the lock for a name of a dog or owner.
+     * Names that are the same dog or owner get the same lock.
+     *
+     * @param name the name, or null.
+     * @return the index of the lock, or -1 if the name is null.
+     */
+    private static int nameLockIndex(String name) {
+        if (name == null) return -1;
+
+        int hash = Utilities.toNameKey(Utilities.toTitleCase(name)).hashCode();
+        return (hash ^ (hash >>> 16)) & (NAME_LOCKS - 1);
+    }
+
+    /**
+     * Helper method that takes the locks with the indexes, in the order of the indexes,
+     * so two changes that need the same two locks can't wait for each other forever.
+     * An index of -1 is skipped.
+     */
+    private void lockNames(int first, int second) {
+        int low = Math.min(first, second);
+        int high = Math.max(first, second);
+
+        if (low != -1) this.nameLocks[low].lock();
+        if (high != -1 && high != low) this.nameLocks[high].lock();
+    }
+
+    /**
+     * Helper method that releases the locks taken by "lockNames".
+     */
+    private void unlockNames(int first, int second) {
+        int low = Math.min(first, second);
+        int high = Math.max(first, second);
+
+        if (high != -1 && high != low) this.nameLocks[high].unlock();
+        if (low != -1) this.nameLocks[low].unlock();
+    }
+
+    /**
+     * Helper method that copies the register without holding changes back.
+     * The copy is kept if no change was being made when it started and no change
+     * started while it was made, since the copy then matches the stamp read at the start.
+     *
+     * @param stamp gives what the copy matches, such as the version or the LSN of the last change.
+     * @param copier makes the copy, given the stamp.
+     * @return the copy, or null if changes spoiled every attempt.
+     */
+    private <T> T tryCapture(LongSupplier stamp, LongFunction<T> copier) {
+        for (int attempt = 0; attempt < OPTIMISTIC_COPY_ATTEMPTS; attempt++) {
+            long started = this.startedChanges.get();
+            if (this.finishedChanges.get() != started) {
+                // Changes only take microseconds, let them finish.
+                Thread.yield();
+                continue;
+            }
+
+            try {
+                T copy = copier.apply(stamp.getAsLong());
+                if (this.startedChanges.get() == started) return copy;
+            } catch (RuntimeException e) {
+                // Changed while it was copied, try again.
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Helper method that copies the register while holding all changes back.
+     *
+     * @param stamp gives what the copy matches, such as the version or the LSN of the last change.
+     * @param copier makes the copy, given the stamp.
+     * @return the copy.
+     */
+    private <T> T captureAlone(LongSupplier stamp, LongFunction<T> copier) {
+        this.changeLock.writeLock().lock();
+        try {
+            return copier.apply(stamp.getAsLong());
+        } finally {
+            this.changeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Helper method that copies the register for a checkpoint, together with the LSN
+     * of the last logged change, see "CheckpointScheduler".
+     *
+     * @return the snapshot.
+     */
+    private RegisterSnapshot captureSnapshot() {
+        LongSupplier lastLsn = () -> this.writeAheadLog == null ? 0 : this.writeAheadLog.getLastLsn();
+        LongFunction<RegisterSnapshot> copier = lsn -> RegisterSnapshot.capture(this.dogCollection, this.ownerCollection, lsn);
+
+        RegisterSnapshot snapshot = tryCapture(lastLsn, copier);
+        return snapshot != null ? snapshot : captureAlone(lastLsn, copier);
+    }
+
+    /**
+     * Loads the register from the snapshot file, if there is one.
+     *
+     * @return true if the snapshot was loaded or there was nothing to load, false if loading failed.
+     */
+    private boolean loadSnapshot() {
+        Path snapshotPath = this.options.getSnapshotPath();
+        if (snapshotPath == null || !Files.exists(snapshotPath)) return true;
+
+        try {
+            long startTime = System.nanoTime();
+            RegisterSnapshot snapshot = RegisterSnapshot.read(snapshotPath);
+            snapshot.restore(this.dogCollection, this.ownerCollection);
+            this.snapshotLsn = snapshot.getLsn();
+
+            this.out.printf("Loaded %d dogs and %d owners from %s in %.2f s.%n",
+                    snapshot.getDogCount(), snapshot.getOwnerCount(), snapshotPath, (System.nanoTime() - startTime) / 1e9);
+            return true;
+        } catch (IOException e) {
+            this.out.println(e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Opens the log file, if there is one, and replays the changes
+     * in it that aren't in the loaded snapshot.
+     *
+     * @return true if the log was opened or there is no log, false if opening or replaying failed.
+     */
+    private boolean openLog() {
+        Path logPath = this.options.getLogPath();
+        if (logPath == null) return true;
+
+        try {
+            long startTime = System.nanoTime();
+            this.writeAheadLog = WriteAheadLog.open(logPath, this.snapshotLsn, this.options.getSyncPolicy(), this.options.getSyncIntervalMillis());
+
+            if (this.writeAheadLog.getDiscardedBytes() > 0) {
+                this.out.printf("Removed %d bytes of an unfinished change from the end of %s.%n", this.writeAheadLog.getDiscardedBytes(), logPath);
+            }
+
+            int replayed = this.writeAheadLog.replay(this.snapshotLsn, record -> record.apply(this.dogCollection, this.ownerCollection));
+            if (replayed > 0) {
+                this.out.printf("Replayed %d changes from %s in %.2f s.%n", replayed, logPath, (System.nanoTime() - startTime) / 1e9);
+            }
+
+            return true;
+        } catch (IOException e) {
+            this.out.printf("Error: the log %s could not be read.%n", logPath);
+            return false;
+        }
+    }
+
+    /**
+     * Closes the log file, if there is one.
+     */
+    private void closeLog() {
+        if (this.writeAheadLog == null) return;
+
+        try {
+            this.writeAheadLog.close();
+        } catch (IOException e) {
+            this.out.printf("Error: the log %s could not be closed.%n", this.options.getLogPath());
+        }
+    }
+
+    /**
+     * Helper method that waits until the change with the LSN is durable.
+     */
+    private void commit(long lsn) throws IOException {
+        try {
+            this.writeAheadLog.commit(lsn);
+        } catch (IOException e) {
+            throw logFailure(e);
+        }
+    }
+
+    /**
+     * Helper method that creates the exception for a change that couldn't be logged.
+     */
+    private IOException logFailure(IOException cause) {
+        return new IOException("Error: the change could not be written to " + this.options.getLogPath() + ".", cause);
+    }
+}
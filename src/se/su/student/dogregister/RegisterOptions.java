@@ -0,0 +1,160 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister;
+import se.su.student.dogregister.collections.DogStorage;
+import se.su.student.dogregister.input.InputMode;
+import se.su.student.dogregister.persistence.SyncPolicy;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+
+/**
+ * Command line options for the dog register.
+ * Options:
+ * "--snapshot PATH" loads the register from the file when starting,
+ * if it exists, and saves the register to the file when shutting down.
+ * "--wal PATH" logs every change to the file, and replays the logged changes
+ * on top of the snapshot when starting, so changes survive a crash. Needs "--snapshot".
+ * "--sync every-op|interval|os" sets when the log is synced to disk, the default is every-op.
+ * "--sync-interval MS" sets the time between syncs for "--sync interval", the default is 100.
+ * "--checkpoint-interval S" sets the longest time between checkpoints while changes are
+ * being logged, the default is 300.
+ * "--checkpoint-records N" sets the number of logged changes that starts a checkpoint,
+ * the default is 100000.
+ * "--port N" serves the register to network clients on the TCP port instead of
+ * reading commands from the console, see "RegisterServer".
+ * "--bind ADDRESS" sets the address to listen on for "--port", the default is
+ * the loopback address, so only clients on the same machine can connect.
+ * "--input standard|fast" sets how commands are read, the default is standard,
+ * fast is for large scripts, see "InputMode".
+ * "--storage object|columnar" sets how the dogs are stored, the default is object, see "DogStorage".
+ */
+public class RegisterOptions {
+    private Path snapshotPath = null;
+    private Path logPath = null;
+    private SyncPolicy syncPolicy = SyncPolicy.EVERY_OP;
+    private long syncIntervalMillis = 100;
+    private long checkpointIntervalSeconds = 300;
+    private long checkpointRecords = 100_000;
+    private int port = 0;
+    private InetAddress bindAddress = InetAddress.getLoopbackAddress();
+    private InputMode inputMode = InputMode.STANDARD;
+    private DogStorage storage = DogStorage.OBJECT;
+
+    public Path getSnapshotPath() {
+        return this.snapshotPath;
+    }
+
+    public Path getLogPath() {
+        return this.logPath;
+    }
+
+    public SyncPolicy getSyncPolicy() {
+        return this.syncPolicy;
+    }
+
+    public long getSyncIntervalMillis() {
+        return this.syncIntervalMillis;
+    }
+
+    public long getCheckpointIntervalSeconds() {
+        return this.checkpointIntervalSeconds;
+    }
+
+    public long getCheckpointRecords() {
+        return this.checkpointRecords;
+    }
+
+    /**
+     * Gets the TCP port to serve the register on.
+     *
+     * @return the port, or 0 if the register is used from the console.
+     */
+    public int getPort() {
+        return this.port;
+    }
+
+    public InetAddress getBindAddress() {
+        return this.bindAddress;
+    }
+
+    public InputMode getInputMode() {
+        return this.inputMode;
+    }
+
+    public DogStorage getStorage() {
+        return this.storage;
+    }
+
+    /**
+     * Parses the command line arguments.
+     *
+     * @param args the command line arguments.
+     * @return the options.
+     * @throws IllegalArgumentException if an option is unknown or has an invalid value,
+     *                                  with a message that can be shown to the user.
+     */
+    public static RegisterOptions parse(String[] args) {
+        RegisterOptions options = new RegisterOptions();
+
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (!option.startsWith("--") || i + 1 == args.length) throw new IllegalArgumentException("Error: unknown option " + option + ".");
+            String value = args[++i];
+
+            try {
+                switch (option) {
+                    case "--snapshot" -> options.snapshotPath = Path.of(value);
+                    case "--wal" -> options.logPath = Path.of(value);
+                    case "--sync" -> options.syncPolicy = parseName(SyncPolicy.values(), value, option);
+                    case "--sync-interval" -> options.syncIntervalMillis = parsePositive(value);
+                    case "--checkpoint-interval" -> options.checkpointIntervalSeconds = parsePositive(value);
+                    case "--checkpoint-records" -> options.checkpointRecords = parsePositive(value);
+                    case "--port" -> options.port = parsePort(value);
+                    case "--bind" -> options.bindAddress = InetAddress.getByName(value);
+                    case "--input" -> options.inputMode = parseName(InputMode.values(), value, option);
+                    case "--storage" -> options.storage = parseName(DogStorage.values(), value, option);
+                    default -> throw new IllegalArgumentException("Error: unknown option " + option + ".");
+                }
+            } catch (NumberFormatException | InvalidPathException | UnknownHostException e) {
+                throw new IllegalArgumentException("Error: invalid value " + value + " for " + option + ".");
+            }
+        }
+
+        if (options.logPath != null && options.snapshotPath == null) throw new IllegalArgumentException("Error: --wal needs --snapshot.");
+
+        return options;
+    }
+
+    /**
+     * Helper method that parses the name of a constant written in lower case with dashes, such as "every-op".
+     */
+    private static <E extends Enum<E>> E parseName(E[] constants, String value, String option) {
+        for (E constant : constants) {
+            if (constant.name().replace('_', '-').equalsIgnoreCase(value)) return constant;
+        }
+
+        throw new IllegalArgumentException("Error: invalid value " + value + " for " + option + ".");
+    }
+
+    /**
+     * Helper method that parses a number that must be larger than zero.
+     */
+    private static long parsePositive(String value) {
+        long number = Long.parseLong(value);
+        if (number <= 0) throw new NumberFormatException();
+        return number;
+    }
+
+    /**
+     * Helper method that parses a TCP port, a number from 1 to 65535.
+     */
+    private static int parsePort(String value) {
+        long port = parsePositive(value);
+        if (port > 65535) throw new NumberFormatException();
+        return (int) port;
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister;
+import se.su.student.dogregister.input.InputMode;
+import se.su.student.dogregister.input.InputReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the dog register to clients over TCP.
+ * Each client gets its own "DogRegister" session with the same commands as
+ * the console, and all sessions share one "RegisterEngine". A session ends
+ * when the client sends the exit command or disconnects.
+ * <p>
+ * Each client is served on its own thread, which spends almost all its time
+ * waiting for the client to type. Virtual threads are used when the Java
+ * version has them, since thousands of waiting virtual threads cost next to
+ * nothing, otherwise platform threads are used.
+ */
+public class RegisterServer implements Closeable {
+
+    // The number of connections that may wait to be accepted.
+    private static final int BACKLOG = 1024;
+
+    // How long to wait before accepting again after accepting failed.
+    private static final long ACCEPT_RETRY_MILLIS = 50;
+
+    // How long closing waits for the sessions to end.
+    private static final long CLOSE_TIMEOUT_SECONDS = 5;
+
+    private final RegisterEngine engine;
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor;
+    private final PrintStream out;
+    private final InputMode inputMode;
+
+    // The clients that are connected, so they can be disconnected when closing.
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a server that listens on the address.
+     *
+     * @param engine the opened register to serve.
+     * @param address the address and port to listen on, port 0 picks a free port.
+     * @param out the stream to report errors to.
+     * @param inputMode how the commands of the clients are read.
+     * @throws IOException if the server can't listen on the address.
+     */
+    public RegisterServer(RegisterEngine engine, InetSocketAddress address, PrintStream out, InputMode inputMode) throws IOException {
+        this.engine = engine;
+        this.out = out;
+        this.inputMode = inputMode;
+        this.serverSocket = new ServerSocket(address.getPort(), BACKLOG, address.getAddress());
+        this.executor = newThreadPerClientExecutor();
+    }
+
+    /**
+     * Opens the register and serves it until the program is stopped,
+     * then closes the register.
+     *
+     * @param engine the register to open and serve.
+     * @param options the options with the port and address to listen on, and the input mode.
+     * @param out the stream to report to.
+     */
+    public static void run(RegisterEngine engine, RegisterOptions options, PrintStream out) {
+        if (!engine.open()) return;
+
+        RegisterServer server;
+        try {
+            server = new RegisterServer(engine, new InetSocketAddress(options.getBindAddress(), options.getPort()), out, options.getInputMode());
+        } catch (IOException e) {
+            out.printf("Error: could not listen on %s port %d.%n", options.getBindAddress().getHostAddress(), options.getPort());
+            engine.close();
+            return;
+        }
+
+        // The server runs until it's stopped, such as with Ctrl+C, and saves the register then.
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            engine.close();
+            out.println("Dog register shutting down");
+        }));
+
+        out.printf("Serving the dog register on %s port %d.%n", options.getBindAddress().getHostAddress(), server.getPort());
+        server.serve();
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return the port.
+     */
+    public int getPort() {
+        return this.serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts clients and starts a session for each one, until the server is closed.
+     */
+    public void serve() {
+        while (!this.serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = this.serverSocket.accept();
+            } catch (IOException e) {
+                // Thrown when the server is closed. Otherwise there may be no file descriptors
+                // left for the connection, so give the sessions a moment to end before trying again.
+                if (!this.serverSocket.isClosed()) pauseAccepting();
+                continue;
+            }
+
+            this.clients.add(socket);
+            try {
+                this.executor.execute(() -> serveClient(socket));
+            } catch (RejectedExecutionException e) {
+                // Accepted while the server was being closed.
+                closeQuietly(socket);
+                this.clients.remove(socket);
+            }
+        }
+    }
+
+    /**
+     * Stops accepting clients, disconnects the connected clients
+     * and waits for their sessions to end. Doesn't close the register.
+     */
+    @Override
+    public void close() {
+        try {
+            this.serverSocket.close();
+        } catch (IOException e) {
+            // Closing anyway.
+        }
+
+        for (Socket socket : this.clients) {
+            closeQuietly(socket);
+        }
+
+        this.executor.shutdown();
+        try {
+            if (!this.executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                this.out.println("Error: some sessions didn't end before the server was closed.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Helper method that runs a session for a client and disconnects it when the session ends.
+     *
+     * @param socket the connection to the client.
+     */
+    private void serveClient(Socket socket) {
+        InputReader inputReader = null;
+        PrintStream clientOut = null;
+
+        try {
+            ReplyBuffer replies = new ReplyBuffer(socket.getOutputStream(), this.engine);
+            clientOut = new PrintStream(replies);
+            inputReader = new InputReader(socket.getInputStream(), clientOut, this.inputMode);
+
+            new DogRegister(this.engine, inputReader, clientOut, replies).runSession();
+        } catch (NoSuchElementException | IOException e) {
+            // The client disconnected.
+        } finally {
+            if (inputReader != null) inputReader.release();
+            if (clientOut != null) clientOut.flush();
+
+            closeQuietly(socket);
+            this.clients.remove(socket);
+        }
+    }
+
+    /**
+     * Helper method that waits a moment after a client couldn't be accepted.
+     */
+    private static void pauseAccepting() {
+        try {
+            Thread.sleep(ACCEPT_RETRY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Helper method that closes a connection, ignoring errors since it's being closed anyway.
+     */
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed or broken.
+        }
+    }
+
+    /**
+     * Helper method that creates an executor that runs each client on its own thread.
+     * Uses virtual threads if the Java version has them, which is looked up by name
+     * so the register still runs on Java versions without them.
+     *
+     * @return the executor.
+     */
+    private static ExecutorService newThreadPerClientExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
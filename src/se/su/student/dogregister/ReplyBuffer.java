@@ -0,0 +1,118 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream for the replies to a network client, see "RegisterServer".
+ * Replies are sent through a buffer of a fixed size, so a long listing is sent
+ * while it's written instead of being kept whole. Only while a batch of one-line
+ * commands has changes that aren't committed are the replies held back, so the
+ * client never hears of a change that could be lost, see "DogRegister". If the
+ * held replies grow too large, the changes are committed early and the replies sent.
+ * <p>
+ * A stream is only used by the thread of its session, so it takes no locks.
+ */
+class ReplyBuffer extends OutputStream {
+
+    // The size of the buffer replies are sent through.
+    private static final int BUFFER_SIZE = 8192;
+
+    // The most replies to hold back before committing the changes early, in bytes.
+    private static final int MAX_HELD_SIZE = 1 << 16;
+
+    private final OutputStream clientOut;
+    private final RegisterEngine engine;
+
+    // The replies held back until the changes they tell of are committed, or null if none are.
+    private ByteArrayOutputStream heldReplies;
+
+    /**
+     * Creates a stream for the replies to a client.
+     *
+     * @param clientOut the stream to the client.
+     * @param engine the register that the client's changes are committed to.
+     */
+    ReplyBuffer(OutputStream clientOut, RegisterEngine engine) {
+        this.clientOut = new BufferedOutputStream(clientOut, BUFFER_SIZE);
+        this.engine = engine;
+    }
+
+    /**
+     * Holds the replies back from now on, until "sendHeldReplies" is called.
+     * Called when a change is made that isn't committed yet.
+     */
+    void holdReplies() {
+        if (this.heldReplies == null) this.heldReplies = new ByteArrayOutputStream(BUFFER_SIZE);
+    }
+
+    /**
+     * Sends the replies that were held back, and stops holding replies back.
+     * Called when the changes have been committed.
+     *
+     * @throws IOException if the replies couldn't be sent.
+     */
+    void sendHeldReplies() throws IOException {
+        if (this.heldReplies == null) return;
+
+        ByteArrayOutputStream replies = this.heldReplies;
+        this.heldReplies = null;
+        replies.writeTo(this.clientOut);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (this.heldReplies == null) {
+            this.clientOut.write(b);
+            return;
+        }
+
+        this.heldReplies.write(b);
+        if (this.heldReplies.size() > MAX_HELD_SIZE) commitHeldReplies();
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (this.heldReplies == null) {
+            this.clientOut.write(bytes, offset, length);
+            return;
+        }
+
+        this.heldReplies.write(bytes, offset, length);
+        if (this.heldReplies.size() > MAX_HELD_SIZE) commitHeldReplies();
+    }
+
+    /**
+     * Sends what has been written, except for the replies that are held back.
+     */
+    @Override
+    public void flush() throws IOException {
+        this.clientOut.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.clientOut.close();
+    }
+
+    /**
+     * Helper method that commits the changes so that the held replies can be sent.
+     * If the changes couldn't be committed, the held replies are thrown away,
+     * and the error is reported when the batch ends.
+     */
+    private void commitHeldReplies() throws IOException {
+        try {
+            this.engine.commit();
+        } catch (IOException e) {
+            this.heldReplies = null;
+            throw e;
+        }
+
+        sendHeldReplies();
+    }
+}
@@ -0,0 +1,253 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.collections;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import se.su.student.dogregister.data.Dog;
+
+/**
+ * Store that keeps the fields of the dogs in parallel arrays, one array per field.
+ * The dog in slot i has its age in ages[i], its weight in weights[i] and so on.
+ * Scans read the primitive arrays in order and only read the dog object of a dog
+ * that matches, so a scan that matches few dogs reads a few bytes per dog instead
+ * of following a reference to each dog and reading its whole object.
+ * <p>
+ * The dog objects are still kept, in their own column, since the owners and the
+ * sorted views of "DogCollection" hold the same objects. The index from name key
+ * to slot is an array of slots with linear probing, so there is no map entry per dog.
+ * Removing a dog moves the last dog into its slot, so the arrays never have gaps.
+ */
+class ColumnarDogStore implements DogStore {
+
+    // The smallest number of slots, the index has twice as many buckets.
+    private static final int INITIAL_CAPACITY = 16;
+
+    // The columns.
+    private int[] ages = new int[INITIAL_CAPACITY];
+    private int[] weights = new int[INITIAL_CAPACITY];
+    private double[] tailLengths = new double[INITIAL_CAPACITY];
+    private int[] breedIds = new int[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private String[] nameKeys = new String[INITIAL_CAPACITY];
+    private Dog[] dogs = new Dog[INITIAL_CAPACITY];
+    private int size = 0;
+
+    // Each bucket holds the slot of a dog plus one, or zero if it's empty. The length is a power of two.
+    private int[] index = new int[INITIAL_CAPACITY * 2];
+
+    @Override
+    public Dog get(String key) {
+        int bucket = findBucket(key, spread(key.hashCode()));
+        if (bucket == -1) return null;
+
+        return this.dogs[this.index[bucket] - 1];
+    }
+
+    @Override
+    public boolean add(String key, Dog dog) {
+        int hash = spread(key.hashCode());
+        if (findBucket(key, hash) != -1) return false;
+
+        if (this.size == this.dogs.length) increaseCapacity(this.dogs.length * 2);
+        if ((this.size + 1) * 2 > this.index.length) increaseIndexCapacity(this.index.length * 2);
+
+        int slot = this.size;
+        this.dogs[slot] = dog;
+        this.nameKeys[slot] = key;
+        this.hashes[slot] = hash;
+        writeFields(slot, dog);
+
+        insertIntoIndex(hash, slot);
+        this.size++;
+        return true;
+    }
+
+    @Override
+    public Dog remove(String key) {
+        int bucket = findBucket(key, spread(key.hashCode()));
+        if (bucket == -1) return null;
+
+        int slot = this.index[bucket] - 1;
+        Dog dog = this.dogs[slot];
+        removeFromIndex(bucket);
+
+        // Move the last dog into the empty slot.
+        int lastSlot = this.size - 1;
+        if (slot != lastSlot) {
+            this.index[findBucketOfSlot(lastSlot)] = slot + 1;
+            this.ages[slot] = this.ages[lastSlot];
+            this.weights[slot] = this.weights[lastSlot];
+            this.tailLengths[slot] = this.tailLengths[lastSlot];
+            this.breedIds[slot] = this.breedIds[lastSlot];
+            this.hashes[slot] = this.hashes[lastSlot];
+            this.nameKeys[slot] = this.nameKeys[lastSlot];
+            this.dogs[slot] = this.dogs[lastSlot];
+        }
+
+        this.nameKeys[lastSlot] = null;
+        this.dogs[lastSlot] = null;
+        this.size--;
+        return dog;
+    }
+
+    @Override
+    public void update(String key, Dog dog) {
+        int bucket = findBucket(key, spread(key.hashCode()));
+        if (bucket != -1) writeFields(this.index[bucket] - 1, dog);
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        if (capacity > this.dogs.length) increaseCapacity(Math.max(capacity, this.dogs.length * 2));
+
+        // The index is a power of two, at least twice as large as the number of dogs.
+        int bucketCount = this.index.length;
+        while (bucketCount < capacity * 2L) bucketCount *= 2;
+        if (bucketCount > this.index.length) increaseIndexCapacity(bucketCount);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public void scan(DogFilter filter, Consumer<Dog> action) {
+        int[] ages = this.ages;
+        int[] weights = this.weights;
+        double[] tailLengths = this.tailLengths;
+        int[] breedIds = this.breedIds;
+
+        for (int i = 0; i < this.size; i++) {
+            if (filter.test(ages[i], weights[i], tailLengths[i], breedIds[i])) action.accept(this.dogs[i]);
+        }
+    }
+
+    /**
+     * Helper method that copies the numeric fields of the dog into the columns.
+     *
+     * @param slot the slot of the dog.
+     * @param dog the dog to copy the fields from.
+     */
+    private void writeFields(int slot, Dog dog) {
+        this.ages[slot] = dog.getAge();
+        this.weights[slot] = dog.getWeight();
+        this.tailLengths[slot] = dog.getTailLength();
+        this.breedIds[slot] = dog.getBreedId();
+    }
+
+    /**
+     * Helper method that finds the index bucket of a name key.
+     *
+     * @param key the name key.
+     * @param hash the hash code of the name key, see "spread".
+     * @return the bucket of the name key if found, -1 otherwise.
+     */
+    private int findBucket(String key, int hash) {
+        int mask = this.index.length - 1;
+        for (int bucket = hash & mask; this.index[bucket] != 0; bucket = (bucket + 1) & mask) {
+            int slot = this.index[bucket] - 1;
+            if (this.hashes[slot] == hash && this.nameKeys[slot].equals(key)) return bucket;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Helper method that finds the index bucket that points to a slot.
+     *
+     * @param slot the slot to find.
+     * @return the bucket that points to the slot.
+     */
+    private int findBucketOfSlot(int slot) {
+        int mask = this.index.length - 1;
+        int bucket = this.hashes[slot] & mask;
+        while (this.index[bucket] != slot + 1) bucket = (bucket + 1) & mask;
+
+        return bucket;
+    }
+
+    /**
+     * Helper method that adds a slot to the index.
+     *
+     * @param hash the hash code of the name key of the dog.
+     * @param slot the slot of the dog.
+     */
+    private void insertIntoIndex(int hash, int slot) {
+        int mask = this.index.length - 1;
+        int bucket = hash & mask;
+        while (this.index[bucket] != 0) bucket = (bucket + 1) & mask;
+
+        this.index[bucket] = slot + 1;
+    }
+
+    /**
+     * Helper method that empties a bucket in the index.
+     * Entries after the removed one are shifted back so that
+     * no entry ends up behind an empty bucket in its probe sequence.
+     *
+     * @param emptyBucket the bucket to empty.
+     */
+    private void removeFromIndex(int emptyBucket) {
+        int mask = this.index.length - 1;
+
+        int bucket = (emptyBucket + 1) & mask;
+        while (this.index[bucket] != 0) {
+            int homeBucket = this.hashes[this.index[bucket] - 1] & mask;
+
+            // Move the entry back if the empty bucket lies between its home bucket and the entry.
+            if (((bucket - homeBucket) & mask) >= ((bucket - emptyBucket) & mask)) {
+                this.index[emptyBucket] = this.index[bucket];
+                emptyBucket = bucket;
+            }
+
+            bucket = (bucket + 1) & mask;
+        }
+
+        this.index[emptyBucket] = 0;
+    }
+
+    /**
+     * Helper method that mixes the bits of a hash code, so names that only differ
+     * at the end, such as "dog1" and "dog2", don't get neighbouring buckets and
+     * grow long runs of full buckets that every probe has to walk through.
+     *
+     * @param hash the hash code of a name key.
+     * @return the mixed hash code, which is what the columns and the index use.
+     */
+    private static int spread(int hash) {
+        int mixed = hash * 0x9E3779B9;
+        return mixed ^ (mixed >>> 16);
+    }
+
+    /**
+     * Helper method that increases the capacity of all columns.
+     *
+     * @param capacity the new capacity.
+     */
+    private void increaseCapacity(int capacity) {
+        this.ages = Arrays.copyOf(this.ages, capacity);
+        this.weights = Arrays.copyOf(this.weights, capacity);
+        this.tailLengths = Arrays.copyOf(this.tailLengths, capacity);
+        this.breedIds = Arrays.copyOf(this.breedIds, capacity);
+        this.hashes = Arrays.copyOf(this.hashes, capacity);
+        this.nameKeys = Arrays.copyOf(this.nameKeys, capacity);
+        this.dogs = Arrays.copyOf(this.dogs, capacity);
+    }
+
+    /**
+     * Helper method that increases the number of index buckets
+     * and adds all slots again into the new index.
+     *
+     * @param bucketCount the new number of buckets, a power of two.
+     */
+    private void increaseIndexCapacity(int bucketCount) {
+        this.index = new int[bucketCount];
+
+        for (int i = 0; i < this.size; i++) {
+            insertIntoIndex(this.hashes[i], i);
+        }
+    }
+}
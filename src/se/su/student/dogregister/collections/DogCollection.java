@@ -3,30 +3,183 @@
  */
 
 package se.su.student.dogregister.collections;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
-import java.util.stream.Collectors;
-import se.su.student.dogregister.comparators.DogTailNameComparator;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
 import se.su.student.dogregister.comparators.DogNameComparator;
 import se.su.student.dogregister.data.Dog;
+import se.su.student.dogregister.data.Owner;
 import se.su.student.dogregister.sorter.DogSorter;
+import se.su.student.dogregister.sorter.SortAlgorithm;
+import se.su.student.dogregister.util.Utilities;
 
 /**
  * Collection of dogs.
+ * Dogs are stored by their name key (see "Utilities.toNameKey"),
+ * so looking up, adding and removing a dog doesn't scan the collection.
+ * The collection also keeps the dogs sorted by name and by tail length and name,
+ * so listing the dogs never has to sort them. Dogs with at least a certain
+ * tail length are found with a range lookup in the tail length index.
+ * The sorted views can also be streamed lazily from a position, such as
+ * after the last dog of a page, which takes time proportional to the
+ * dogs that are read, not the dogs in the collection. The dogs of a breed
+ * and the dogs with a name prefix or a tail length range can be streamed
+ * the same way, which is what "QueryPlanner" chooses between, and the groups
+ * of the breed and tail length indexes keep count of their dogs, so the planner
+ * can tell how many dogs an index gives without reading them.
+ * How the dogs themselves are stored is chosen with "DogStorage"
+ * when the collection is created.
+ * <p>
+ * The collection can be shared between threads. Changes to a dog are made
+ * while holding the lock for its name key, so changes to different dogs
+ * usually don't wait for each other, and the sorted views are concurrent
+ * skip lists that are read without locking. A read that runs while dogs
+ * are changed may see some of the changes but not others.
+ * Adding a batch to an empty collection, or removing a large part of the
+ * collection, builds the sorted views again in one go, while every other
+ * change waits, see "addAll" and "removeAll".
  */
 public class DogCollection {
-    private final ArrayList<Dog> dogList = new ArrayList<>();
+
+    // Dogs by name key.
+    private final DogStore dogStore;
+
+    // The number of locks for name keys and for tail lengths, and of separately locked parts of a store that isn't thread-safe.
+    private static final int LOCK_STRIPES = 64;
+
+    // Sorted views of the dogs by name, the same order as "DogNameComparator", updated on every change.
+    // Only replaced by "addAll" when the collection is empty, and by "removeAll" for large batches.
+    private volatile ConcurrentSkipListMap<String, Dog> dogsByName = new ConcurrentSkipListMap<>();
+
+    // Dogs grouped by tail length, each group by name.
+    private volatile ConcurrentSkipListMap<Double, DogGroup> dogsByTail = new ConcurrentSkipListMap<>();
+
+    // Dogs grouped by breed id, each group by name.
+    // Groups are never removed, since breeds are never removed from the "BreedDictionary" either.
+    private final ConcurrentHashMap<Integer, DogGroup> dogsByBreed = new ConcurrentHashMap<>();
+
+    // Locks for changing a dog, by name key, and for changing a group in the tail length index, by tail length.
+    private final LockStripes nameLocks = new LockStripes(LOCK_STRIPES);
+    private final LockStripes tailLocks = new LockStripes(LOCK_STRIPES);
+
+    // A batch of at least this many dogs, and at least this fraction of the dogs in the list,
+    // is removed by building the sorted views again instead of removing the dogs from them one at a time.
+    private static final int MIN_REBUILD_BATCH = 1000;
+    private static final int REBUILD_FRACTION = 8;
+
+    // Read locked by every change to the sorted views, and write locked while "addAll" or "removeAll" replaces them.
+    private final ReentrantReadWriteLock viewsLock = new ReentrantReadWriteLock();
+
+    // Stands for this collection in the dogs it holds, so only this collection can age them, see "Dog.register".
+    private final Object registration = new Object();
+
+    public DogCollection() {
+        this(DogStorage.OBJECT);
+    }
+
+    public DogCollection(DogStorage storage) {
+        // Only the object store can be shared between threads as it is.
+        this.dogStore = switch (storage) {
+            case OBJECT -> new ObjectDogStore();
+            case COLUMNAR -> new StripedDogStore(LOCK_STRIPES, ColumnarDogStore::new);
+        };
+    }
 
     /**
      * Adds the dog to the list if it has a unique name.
+     * A dog that is already in a list, this one or another, isn't added.
      *
      * @param dog the dog to add to the list.
      * @return true if the dog was added, false otherwise.
      */
     public boolean addDog(Dog dog) {
-        if (containsDog(dog)) return false;
+        String key = Utilities.toNameKey(dog.getName());
 
-        this.dogList.add(dog);
-        return true;
+        this.viewsLock.readLock().lock();
+        try {
+            synchronized (this.nameLocks.forKey(key)) {
+                // Only add the dog if no dog with the same name key is present.
+                if (!dog.register(this.registration)) return false;
+                if (!this.dogStore.add(key, dog)) {
+                    dog.unregister(this.registration);
+                    return false;
+                }
+
+                this.dogsByName.put(dog.getName(), dog);
+                addToTailIndex(dog);
+                this.dogsByBreed.computeIfAbsent(dog.getBreedId(), breedId -> new DogGroup()).put(dog.getName(), dog);
+                return true;
+            }
+        } finally {
+            this.viewsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds all dogs with a unique name to the list.
+     * The dogs are validated in one pass before anything is added, and the store
+     * makes room for the whole batch at once instead of growing while adding.
+     * The dogs are added in name order, not in the order of the batch.
+     * Dogs with the name of a dog in the list, or of an earlier dog in the batch, are skipped.
+     * If the list is empty, such as when a register is loaded, the sorted views are
+     * built from the sorted batch in linear time instead of inserting one dog at a time,
+     * and other changes to the list wait until they are built.
+     *
+     * @param dogs the dogs to add to the list.
+     * @return the number of dogs that were added.
+     */
+    public int addAll(Collection<Dog> dogs) {
+        ArrayList<Dog> newDogs = new ArrayList<>(dogs.size());
+        HashSet<String> batchKeys = new HashSet<>();
+
+        for (Dog dog : dogs) {
+            String key = Utilities.toNameKey(dog.getName());
+            if (this.dogStore.get(key) != null || !batchKeys.add(key)) continue;
+
+            newDogs.add(dog);
+        }
+
+        this.dogStore.ensureCapacity(this.dogStore.size() + newDogs.size());
+
+        // Adding the dogs in name order makes neighbouring inserts into the name view
+        // follow the same path through the skip list, which is faster for large batches.
+        DogSorter.sortDogs(DogNameComparator.INSTANCE, newDogs, SortAlgorithm.MERGE);
+
+        if (isEmpty()) {
+            this.viewsLock.writeLock().lock();
+            try {
+                if (isEmpty()) return addAllToEmpty(newDogs);
+            } finally {
+                this.viewsLock.writeLock().unlock();
+            }
+        }
+
+        // Another thread may have added a dog with the same name since the validation.
+        int addedCount = 0;
+        for (Dog dog : newDogs) {
+            if (addDog(dog)) addedCount++;
+        }
+
+        return addedCount;
     }
 
     /**
@@ -37,17 +190,178 @@ public class DogCollection {
      * @return true if it was removed, false otherwise.
      */
     public boolean removeDog(String name) {
-        if (containsDog(name)) {
-            Dog dog = getDog(name);
+        String key = Utilities.toNameKey(name);
+
+        this.viewsLock.readLock().lock();
+        try {
+            synchronized (this.nameLocks.forKey(key)) {
+                Dog dog = this.dogStore.get(key);
+                if (dog == null) return false;
+
+                // If the dog has an owner, we shouldn't remove it from the list.
+                if (dog.getOwner() != null) return false;
+
+                removeFromStoreAndIndexes(key, dog);
+                return true;
+            }
+        } finally {
+            this.viewsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the dogs with the provided names that are present in the list.
+     * Dogs that have an owner are not removed, the same as for "removeDog".
+     * The names are validated in one pass before anything is removed, and the
+     * batch takes the lock for the sorted views once instead of once per dog.
+     * If the batch removes a large part of the list, the sorted views are built
+     * again from the dogs that are left in linear time instead of removing the
+     * dogs from them one at a time, and other changes to the list wait until they are built.
+     *
+     * @param names the names of the dogs to remove.
+     * @return the number of dogs that were removed.
+     */
+    public int removeAll(Collection<String> names) {
+        LinkedHashSet<String> keys = new LinkedHashSet<>();
+
+        for (String name : names) {
+            String key = Utilities.toNameKey(name);
+            Dog dog = this.dogStore.get(key);
+            if (dog != null && dog.getOwner() == null) keys.add(key);
+        }
+
+        if (keys.isEmpty()) return 0;
+
+        boolean rebuild = keys.size() >= MIN_REBUILD_BATCH && keys.size() >= size() / REBUILD_FRACTION;
+        Lock lock = rebuild ? this.viewsLock.writeLock() : this.viewsLock.readLock();
+
+        lock.lock();
+        try {
+            if (rebuild) return removeAllAndRebuild(keys);
+
+            int removedCount = 0;
+            for (String key : keys) {
+                synchronized (this.nameLocks.forKey(key)) {
+                    // Another thread may have removed the dog or given it an owner since the validation.
+                    Dog dog = this.dogStore.get(key);
+                    if (dog == null || dog.getOwner() != null) continue;
+
+                    removeFromStoreAndIndexes(key, dog);
+                    removedCount++;
+                }
+            }
+
+            return removedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives dogs in the list to owners in the provided owner collection.
+     * Each entry maps the name of a dog to the name of its new owner.
+     * An entry is skipped if the dog or the owner isn't registered,
+     * or if the dog already has an owner.
+     * The entries are validated in one pass before any dog is given away, and
+     * each owner is looked up once for the batch instead of once per dog.
+     * Ownerships aren't part of the sorted views, so there are no views to build again.
+     *
+     * @param dogOwners the names of the new owners by dog name.
+     * @param owners the owners to look up the owner names in.
+     * @return the number of dogs that got a new owner.
+     */
+    public int assignOwners(Map<String, String> dogOwners, OwnerCollection owners) {
+        HashMap<String, Owner> ownersByKey = new HashMap<>();
+        ArrayList<String> dogNames = new ArrayList<>(dogOwners.size());
+        ArrayList<Owner> newOwners = new ArrayList<>(dogOwners.size());
+
+        for (Map.Entry<String, String> entry : dogOwners.entrySet()) {
+            // Owners that aren't registered are remembered as null, so they aren't looked up again either.
+            String ownerKey = Utilities.toNameKey(entry.getValue());
+            if (!ownersByKey.containsKey(ownerKey)) ownersByKey.put(ownerKey, owners.getOwner(entry.getValue()));
+
+            Owner owner = ownersByKey.get(ownerKey);
+            if (owner == null) continue;
+
+            Dog dog = getDog(entry.getKey());
+            if (dog == null || dog.getOwner() != null) continue;
+
+            dogNames.add(entry.getKey());
+            newOwners.add(owner);
+        }
+
+        // Another thread may have changed a dog since the validation, which "giveDogToOwner" checks again.
+        int assignedCount = 0;
+        for (int i = 0; i < dogNames.size(); i++) {
+            if (giveDogToOwner(dogNames.get(i), newOwners.get(i))) assignedCount++;
+        }
+
+        return assignedCount;
+    }
+
+    /**
+     * Gives the dog with the provided name to the owner, if the dog doesn't have an owner.
+     * The dog can't be removed from the list while it's given away, so a dog that
+     * has been removed never gets an owner, see "Dog.setOwner" for the owner side.
+     *
+     * @param name the name of the dog.
+     * @param owner the new owner of the dog.
+     * @return true if the dog got the owner, false if the dog isn't in the list,
+     * already has an owner or the owner has been removed.
+     */
+    public boolean giveDogToOwner(String name, Owner owner) {
+        String key = Utilities.toNameKey(name);
 
-            // If the dog has an owner, we shouldn't remove it from the list.
-            if (dog.getOwner() != null) return false;
+        synchronized (this.nameLocks.forKey(key)) {
+            Dog dog = this.dogStore.get(key);
+            return dog != null && dog.getOwner() == null && dog.setOwner(owner);
+        }
+    }
 
-            this.dogList.remove(dog);
-            return true;
+    /**
+     * Takes the dog with the provided name from its owner.
+     *
+     * @param name the name of the dog.
+     * @return true if the dog had an owner, false if the dog isn't in the list or has no owner.
+     */
+    public boolean removeDogFromOwner(String name) {
+        String key = Utilities.toNameKey(name);
+
+        synchronized (this.nameLocks.forKey(key)) {
+            Dog dog = this.dogStore.get(key);
+            return dog != null && dog.setOwner(null);
         }
+    }
 
-        return false;
+    /**
+     * Removes all dogs owned by the owner from the list, and removes the owner from the dogs.
+     * Takes time proportional to the number of dogs the owner has,
+     * not the number of dogs in the list.
+     *
+     * @param owner the owner whose dogs to remove.
+     * @return the number of dogs that were removed from the list.
+     */
+    public int removeDogsOwnedBy(Owner owner) {
+        int removedCount = 0;
+
+        this.viewsLock.readLock().lock();
+        try {
+            for (Dog dog : owner.removeAllDogs()) {
+                String key = Utilities.toNameKey(dog.getName());
+
+                synchronized (this.nameLocks.forKey(key)) {
+                    // Only remove the dog if it's this exact dog that is in the list.
+                    if (this.dogStore.get(key) != dog) continue;
+
+                    removeFromStoreAndIndexes(key, dog);
+                    removedCount++;
+                }
+            }
+        } finally {
+            this.viewsLock.readLock().unlock();
+        }
+
+        return removedCount;
     }
 
     /**
@@ -87,32 +401,527 @@ public class DogCollection {
      * @return the dog if its present, null otherwise.
      */
     public Dog getDog(String name) {
-        for (Dog dog : this.dogList) {
-            if (dog.getName().equalsIgnoreCase(name)) return dog;
+        return this.dogStore.get(Utilities.toNameKey(name));
+    }
+
+    /**
+     * Increases the age of the dog with the provided name by one.
+     * The dog is taken out of the tail length index while its age
+     * changes, since the tail length depends on the age.
+     *
+     * @param name the name of the dog.
+     * @return true if the dog was found, false otherwise.
+     */
+    public boolean increaseAge(String name) {
+        String key = Utilities.toNameKey(name);
+
+        this.viewsLock.readLock().lock();
+        try {
+            synchronized (this.nameLocks.forKey(key)) {
+                Dog dog = this.dogStore.get(key);
+                if (dog == null) return false;
+
+                // Aged while holding the lock for its old tail length, so the group it
+                // is taken out of doesn't see a tail length it isn't sorted by.
+                synchronized (this.tailLocks.forKey(tailKey(dog.getTailLength()))) {
+                    removeFromTailIndex(dog);
+                    dog.increaseAge(this.registration);
+                }
+                addToTailIndex(dog);
+                this.dogStore.update(key, dog);
+                return true;
+            }
+        } finally {
+            this.viewsLock.readLock().unlock();
         }
+    }
+
+    /**
+     * Checks if there are no dogs in the list.
+     *
+     * @return true if the list is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return this.dogStore.size() == 0;
+    }
 
-        return null;
+    /**
+     * Gets the number of dogs in the list.
+     *
+     * @return the number of dogs.
+     */
+    public int size() {
+        return this.dogStore.size();
     }
 
     /**
-     * Gets all the dogs in the list sorted by tail length and name.
+     * Gets all the dogs in the list sorted by name.
      *
      * @return an unmodifiable copy of the list of dogs.
      */
     public ArrayList<Dog> getDogs() {
-        DogSorter.sortDogs(new DogNameComparator(), this.dogList);
-        return new ArrayList<>(this.dogList);
+        return new ArrayList<>(this.dogsByName.values());
+    }
+
+    /**
+     * Streams the dogs in the list sorted by name, lazily, so reading the first
+     * dogs doesn't copy the list. Doesn't wait for changes, a dog that is
+     * added or removed while the stream is read may or may not be in it.
+     *
+     * @param afterName the name to start after, or null to start with the first dog.
+     * @return a stream of the dogs.
+     */
+    public Stream<Dog> streamDogs(String afterName) {
+        if (afterName == null) return this.dogsByName.values().stream();
+        return this.dogsByName.tailMap(afterName, false).values().stream();
     }
 
     /**
-     * Gets all the dogs in the list with a larger tail length than the provided length.
+     * Gets all the dogs in the list with a larger tail length than the provided length,
+     * sorted by tail length and name.
      *
      * @param minTailLength the smallest tail length to filter out.
      * @return an unmodifiable copy of the dogs with a larger tail length.
      */
     public ArrayList<Dog> getDogsWithLongerTail(double minTailLength) {
-        DogSorter.sortDogs(new DogTailNameComparator(), this.dogList);
-        return new ArrayList<>(this.dogList.stream().filter(dog -> dog.getTailLength() >= minTailLength).collect(Collectors.toList()));
+        ArrayList<Dog> matches = new ArrayList<>();
+
+        // Only visit the groups with a long enough tail, in order of tail length.
+        for (DogGroup dogs : this.dogsByTail.tailMap(tailKey(minTailLength), true).values()) {
+            matches.addAll(dogs.values());
+        }
+
+        return matches;
+    }
+
+    /**
+     * Streams the dogs in the list whose name starts with the prefix, sorted by name,
+     * lazily, the same as "streamDogs".
+     *
+     * @param prefix the start of the names, which is case sensitive.
+     * @return a stream of the dogs.
+     */
+    public Stream<Dog> streamDogsWithNamePrefix(String prefix) {
+        return this.dogsByName.tailMap(prefix, true).entrySet().stream()
+                .takeWhile(entry -> entry.getKey().startsWith(prefix))
+                .map(Map.Entry::getValue);
+    }
+
+    /**
+     * Streams the dogs in the list of a breed, sorted by name, lazily, the same as "streamDogs".
+     *
+     * @param breedId the id of the breed in the "BreedDictionary".
+     * @return a stream of the dogs.
+     */
+    public Stream<Dog> streamDogsOfBreed(int breedId) {
+        DogGroup dogs = this.dogsByBreed.get(breedId);
+        if (dogs == null) return Stream.empty();
+
+        return dogs.values().stream();
     }
 
+    /**
+     * Counts the dogs in the list of a breed, from the count the breed index keeps,
+     * so it takes the same time for any number of dogs.
+     * The count may be off by the changes made while counting.
+     *
+     * @param breedId the id of the breed in the "BreedDictionary".
+     * @return the number of dogs of the breed.
+     */
+    public int countDogsOfBreed(int breedId) {
+        DogGroup dogs = this.dogsByBreed.get(breedId);
+        return dogs == null ? 0 : dogs.count();
+    }
+
+    /**
+     * Streams the dogs in the list with a tail length from the minimum up to and including
+     * the maximum, sorted by tail length and name, lazily, the same as "streamDogs".
+     *
+     * @param minTailLength the smallest tail length.
+     * @param maxTailLength the largest tail length.
+     * @return a stream of the dogs.
+     */
+    public Stream<Dog> streamDogsWithTailBetween(double minTailLength, double maxTailLength) {
+        if (!(minTailLength <= maxTailLength)) return Stream.empty();
+
+        return this.dogsByTail.subMap(tailKey(minTailLength), true, tailKey(maxTailLength), true).values().stream()
+                .flatMap(dogs -> dogs.values().stream());
+    }
+
+    /**
+     * Counts the dogs in the list with a tail length from the minimum up to and including
+     * the maximum, from the counts the tail length index keeps for each tail length,
+     * so it takes time proportional to the number of different tail lengths in the range.
+     * Stops once the count is larger than the limit. The count may be off by the changes
+     * made while counting.
+     *
+     * @param minTailLength the smallest tail length.
+     * @param maxTailLength the largest tail length.
+     * @param limit the count to stop after.
+     * @return the number of dogs, or a number larger than the limit if there are more dogs than that.
+     */
+    public long countDogsWithTailBetween(double minTailLength, double maxTailLength, long limit) {
+        if (!(minTailLength <= maxTailLength)) return 0;
+
+        long count = 0;
+        for (DogGroup dogs : this.dogsByTail.subMap(tailKey(minTailLength), true, tailKey(maxTailLength), true).values()) {
+            count += dogs.count();
+            if (count > limit) break;
+        }
+
+        return count;
+    }
+
+    /**
+     * Streams the dogs in the list with a larger tail length than the provided length,
+     * sorted by tail length and name, lazily, the same as "streamDogs".
+     *
+     * @param minTailLength the smallest tail length to filter out.
+     * @return a stream of the dogs with a larger tail length.
+     */
+    public Stream<Dog> streamDogsWithLongerTail(double minTailLength) {
+        return this.dogsByTail.tailMap(tailKey(minTailLength), true).values().stream()
+                .flatMap(dogs -> dogs.values().stream());
+    }
+
+    /**
+     * Streams the dogs in the list that come after a position in the order of
+     * "streamDogsWithLongerTail", lazily, such as the dogs after the last dog of a page.
+     * The position doesn't have to be a dog in the list.
+     *
+     * @param tailLength the tail length of the position.
+     * @param name the name of the position.
+     * @return a stream of the dogs with the same tail length and a later name,
+     * and then the dogs with a larger tail length.
+     */
+    public Stream<Dog> streamDogsAfter(double tailLength, String name) {
+        double key = tailKey(tailLength);
+        ConcurrentSkipListMap<Double, DogGroup> dogsByTail = this.dogsByTail;
+        DogGroup sameTail = dogsByTail.get(key);
+
+        Stream<Dog> longerTails = dogsByTail.tailMap(key, false).values().stream()
+                .flatMap(dogs -> dogs.values().stream());
+        if (sameTail == null) return longerTails;
+
+        return Stream.concat(sameTail.tailMap(name, false).values().stream(), longerTails);
+    }
+
+    /**
+     * Gets all the dogs in the list that match the filter, sorted by name.
+     * Scans every dog in the list, so use the sorted views when they can answer the question.
+     *
+     * @param filter the filter the dogs have to match.
+     * @return a copy of the dogs that match the filter.
+     */
+    public ArrayList<Dog> getDogsMatching(DogFilter filter) {
+        ArrayList<Dog> matches = new ArrayList<>();
+        this.dogStore.scan(filter, matches::add);
+
+        DogSorter.sortDogs(DogNameComparator.INSTANCE, matches, SortAlgorithm.MERGE);
+        return matches;
+    }
+
+    /**
+     * Helper method that adds a batch to an empty list and builds the sorted views from it.
+     * Must be called while holding the write lock for the views.
+     *
+     * @param newDogs the dogs to add, sorted by name, with unique name keys.
+     * @return the number of dogs that were added.
+     */
+    private int addAllToEmpty(ArrayList<Dog> newDogs) {
+        ArrayList<Dog> addedDogs = new ArrayList<>(newDogs.size());
+
+        for (Dog dog : newDogs) {
+            if (!dog.register(this.registration)) continue;
+
+            if (this.dogStore.add(Utilities.toNameKey(dog.getName()), dog)) addedDogs.add(dog);
+            else dog.unregister(this.registration);
+        }
+
+        replaceViews(addedDogs);
+        return addedDogs.size();
+    }
+
+    /**
+     * Helper method that removes a batch of dogs from the store and builds the sorted views
+     * again from the dogs that are left. Must be called while holding the write lock for the views.
+     *
+     * @param keys the name keys of the dogs to remove.
+     * @return the number of dogs that were removed.
+     */
+    private int removeAllAndRebuild(Set<String> keys) {
+        Set<Dog> removedDogs = Collections.newSetFromMap(new IdentityHashMap<>(keys.size()));
+
+        for (String key : keys) {
+            synchronized (this.nameLocks.forKey(key)) {
+                // Dogs can still be given owners, which doesn't change the views.
+                Dog dog = this.dogStore.get(key);
+                if (dog == null || dog.getOwner() != null) continue;
+
+                this.dogStore.remove(key);
+                dog.unregister(this.registration);
+                removedDogs.add(dog);
+            }
+        }
+
+        if (removedDogs.isEmpty()) return 0;
+
+        // The name view is already sorted, so the dogs that are left stay sorted by name.
+        ArrayList<Dog> remainingDogs = new ArrayList<>(size());
+        for (Dog dog : this.dogsByName.values()) {
+            if (!removedDogs.contains(dog)) remainingDogs.add(dog);
+        }
+
+        replaceViews(remainingDogs);
+        return removedDogs.size();
+    }
+
+    /**
+     * Helper method that builds all sorted views from a list of dogs sorted by name,
+     * in linear time apart from sorting the tail lengths, and replaces the old views.
+     * Must be called while holding the write lock for the views.
+     *
+     * @param dogs the dogs in the list, sorted by name.
+     */
+    private void replaceViews(List<Dog> dogs) {
+        HashMap<Double, ArrayList<Dog>> tailGroups = new HashMap<>();
+        HashMap<Integer, ArrayList<Dog>> breedGroups = new HashMap<>();
+
+        // The groups get the dogs in name order, since the list is sorted by name.
+        for (Dog dog : dogs) {
+            tailGroups.computeIfAbsent(tailKey(dog.getTailLength()), tailLength -> new ArrayList<>()).add(dog);
+            breedGroups.computeIfAbsent(dog.getBreedId(), breedId -> new ArrayList<>()).add(dog);
+        }
+
+        ArrayList<Double> tailLengths = new ArrayList<>(tailGroups.keySet());
+        tailLengths.sort(Comparator.naturalOrder());
+
+        ConcurrentSkipListMap<Double, DogGroup> newDogsByTail = new ConcurrentSkipListMap<>();
+        for (Double tailLength : tailLengths) {
+            newDogsByTail.put(tailLength, new DogGroup(new SortedDogs(tailGroups.get(tailLength))));
+        }
+
+        // Breed groups are never removed, so a breed without dogs gets an empty group.
+        for (Integer breedId : this.dogsByBreed.keySet()) {
+            breedGroups.putIfAbsent(breedId, new ArrayList<>());
+        }
+
+        for (Map.Entry<Integer, ArrayList<Dog>> group : breedGroups.entrySet()) {
+            this.dogsByBreed.put(group.getKey(), new DogGroup(new SortedDogs(group.getValue())));
+        }
+
+        this.dogsByName = new ConcurrentSkipListMap<>(new SortedDogs(dogs));
+        this.dogsByTail = newDogsByTail;
+    }
+
+    /**
+     * Helper method that removes the dog from the store and the sorted views.
+     * Must be called while holding the lock for the name key.
+     *
+     * @param key the name key of the dog.
+     * @param dog the dog to remove.
+     */
+    private void removeFromStoreAndIndexes(String key, Dog dog) {
+        this.dogStore.remove(key);
+        dog.unregister(this.registration);
+        this.dogsByName.remove(dog.getName());
+        removeFromTailIndex(dog);
+        this.dogsByBreed.get(dog.getBreedId()).remove(dog.getName());
+    }
+
+    /**
+     * Helper method that adds the dog to the group for its tail length.
+     * The group is changed while holding the lock for the tail length,
+     * so a group isn't removed for being empty while a dog is added to it.
+     *
+     * @param dog the dog to add.
+     */
+    private void addToTailIndex(Dog dog) {
+        double key = tailKey(dog.getTailLength());
+
+        synchronized (this.tailLocks.forKey(key)) {
+            this.dogsByTail.computeIfAbsent(key, tailLength -> new DogGroup()).put(dog.getName(), dog);
+        }
+    }
+
+    /**
+     * Helper method that removes the dog from the group for its tail length.
+     * Removes the group if it becomes empty.
+     *
+     * @param dog the dog to remove.
+     * @throws IllegalStateException if the dog isn't in the group for its tail length,
+     *                               which means its tail length changed outside the collection.
+     */
+    private void removeFromTailIndex(Dog dog) {
+        double key = tailKey(dog.getTailLength());
+
+        synchronized (this.tailLocks.forKey(key)) {
+            DogGroup dogs = this.dogsByTail.get(key);
+            if (dogs == null || dogs.remove(dog.getName()) == null) {
+                throw new IllegalStateException("Error: " + dog.getName() + " isn't in the tail length index for " + key + ".");
+            }
+
+            if (dogs.isEmpty()) this.dogsByTail.remove(key);
+        }
+    }
+
+    /**
+     * Helper method that converts a tail length to a key in the tail length index.
+     * Adding zero turns -0.0 into 0.0, since the index orders -0.0 before 0.0.
+     *
+     * @param tailLength the tail length.
+     * @return the key for the tail length.
+     */
+    private static double tailKey(double tailLength) {
+        return tailLength + 0.0;
+    }
+
+    /**
+     * Group of dogs in the breed or tail length index, sorted by name, that counts its dogs.
+     * The "size" of a concurrent skip list walks the whole list, while the count is kept
+     * as dogs are put and removed, which only happens one dog at a time in this collection.
+     */
+    private static class DogGroup extends ConcurrentSkipListMap<String, Dog> {
+        private final AtomicInteger count;
+
+        DogGroup() {
+            this.count = new AtomicInteger();
+        }
+
+        DogGroup(SortedMap<String, Dog> dogs) {
+            super(dogs);
+            this.count = new AtomicInteger(dogs.size());
+        }
+
+        int count() {
+            return this.count.get();
+        }
+
+        @Override
+        public Dog put(String name, Dog dog) {
+            Dog previous = super.put(name, dog);
+            if (previous == null) this.count.incrementAndGet();
+            return previous;
+        }
+
+        @Override
+        public Dog remove(Object name) {
+            Dog removed = super.remove(name);
+            if (removed != null) this.count.decrementAndGet();
+            return removed;
+        }
+    }
+
+    /**
+     * Read-only map from name to dog over a list of dogs that is sorted by name,
+     * for building a sorted view with the sorted map constructor of
+     * "ConcurrentSkipListMap", which reads the entries in order in linear time.
+     * Keys are found with a binary search, and the sub maps are views of parts of the list.
+     */
+    private static class SortedDogs extends AbstractMap<String, Dog> implements SortedMap<String, Dog> {
+        private final List<Dog> dogs;
+
+        SortedDogs(List<Dog> dogs) {
+            this.dogs = dogs;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Dog>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<String, Dog>> iterator() {
+                    Iterator<Dog> dogIterator = SortedDogs.this.dogs.iterator();
+
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return dogIterator.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<String, Dog> next() {
+                            Dog dog = dogIterator.next();
+                            return new AbstractMap.SimpleImmutableEntry<>(dog.getName(), dog);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return SortedDogs.this.dogs.size();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return this.dogs.size();
+        }
+
+        @Override
+        public Dog get(Object key) {
+            if (!(key instanceof String name)) return null;
+
+            int index = indexOf(name);
+            if (index == this.dogs.size() || !this.dogs.get(index).getName().equals(name)) return null;
+            return this.dogs.get(index);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Comparator<? super String> comparator() {
+            // Sorted by the natural order of the names, the same as "DogNameComparator".
+            return null;
+        }
+
+        @Override
+        public String firstKey() {
+            if (this.dogs.isEmpty()) throw new NoSuchElementException();
+            return this.dogs.get(0).getName();
+        }
+
+        @Override
+        public String lastKey() {
+            if (this.dogs.isEmpty()) throw new NoSuchElementException();
+            return this.dogs.get(this.dogs.size() - 1).getName();
+        }
+
+        @Override
+        public SortedMap<String, Dog> subMap(String fromKey, String toKey) {
+            if (fromKey.compareTo(toKey) > 0) throw new IllegalArgumentException("fromKey > toKey");
+            return new SortedDogs(this.dogs.subList(indexOf(fromKey), indexOf(toKey)));
+        }
+
+        @Override
+        public SortedMap<String, Dog> headMap(String toKey) {
+            return new SortedDogs(this.dogs.subList(0, indexOf(toKey)));
+        }
+
+        @Override
+        public SortedMap<String, Dog> tailMap(String fromKey) {
+            return new SortedDogs(this.dogs.subList(indexOf(fromKey), this.dogs.size()));
+        }
+
+        /**
+         * Helper method that finds the index of the first dog whose name isn't before the name.
+         *
+         * @param name the name.
+         * @return the index, or the size of the list if all names are before it.
+         */
+        private int indexOf(String name) {
+            int low = 0;
+            int high = this.dogs.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (this.dogs.get(middle).getName().compareTo(name) < 0) low = middle + 1;
+                else high = middle;
+            }
+
+            return low;
+        }
+    }
 }
@@ -0,0 +1,25 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.collections;
+
+/**
+ * Filter for scanning the dogs in a "DogCollection".
+ * Gets the numeric fields of a dog instead of the dog itself,
+ * so a store that keeps the fields in columns or records can test a dog without reading the dog object.
+ */
+@FunctionalInterface
+public interface DogFilter {
+
+    /**
+     * Tests if a dog should be part of the result.
+     *
+     * @param age the age of the dog.
+     * @param weight the weight of the dog.
+     * @param tailLength the tail length of the dog.
+     * @param breedId the id of the breed of the dog in the "BreedDictionary".
+     * @return true if the dog matches, false otherwise.
+     */
+    boolean test(int age, int weight, double tailLength, int breedId);
+}
@@ -0,0 +1,18 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.collections;
+
+/**
+ * The ways a "DogCollection" can store its dogs.
+ */
+public enum DogStorage {
+
+    // Dogs in a map from name key to dog. Scans read each dog object.
+    OBJECT,
+
+    // Dogs in parallel primitive arrays, one array per field, and an index from name key to slot.
+    // Scans read the arrays in order and only read the dog objects that match.
+    COLUMNAR
+}
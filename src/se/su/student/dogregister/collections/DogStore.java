@@ -0,0 +1,77 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.collections;
+import java.util.function.Consumer;
+import se.su.student.dogregister.data.Dog;
+
+/**
+ * Storage behind a "DogCollection".
+ * Dogs are stored by their name key (see "Utilities.toNameKey").
+ * <p>
+ * A store may keep its own copy of the fields the filters of "scan" read, as
+ * "ColumnarDogStore" does, so the copy is only right if every change to a stored
+ * dog is followed by "update". The age is the only field of a dog that changes,
+ * and only "DogCollection.increaseAge" can change it for a dog in a collection,
+ * since a dog can only be aged by the collection it's registered in.
+ */
+interface DogStore {
+
+    /**
+     * Gets the dog with the provided name key.
+     *
+     * @param key the name key of the dog.
+     * @return the dog if its present, null otherwise.
+     */
+    Dog get(String key);
+
+    /**
+     * Adds the dog if no dog with the same name key is present.
+     *
+     * @param key the name key of the dog.
+     * @param dog the dog to add.
+     * @return true if the dog was added, false otherwise.
+     */
+    boolean add(String key, Dog dog);
+
+    /**
+     * Removes the dog with the provided name key.
+     *
+     * @param key the name key of the dog.
+     * @return the removed dog if it was present, null otherwise.
+     */
+    Dog remove(String key);
+
+    /**
+     * Updates the stored fields of a dog after its age has changed.
+     * Must be called after every change, or scans filter on the old fields.
+     *
+     * @param key the name key of the dog.
+     * @param dog the dog that has changed.
+     */
+    void update(String key, Dog dog);
+
+    /**
+     * Makes room for at least the provided number of dogs,
+     * so adding up to that many dogs doesn't have to grow the store.
+     *
+     * @param capacity the number of dogs to make room for.
+     */
+    void ensureCapacity(int capacity);
+
+    /**
+     * Gets the number of dogs in the store.
+     *
+     * @return the number of dogs.
+     */
+    int size();
+
+    /**
+     * Gives every dog that matches the filter to the action.
+     *
+     * @param filter the filter the dogs have to match.
+     * @param action the action to give the matching dogs to.
+     */
+    void scan(DogFilter filter, Consumer<Dog> action);
+}
@@ -0,0 +1,39 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.collections;
+
+/**
+ * Fixed set of locks that keys are spread over by their hash code.
+ * Changes to the same key always use the same lock and are made one at a time,
+ * while changes to different keys usually use different locks and can be made
+ * at the same time.
+ */
+class LockStripes {
+    private final Object[] locks;
+
+    /**
+     * Creates the locks.
+     *
+     * @param count the number of locks, a power of two.
+     */
+    LockStripes(int count) {
+        this.locks = new Object[count];
+        for (int i = 0; i < count; i++) {
+            this.locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Gets the lock for a key.
+     *
+     * @param key the key.
+     * @return the lock to synchronize on while changing the key.
+     */
+    Object forKey(Object key) {
+        // Mix in the high bits, since only the low bits pick the lock.
+        int hash = key.hashCode();
+        return this.locks[(hash ^ (hash >>> 16)) & (this.locks.length - 1)];
+    }
+}
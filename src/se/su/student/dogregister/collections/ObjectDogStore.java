@@ -0,0 +1,54 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import se.su.student.dogregister.data.Dog;
+
+/**
+ * Store that keeps the dogs in a concurrent map from name key to dog.
+ * Lookups don't lock, and changes only lock the part of the map the key is in,
+ * so the store can be shared between threads as it is.
+ */
+class ObjectDogStore implements DogStore {
+    private final ConcurrentHashMap<String, Dog> dogMap = new ConcurrentHashMap<>();
+
+    @Override
+    public Dog get(String key) {
+        return this.dogMap.get(key);
+    }
+
+    @Override
+    public boolean add(String key, Dog dog) {
+        return this.dogMap.putIfAbsent(key, dog) == null;
+    }
+
+    @Override
+    public Dog remove(String key) {
+        return this.dogMap.remove(key);
+    }
+
+    @Override
+    public void update(String key, Dog dog) {
+        // The dog object is the stored record, so there is nothing to update.
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        // The map grows when needed, growing it ahead of time doesn't make adding faster.
+    }
+
+    @Override
+    public int size() {
+        return this.dogMap.size();
+    }
+
+    @Override
+    public void scan(DogFilter filter, Consumer<Dog> action) {
+        for (Dog dog : this.dogMap.values()) {
+            if (filter.test(dog.getAge(), dog.getWeight(), dog.getTailLength(), dog.getBreedId())) action.accept(dog);
+        }
+    }
+}
@@ -4,62 +4,178 @@
 
 package se.su.student.dogregister.collections;
 import se.su.student.dogregister.data.Owner;
+import se.su.student.dogregister.util.Utilities;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
 
 /**
  * Collection of owners.
  * As of assignment instructions,
  * not allowed to use any collection except array.
- * Except for return value of getOwners() which returns a List.
+ * Except for return value of getOwners() which returns a List,
+ * and the sorted view of the owners which is a ConcurrentSkipListSet so
+ * that listing the owners never has to sort them or take the lock.
+ * <p>
+ * Owners are kept in the first "ownerCount" slots of an array that
+ * doubles its capacity when it's full. To find the slot of an owner
+ * without scanning the array, the collection keeps a hash index from
+ * name key (see "Utilities.toNameKey") to slot, using linear probing
+ * in two parallel arrays.
+ * <p>
+ * The collection can be shared between threads. Changes take the write
+ * lock of a StampedLock. Looking up an owner first reads the arrays
+ * without locking and checks afterwards that no change was made meanwhile,
+ * and only reads again with the read lock if one was, so lookups don't
+ * wait for each other and rarely wait for changes. The sorted view can
+ * be read without the lock at all.
  */
 public class OwnerCollection {
 
-    // Initialize the array with zero objects.
-    private Owner[] ownerArray = new Owner[0];
+    // The smallest capacity of the owner array and the index.
+    private static final int INITIAL_CAPACITY = 8;
+
+    // Initialize the array with a few empty slots.
+    private Owner[] ownerArray = new Owner[INITIAL_CAPACITY];
+    private int ownerCount = 0;
+
+    // Hash index from name key to slot in the owner array.
+    // An empty bucket has a null key. Always at least twice as large as the number of owners.
+    private String[] indexKeys = new String[INITIAL_CAPACITY * 2];
+    private int[] indexSlots = new int[INITIAL_CAPACITY * 2];
+
+    // Owners sorted by name, updated on every change.
+    private final ConcurrentSkipListSet<Owner> ownersByName = new ConcurrentSkipListSet<>();
+
+    // Guards all the fields above, except that the sorted view can be read without it.
+    private final StampedLock lock = new StampedLock();
 
     /**
      * Add a new owner to the array if it's not present.
-     * Increase the array size by one, and add the new owner to
-     * the end of the array. This way no values are null.
+     * Doubles the array size if it's full, and adds the
+     * new owner after the last owner in the array.
      *
      * @param owner the owner to add.
      * @return true if the owner was added, false otherwise.
      */
     public boolean addOwner(Owner owner) {
-        if (containsOwner(owner)) return false;
+        long stamp = lock.writeLock();
+        try {
+            return addOwnerLocked(owner);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Helper method that adds an owner while holding the write lock.
+     *
+     * @param owner the owner to add.
+     * @return true if the owner was added, false otherwise.
+     */
+    private boolean addOwnerLocked(Owner owner) {
+        String key = Utilities.toNameKey(owner.getName());
+        if (findBucket(key) != -1) return false;
+
+        if (ownerCount == ownerArray.length) increaseArrayLength();
 
-        increaseArrayLength();
-        ownerArray[ownerArray.length - 1] = owner;
+        ownerArray[ownerCount] = owner;
+        putIndex(key, ownerCount);
+        ownerCount++;
+        ownersByName.add(owner);
         return true;
     }
 
+    /**
+     * Add all owners that are not present to the array.
+     * The array and the index are grown once for the whole batch
+     * instead of doubling while adding. Owners with the name of an
+     * owner in the array, or of an earlier owner in the batch, are skipped.
+     *
+     * @param owners the owners to add.
+     * @return the number of owners that were added.
+     */
+    public int addAll(Collection<Owner> owners) {
+        long stamp = lock.writeLock();
+        try {
+            int capacity = ownerCount + owners.size();
+            if (capacity > ownerArray.length) ownerArray = Arrays.copyOf(ownerArray, capacity);
+
+            int indexLength = indexKeys.length;
+            while (indexLength < capacity * 2) indexLength *= 2;
+            if (indexLength > indexKeys.length) increaseIndexLength(indexLength);
+
+            int addedCount = 0;
+            for (Owner owner : owners) {
+                if (addOwnerLocked(owner)) addedCount++;
+            }
+
+            return addedCount;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
     /**
      * Remove an owner if its present in the array.
      * If the owner owns any dogs, it's not remove from the array.
-     * Reduces the array size by one, and removes the
-     * owner at the index. Owners with higher indexes
-     * than the removed owners are shifted one index down.
+     * A removed owner can't be given any more dogs, see "Owner.deregister".
+     * The last owner in the array is moved into the
+     * slot of the removed owner, so no owners have to be shifted.
      *
      * @param name the name of the owner to remove.
      * @return true if it was removed, false otherwise.
      */
     public boolean removeOwner(String name) {
-        int ownerIndex = getOwnerIndex(name);
-        if (ownerIndex == -1) return false;
+        long stamp = lock.writeLock();
+        try {
+            int ownerIndex = getOwnerIndex(name);
+            if (ownerIndex == -1) return false;
 
-        // If the owner has any dogs, we shouldn't remove it from the array.
-        if (!getOwner(name).getDogs().isEmpty()) return false;
+            // If the owner has any dogs, we shouldn't remove it from the array.
+            if (!ownerArray[ownerIndex].deregister()) return false;
 
-        reduceArrayLength(ownerIndex);
-        return true;
+            removeAt(ownerIndex);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove all owners with the provided names that are present in the array.
+     * Owners that own any dogs are not removed, the same as for "removeOwner".
+     * The whole batch is removed while holding the write lock once.
+     *
+     * @param names the names of the owners to remove.
+     * @return the number of owners that were removed.
+     */
+    public int removeAll(Collection<String> names) {
+        long stamp = lock.writeLock();
+        try {
+            int removedCount = 0;
+
+            for (String name : names) {
+                int ownerIndex = getOwnerIndex(name);
+                if (ownerIndex == -1 || !ownerArray[ownerIndex].deregister()) continue;
+
+                removeAt(ownerIndex);
+                removedCount++;
+            }
+
+            return removedCount;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
 
     /**
      * Remove an owner if its present in the array.
-     * Reduces the array size by one, and removes the
-     * owner at the index. Owners with higher indexes
-     * than the removed owners are shifted one index down.
+     * The last owner in the array is moved into the
+     * slot of the removed owner, so no owners have to be shifted.
      *
      * @param owner the owner to remove.
      * @return true if it was removed, false otherwise.
@@ -95,38 +211,90 @@ public class OwnerCollection {
      * @return the owner if it was found, null otherwise.
      */
     public Owner getOwner(String name) {
-        int ownerIndex = getOwnerIndex(name);
-        if (ownerIndex == -1) return null;
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                Owner owner = findOwner(name);
+                if (lock.validate(stamp)) return owner;
+            } catch (RuntimeException e) {
+                // The arrays changed while they were read, read them again with the lock.
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return findOwner(name);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
 
-        return ownerArray[ownerIndex];
+    /**
+     * Checks if there are no owners in the array.
+     *
+     * @return true if there are no owners, false otherwise.
+     */
+    public boolean isEmpty() {
+        long stamp = lock.tryOptimisticRead();
+        boolean empty = ownerCount == 0;
+        if (lock.validate(stamp)) return empty;
+
+        stamp = lock.readLock();
+        try {
+            return ownerCount == 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
     /**
      * Gets all the owners in the array.
+     * Doesn't wait for changes, an owner that is added or removed
+     * at the same time may or may not be in the list.
      *
-     * @return a list copy of the array sorted by name lexicographically.
+     * @return a list copy of the owners sorted by name lexicographically.
      */
     public ArrayList<Owner> getOwners() {
-        sortArray();
-        return new ArrayList<>(Arrays.asList(ownerArray));
+        return new ArrayList<>(ownersByName);
     }
 
     /**
-     * Helper function that sorts the array by name lexicographically.
+     * Streams the owners sorted by name, lazily, so reading the first owners
+     * doesn't copy the list. Doesn't wait for changes, the same as "getOwners".
+     *
+     * @param afterName the name to start after, or null to start with the first owner.
+     * @return a stream of the owners.
      */
-    private void sortArray() {
-        for (int i = 0; i < ownerArray.length; i++) {
-            int smallestIndex = i;
-            for (int j = i; j < ownerArray.length; j++) {
-                if (ownerArray[smallestIndex].compareTo(ownerArray[j]) > 0) smallestIndex = j;
-            }
+    public Stream<Owner> streamOwners(String afterName) {
+        if (afterName == null) return ownersByName.stream();
 
-            if (ownerArray[smallestIndex].compareTo(ownerArray[i]) != 0) {
-                Owner temp = ownerArray[i];
-                ownerArray[i] = ownerArray[smallestIndex];
-                ownerArray[smallestIndex] = temp;
-            }
+        // Owners are sorted by name, so an owner with the name marks the position.
+        return ownersByName.tailSet(new Owner(afterName), false).stream();
+    }
+
+    /**
+     * Helper method that finds the owner with the provided name.
+     * Can be called without a lock, so it reads each array once
+     * and may throw if the arrays are changed at the same time.
+     *
+     * @param name the name of the owner to find.
+     * @return the owner if it was found, null otherwise.
+     */
+    private Owner findOwner(String name) {
+        String key = Utilities.toNameKey(name);
+        String[] keys = indexKeys;
+        int[] slots = indexSlots;
+        Owner[] owners = ownerArray;
+
+        // The probe count is limited, since a table that is being changed may have no empty bucket.
+        int mask = keys.length - 1;
+        int bucket = key.hashCode() & mask;
+        for (int probes = 0; probes < keys.length && keys[bucket] != null; probes++) {
+            if (keys[bucket].equals(key)) return owners[slots[bucket]];
+            bucket = (bucket + 1) & mask;
         }
+
+        return null;
     }
 
     /**
@@ -136,36 +304,134 @@ public class OwnerCollection {
      * @return the index of the owner if found, -1 otherwise.
      */
     private int getOwnerIndex(String name) {
-        for (int i = 0; i < ownerArray.length; i++) {
-            if (ownerArray[i].getName().equalsIgnoreCase(name)) return i;
-        }
+        int bucket = findBucket(Utilities.toNameKey(name));
+        if (bucket == -1) return -1;
 
-        return -1;
+        return indexSlots[bucket];
     }
 
     /**
-     * Helper method that increases the array size by one
+     * Helper method that doubles the array size
      * and copies the old array into the new one.
      * Overwrites the old array with the new array.
      */
     private void increaseArrayLength() {
-        Owner[] newOwnerArray = new Owner[ownerArray.length + 1];
-        System.arraycopy(ownerArray, 0, newOwnerArray, 0, ownerArray.length);
-        ownerArray = newOwnerArray;
+        ownerArray = Arrays.copyOf(ownerArray, ownerArray.length * 2);
     }
 
     /**
-     * Helper method that reduces the array size by one.
-     * Copies the old array up to the index of the owner to remove exclusive,
-     * then copies the rest of the array from the owner index plus one.
-     * Overwrites the old array with the new array.
+     * Helper method that removes the owner at the index.
+     * Moves the last owner into the index and clears the last slot.
      *
      * @param ownerIndex the index of the owner to remove.
      */
-    private void reduceArrayLength(int ownerIndex) {
-        Owner[] newOwnerArray = new Owner[ownerArray.length - 1];
-        System.arraycopy(ownerArray, 0, newOwnerArray, 0, ownerIndex);
-        System.arraycopy(ownerArray, ownerIndex + 1, newOwnerArray, ownerIndex, newOwnerArray.length - ownerIndex);
-        ownerArray = newOwnerArray;
+    private void removeAt(int ownerIndex) {
+        ownersByName.remove(ownerArray[ownerIndex]);
+        removeIndex(Utilities.toNameKey(ownerArray[ownerIndex].getName()));
+
+        int lastIndex = ownerCount - 1;
+        if (ownerIndex != lastIndex) {
+            ownerArray[ownerIndex] = ownerArray[lastIndex];
+            updateIndex(ownerArray[ownerIndex], ownerIndex);
+        }
+
+        ownerArray[lastIndex] = null;
+        ownerCount--;
+    }
+
+    /**
+     * Helper method that finds the bucket for a name key in the index.
+     *
+     * @param key the name key to find.
+     * @return the bucket of the key if found, -1 otherwise.
+     */
+    private int findBucket(String key) {
+        int mask = indexKeys.length - 1;
+        for (int bucket = key.hashCode() & mask; indexKeys[bucket] != null; bucket = (bucket + 1) & mask) {
+            if (indexKeys[bucket].equals(key)) return bucket;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Helper method that adds a name key and its slot to the index.
+     * Doubles the index size first if it would be more than half full.
+     *
+     * @param key the name key of the owner.
+     * @param slot the slot of the owner in the owner array.
+     */
+    private void putIndex(String key, int slot) {
+        if ((ownerCount + 1) * 2 > indexKeys.length) increaseIndexLength(indexKeys.length * 2);
+
+        int mask = indexKeys.length - 1;
+        int bucket = key.hashCode() & mask;
+        while (indexKeys[bucket] != null) bucket = (bucket + 1) & mask;
+
+        indexKeys[bucket] = key;
+        indexSlots[bucket] = slot;
+    }
+
+    /**
+     * Helper method that points the index entry of an owner to a new slot.
+     *
+     * @param owner the owner that has been moved.
+     * @param slot the new slot of the owner in the owner array.
+     */
+    private void updateIndex(Owner owner, int slot) {
+        indexSlots[findBucket(Utilities.toNameKey(owner.getName()))] = slot;
+    }
+
+    /**
+     * Helper method that removes a name key from the index.
+     * Entries after the removed one are shifted back so that
+     * no entry ends up behind an empty bucket in its probe sequence.
+     *
+     * @param key the name key to remove.
+     */
+    private void removeIndex(String key) {
+        int mask = indexKeys.length - 1;
+        int emptyBucket = findBucket(key);
+
+        int bucket = (emptyBucket + 1) & mask;
+        while (indexKeys[bucket] != null) {
+            int homeBucket = indexKeys[bucket].hashCode() & mask;
+
+            // Move the entry back if the empty bucket lies between its home bucket and the entry.
+            if (((bucket - homeBucket) & mask) >= ((bucket - emptyBucket) & mask)) {
+                indexKeys[emptyBucket] = indexKeys[bucket];
+                indexSlots[emptyBucket] = indexSlots[bucket];
+                emptyBucket = bucket;
+            }
+
+            bucket = (bucket + 1) & mask;
+        }
+
+        indexKeys[emptyBucket] = null;
+    }
+
+    /**
+     * Helper method that increases the index size
+     * and adds all entries again into the new index.
+     *
+     * @param length the new index size, a power of two.
+     */
+    private void increaseIndexLength(int length) {
+        String[] oldKeys = indexKeys;
+        int[] oldSlots = indexSlots;
+
+        indexKeys = new String[length];
+        indexSlots = new int[length];
+
+        int mask = indexKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) continue;
+
+            int bucket = oldKeys[i].hashCode() & mask;
+            while (indexKeys[bucket] != null) bucket = (bucket + 1) & mask;
+
+            indexKeys[bucket] = oldKeys[i];
+            indexSlots[bucket] = oldSlots[i];
+        }
     }
 }
@@ -0,0 +1,141 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.collections;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import se.su.student.dogregister.data.Dog;
+
+/**
+ * Store that makes a store which isn't thread-safe safe to share between threads.
+ * The dogs are spread over a fixed number of separate stores by the hash code
+ * of their name key, and each store has its own lock. Lookups and scans of a store
+ * share its read lock and changes take its write lock, so changes to dogs in
+ * different stores don't wait for each other, much like the name locks of
+ * "DogCollection". A scan locks one store at a time, so like a scan of the
+ * object store it may see some of the changes made while it runs but not others.
+ */
+class StripedDogStore implements DogStore {
+    private final DogStore[] stores;
+    private final ReentrantReadWriteLock[] locks;
+
+    // How far the hash code is shifted to keep the bits that pick the store.
+    private final int stripeShift;
+
+    /**
+     * Creates the stores.
+     *
+     * @param count the number of stores, a power of two.
+     * @param storeFactory creates each store.
+     */
+    StripedDogStore(int count, Supplier<DogStore> storeFactory) {
+        this.stores = new DogStore[count];
+        this.locks = new ReentrantReadWriteLock[count];
+        this.stripeShift = Integer.numberOfLeadingZeros(count - 1);
+        for (int i = 0; i < count; i++) {
+            this.stores[i] = storeFactory.get();
+            this.locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    @Override
+    public Dog get(String key) {
+        int stripe = stripeOf(key);
+        this.locks[stripe].readLock().lock();
+        try {
+            return this.stores[stripe].get(key);
+        } finally {
+            this.locks[stripe].readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean add(String key, Dog dog) {
+        int stripe = stripeOf(key);
+        this.locks[stripe].writeLock().lock();
+        try {
+            return this.stores[stripe].add(key, dog);
+        } finally {
+            this.locks[stripe].writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Dog remove(String key) {
+        int stripe = stripeOf(key);
+        this.locks[stripe].writeLock().lock();
+        try {
+            return this.stores[stripe].remove(key);
+        } finally {
+            this.locks[stripe].writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void update(String key, Dog dog) {
+        int stripe = stripeOf(key);
+        this.locks[stripe].writeLock().lock();
+        try {
+            this.stores[stripe].update(key, dog);
+        } finally {
+            this.locks[stripe].writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        // The hash codes don't spread the dogs perfectly evenly, so each store gets some extra room.
+        int perStore = capacity / this.stores.length;
+        perStore += perStore / 8;
+
+        for (int i = 0; i < this.stores.length; i++) {
+            this.locks[i].writeLock().lock();
+            try {
+                this.stores[i].ensureCapacity(perStore);
+            } finally {
+                this.locks[i].writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < this.stores.length; i++) {
+            this.locks[i].readLock().lock();
+            try {
+                size += this.stores[i].size();
+            } finally {
+                this.locks[i].readLock().unlock();
+            }
+        }
+
+        return size;
+    }
+
+    @Override
+    public void scan(DogFilter filter, Consumer<Dog> action) {
+        for (int i = 0; i < this.stores.length; i++) {
+            this.locks[i].readLock().lock();
+            try {
+                this.stores[i].scan(filter, action);
+            } finally {
+                this.locks[i].readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Helper method that gets the store a name key belongs to.
+     * Uses the highest bits of the mixed hash code, since the stores use the low bits for their own index.
+     *
+     * @param key the name key.
+     * @return the index of the store.
+     */
+    private int stripeOf(String key) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return (hash >>> this.stripeShift) & (this.stores.length - 1);
+    }
+}
@@ -11,6 +11,12 @@ import se.su.student.dogregister.data.Dog;
  */
 public class DogNameComparator implements Comparator<Dog> {
 
+    // Shared by the sorts that order dogs by name, such as in "DogCollection.addAll".
+    public static final DogNameComparator INSTANCE = new DogNameComparator();
+
+    public DogNameComparator() {
+    }
+
     /**
      * Compares the names of two dogs. Uses "String.compareTo"
      * to compare the names lexicographically.
@@ -11,6 +11,12 @@ import se.su.student.dogregister.data.Dog;
  */
 public class DogTailComparator implements Comparator<Dog> {
 
+    // Also used by "DogTailNameComparator" before it compares the names.
+    public static final DogTailComparator INSTANCE = new DogTailComparator();
+
+    public DogTailComparator() {
+    }
+
     /**
      * Compares the tail lengths of two dogs.
      *
@@ -21,11 +27,15 @@ public class DogTailComparator implements Comparator<Dog> {
      * are the same length.
      */
     public int compare(Dog dog, Dog otherDog) {
+        // Read each tail length once.
+        double tailLength = dog.getTailLength();
+        double otherTailLength = otherDog.getTailLength();
+
         // If the first dog has a shorter tail, return -1.
-        if (dog.getTailLength() < otherDog.getTailLength()) return -1;
+        if (tailLength < otherTailLength) return -1;
 
         // If the second dog has a short tail, return 1.
-        else if (dog.getTailLength() > otherDog.getTailLength()) return 1;
+        else if (tailLength > otherTailLength) return 1;
 
         // If the dogs have the same tail length, return 0.
         else return 0;
@@ -7,10 +7,18 @@ import java.util.Comparator;
 import se.su.student.dogregister.data.Dog;
 
 /**
- * Comparator for dog tail lengths and names.
+ * Comparator for dog tail lengths and names, the order dogs are listed in.
+ * It has no state, so "INSTANCE" can be shared instead of creating one per sort.
+ * To sort many dogs without comparing tail lengths at all,
+ * sort by name and then use "DogSorter.sortDogsByKey" with the tail length.
  */
 public class DogTailNameComparator implements Comparator<Dog> {
 
+    public static final DogTailNameComparator INSTANCE = new DogTailNameComparator();
+
+    public DogTailNameComparator() {
+    }
+
     /**
      * First compares the tail lengths of two dogs,
      * if they are the same, then compares the names lexicographically.
@@ -22,8 +30,8 @@ public class DogTailNameComparator implements Comparator<Dog> {
      * or 0 if both the tail length and the name are the same.
      */
     public int compare(Dog dog, Dog otherDog) {
-        int result = new DogTailComparator().compare(dog, otherDog);
-        if (result == 0) return new DogNameComparator().compare(dog, otherDog);
+        int result = DogTailComparator.INSTANCE.compare(dog, otherDog);
+        if (result == 0) return DogNameComparator.INSTANCE.compare(dog, otherDog);
         else return result;
     }
 }
@@ -0,0 +1,127 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.data;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import se.su.student.dogregister.util.Utilities;
+
+/**
+ * Dictionary of all breeds that dogs have been registered with.
+ * Each breed is stored once, title cased, and given a small integer id
+ * so dogs can keep the id instead of their own copy of the breed.
+ * The dictionary also knows which breeds are dachshunds.
+ */
+public class BreedDictionary {
+
+    // Different translations for dachshund.
+    private static final String[] DACHSHUND_TRANSLATIONS = {
+            "tax",
+            "dachshund",
+            "mäyräkoira",
+            "teckel"
+    };
+
+    // Breed ids by title cased breed.
+    private static final ConcurrentHashMap<String, Integer> BREED_IDS = new ConcurrentHashMap<>();
+
+    // The smallest number of breeds the arrays have room for.
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Breeds and dachshund flags by id, with room for more breeds after "breedCount".
+    // Only the ids below the published count are read, and their entries never change once published.
+    private static volatile String[] breeds = new String[INITIAL_CAPACITY];
+    private static volatile boolean[] dachshunds = new boolean[INITIAL_CAPACITY];
+    private static volatile int breedCount = 0;
+
+    private BreedDictionary() {
+    }
+
+    /**
+     * Gets the id of a breed, and adds the breed to the dictionary if it's new.
+     *
+     * @param breed the breed to find.
+     * @return the id of the breed.
+     */
+    public static int intern(String breed) {
+        String titleCaseBreed = Utilities.toTitleCase(breed);
+
+        Integer id = BREED_IDS.get(titleCaseBreed);
+        if (id != null) return id;
+
+        return addBreed(titleCaseBreed);
+    }
+
+    /**
+     * Gets the id of a breed without adding the breed to the dictionary.
+     *
+     * @param breed the breed to find.
+     * @return the id of the breed, or -1 if no dog has been registered with the breed.
+     */
+    public static int find(String breed) {
+        Integer id = BREED_IDS.get(Utilities.toTitleCase(breed));
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Gets the breed with the provided id.
+     *
+     * @param id the id of the breed.
+     * @return the title cased breed.
+     */
+    public static String getBreed(int id) {
+        return breeds[id];
+    }
+
+    /**
+     * Checks if the breed with the provided id is dachshund in any of the known translations.
+     *
+     * @param id the id of the breed.
+     * @return true if the breed is dachshund, false otherwise.
+     */
+    public static boolean isDachshund(int id) {
+        return dachshunds[id];
+    }
+
+    /**
+     * Gets the number of breeds in the dictionary.
+     *
+     * @return the number of breeds.
+     */
+    public static int size() {
+        return breedCount;
+    }
+
+    /**
+     * Helper method that adds a new breed to the dictionary.
+     * The arrays double in size when they are full, so adding many breeds,
+     * such as an import with misspelled breeds, doesn't copy them for every breed.
+     * The new breed is written before the count that publishes it.
+     *
+     * @param breed the title cased breed to add.
+     * @return the id of the breed.
+     */
+    private static synchronized int addBreed(String breed) {
+        // Another thread may have added the breed while we were waiting.
+        Integer existingId = BREED_IDS.get(breed);
+        if (existingId != null) return existingId;
+
+        int id = breedCount;
+
+        // A reader with the old arrays only reads ids below the old count, which the copies keep.
+        if (id == breeds.length) {
+            dachshunds = Arrays.copyOf(dachshunds, id * 2);
+            breeds = Arrays.copyOf(breeds, id * 2);
+        }
+
+        for (String translation : DACHSHUND_TRANSLATIONS) {
+            if (translation.equalsIgnoreCase(breed)) dachshunds[id] = true;
+        }
+        breeds[id] = breed;
+
+        breedCount = id + 1;
+        BREED_IDS.put(breed, id);
+        return id;
+    }
+}
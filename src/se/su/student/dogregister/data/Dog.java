@@ -3,37 +3,45 @@
  */
 
 package se.su.student.dogregister.data;
+import se.su.student.dogregister.util.FixedPointFormat;
 import se.su.student.dogregister.util.Utilities;
 
 /**
  * Data class for a dog.
  * A dog has a name, breed, age, weight, and a tail length.
+ * The breed is kept as an id in the "BreedDictionary".
  * A dog can have an owner.
+ * <p>
+ * Changes to a dog are made while holding the lock on the dog. When a dog
+ * gets or loses an owner, the lock on the dog is taken before the lock on
+ * the owner, never the other way around, so two threads changing the same
+ * dog and owner can't wait for each other forever.
  */
 public class Dog {
 
     // A dachshund always has the tail length 3.7.
     private static final double DACHSHUND_TAIL_LENGTH = 3.7;
 
-    // Different translations for dachshund.
-    private static final String[] DACHSUND_TRANSLATIONS = {
-            "tax",
-            "dachshund",
-            "mäyräkoira",
-            "teckel"
-    };
-
     private final String name;
-    private final String breed;
+    private final int breedId;
     private final int weight;
-    private int age;
-    private Owner owner;
+    private volatile int age;
+    private volatile double tailLength;
+    private volatile Owner owner;
+
+    // Stands for the collection the dog is registered in, the only one that can age the dog, see "register".
+    private Object registration = null;
 
     public Dog(String name, String breed, int age, int weight) {
-        this.name = Utilities.toTitleCase(name);
-        this.breed = Utilities.toTitleCase(breed);
+        this(Utilities.toTitleCase(name), BreedDictionary.intern(breed), age, weight);
+    }
+
+    private Dog(String name, int breedId, int age, int weight) {
+        this.name = name;
+        this.breedId = breedId;
         this.age = age;
         this.weight = weight;
+        this.tailLength = calculateTailLength();
     }
 
     public String getName() {
@@ -41,7 +49,11 @@ public class Dog {
     }
 
     public String getBreed() {
-        return this.breed;
+        return BreedDictionary.getBreed(this.breedId);
+    }
+
+    public int getBreedId() {
+        return this.breedId;
     }
 
     public int getAge() {
@@ -57,18 +69,27 @@ public class Dog {
     }
 
     /**
-     * Calculate the tail length for the dog.
+     * Gets the tail length for the dog.
+     * The tail length is calculated when the dog is created
+     * and when its age increases.
+     *
+     * @return the tail length for the dog.
+     */
+    public double getTailLength() {
+        return this.tailLength;
+    }
+
+    /**
+     * Helper method that calculates the tail length for the dog.
      * Formula: tail length = age * weight / 10.
      * If the dog is a dachshund, return the constant
      * for dachshund tail length.
      *
      * @return the tail length for the dog.
      */
-    public double getTailLength() {
+    private double calculateTailLength() {
         // If the breed is dachshund, return DACHSHUND_TAIL_LENGTH
-        for (String translation : DACHSUND_TRANSLATIONS) {
-            if (translation.equalsIgnoreCase(this.breed)) return DACHSHUND_TAIL_LENGTH;
-        }
+        if (BreedDictionary.isDachshund(this.breedId)) return DACHSHUND_TAIL_LENGTH;
 
         // Calculate the tail length.
         return this.age * this.weight / 10.0;
@@ -78,36 +99,47 @@ public class Dog {
      * Sets the owner of the dog.
      * If owner is provided and dog has no owner,
      * sets the dogs owner to the provided owner and
-     * asks the owner to add the dog to their owned dogs.
-     * If the argument is null then the dog should remove its owner
-     * and ask their owner to remove it from their owned dogs.
+     * adds the dog to the owners owned dogs.
+     * If the argument is null then the dog removes its owner
+     * and is removed from their owned dogs.
+     * Both sides change while holding the locks on the dog and the owner,
+     * so other threads never see the dog and the owner disagree.
      *
      * @param owner the new owner of the dog.
      * @return true if either the owner was set or removed or false if it failed.
      */
-    public boolean setOwner(Owner owner) {
+    public synchronized boolean setOwner(Owner owner) {
         // If the argument is null, then remove owner.
         if (owner == null) return removeOwner();
 
         // Check if dog already has an owner.
         if (this.owner != null) return false;
 
+        // The owner refuses the dog if it has been removed from the register.
+        if (!owner.attachDog(this)) return false;
+
         // Set dog owner to provided owner.
         this.owner = owner;
+        return true;
+    }
 
-        // Check if owner owns the dog.
-        if (!owner.getDogs().contains(this)) {
-            // Ask the owner to remove the dog from their owned dogs.
-            owner.addDog(this);
-        }
+    /**
+     * Helper method used by "Owner.removeDog" and "Owner.removeAllDogs"
+     * that removes the owner from the dog, if it's still the provided owner.
+     *
+     * @param expectedOwner the owner to remove.
+     * @return true if the owner was removed, false otherwise.
+     */
+    synchronized boolean releaseFrom(Owner expectedOwner) {
+        if (this.owner != expectedOwner) return false;
 
-        return true;
+        return removeOwner();
     }
 
     /**
-     * Helper method that removes the owner from the dog.
-     * If the dogs current owner has the dog among its owned dogs,
-     * then ask it to remove the dog from their owned dogs.
+     * Helper method that removes the owner from the dog
+     * and the dog from the owners owned dogs.
+     * Must be called while holding the lock on the dog.
      *
      * @return true if the owner was removed, false otherwise.
      */
@@ -115,8 +147,7 @@ public class Dog {
         // Check if the dog doesn't have an owner.
         if (this.owner == null) return false;
 
-        // If the current owner owns this dog, ask it to remove the dog from their owned dogs.
-        if (this.owner.getDogs().contains(this)) this.owner.removeDog(this);
+        this.owner.detachDog(this);
 
         // Set the owner to null.
         this.owner = null;
@@ -124,18 +155,83 @@ public class Dog {
         return true;
     }
 
+    /**
+     * Registers the dog in a collection, which is then the only one that can age the dog,
+     * since the collection keeps the dog sorted by tail length and must move it when
+     * its tail length changes. A dog is registered in one collection at a time.
+     *
+     * @param registration an object that only the collection knows, which stands for the collection.
+     * @return true if the dog was registered, false if it's already registered.
+     */
+    public synchronized boolean register(Object registration) {
+        if (this.registration != null) return false;
+
+        this.registration = registration;
+        return true;
+    }
+
+    /**
+     * Ends the registration of the dog, if it's registered with the provided object.
+     *
+     * @param registration the object the dog was registered with.
+     */
+    public synchronized void unregister(Object registration) {
+        if (this.registration == registration) this.registration = null;
+    }
+
     /**
      * Increase the age of the dog by one.
      * If it's higher than "Integer.MAX_VALUE", don't increase the age
      * to avoid overloading.
+     * Only the collection the dog is registered in can age it, see "DogCollection.increaseAge",
+     * so the dog can't end up sorted by a tail length it no longer has.
+     *
+     * @param registration the object the dog is registered with.
+     * @throws IllegalStateException if the dog isn't registered with the provided object.
+     */
+    public synchronized void increaseAge(Object registration) {
+        if (registration == null || registration != this.registration) {
+            throw new IllegalStateException("Error: " + this.name + " can only be aged by the register it's in.");
+        }
+
+        if (this.age != Integer.MAX_VALUE) {
+            this.age++;
+            this.tailLength = calculateTailLength();
+        }
+    }
+
+    /**
+     * Creates a copy of the dog with the age it has now, but without an owner.
+     * The copy isn't changed when the dog is.
+     *
+     * @return the copy.
+     */
+    public Dog copy() {
+        return new Dog(this.name, this.breedId, this.age, this.weight);
+    }
+
+    /**
+     * Appends the dog the same way as "toString", for listing many dogs
+     * without creating a string for each one, see "ListingWriter".
+     *
+     * @param builder the builder to append to.
+     * @param tailLengthFormat the format for the tail length, with two decimals.
+     * @return the builder.
      */
-    public void increaseAge() {
-        if (this.age != Integer.MAX_VALUE) this.age++;
+    public synchronized StringBuilder appendTo(StringBuilder builder, FixedPointFormat tailLengthFormat) {
+        builder.append("Dog [Name: ").append(this.name)
+                .append(", Breed: ").append(getBreed())
+                .append(", Age: ").append(this.age)
+                .append(", Weight: ").append(this.weight)
+                .append(", Tail length: ");
+        tailLengthFormat.append(builder, this.tailLength);
+
+        if (this.owner != null) builder.append(", Owner: ").append(this.owner.getName());
+        return builder.append(']');
     }
 
     @Override
     public String toString() {
-        if (this.owner == null) return "Dog [Name: %s, Breed: %s, Age: %s, Weight: %s, Tail length: %.2f]".formatted(this.name, this.breed, this.age, this.weight, getTailLength());
-        else return "Dog [Name: %s, Breed: %s, Age: %s, Weight: %s, Tail length: %.2f, Owner: %s]".formatted(this.name, this.breed, this.age, this.weight, getTailLength(), this.owner.getName());
+        return appendTo(new StringBuilder(), FixedPointFormat.getInstance(2)).toString();
     }
 }
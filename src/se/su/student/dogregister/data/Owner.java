@@ -5,21 +5,41 @@
 package se.su.student.dogregister.data;
 import java.lang.Comparable;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 
+import se.su.student.dogregister.util.FixedPointFormat;
 import se.su.student.dogregister.util.Utilities;
 
 /**
  * Data class for an owner.
  * An owner has a name.
  * An owner can own multiple dogs.
+ * The owned dogs are kept in a set in the order they were added.
+ * Dogs don't override "equals", so the set compares them by identity,
+ * and adding, removing and checking a dog takes constant time.
+ * The owned dogs are changed while holding the lock on the owner,
+ * which is always taken after the lock on the dog, see "Dog".
+ * Readers get a copy of the dogs made while holding the lock, so giving a dog
+ * to or taking a dog from an owner always takes constant time, and reading
+ * the dogs takes time proportional to the number of dogs the owner owns.
+ * Owners are read far less often than dogs are given away when a register is
+ * loaded or imported, and a listing reads every dog of an owner anyway.
  */
 public class Owner implements Comparable<Owner> {
     private final String name;
-    private final ArrayList<Dog> dogs;
+    // Guarded by the lock on the owner.
+    private final LinkedHashSet<Dog> dogs;
+
+    // Set when the owner is removed from the register, guarded by the lock on the owner.
+    private boolean deregistered = false;
 
     public Owner(String name) {
-        this.name = Utilities.toTitleCase(name);
-        this.dogs = new ArrayList<>();
+        this(Utilities.toTitleCase(name), new LinkedHashSet<>());
+    }
+
+    private Owner(String name, LinkedHashSet<Dog> dogs) {
+        this.name = name;
+        this.dogs = dogs;
     }
 
     public String getName() {
@@ -28,11 +48,8 @@ public class Owner implements Comparable<Owner> {
 
     /**
      * Add a dog to the list of owned dogs.
-     * Only adds the dog if the dog doesn't have an owner
-     * and the dog isn't owned by this owner.
-     * After adding the dog to the list, if the dog
-     * doesn't have an owner, asks the dog to set
-     * this owner as its owner.
+     * Only adds the dog if the dog doesn't have an owner,
+     * by asking the dog to set this owner as its owner.
      *
      * @param dog the dog to add to the list of owned dogs.
      * @return true if it was added, false otherwise.
@@ -41,28 +58,14 @@ public class Owner implements Comparable<Owner> {
         // If argument is null, then return.
         if (dog == null) return false;
 
-        // Check if dog already has another owner.
-        if (dog.getOwner() != null && dog.getOwner() != this) return false;
-
-        // Check owner already owns the dog.
-        if (this.dogs.contains(dog)) return false;
-
-        this.dogs.add(dog);
-
-        // If the dog doesn't have an owner.
-        if (dog.getOwner() == null) {
-            // Ask the dog to set its owner.
-            dog.setOwner(this);
-        }
-
-        return true;
+        // The dog takes its own lock before this owners lock, see "Dog".
+        return dog.setOwner(this);
     }
 
     /**
      * Removes a dog from the list of owned dogs.
-     * Only removes the dog if it is in the list of owned dogs.
-     * If the dog has this owner as its owner, asks it to set
-     * its owner to null.
+     * Only removes the dog if this owner is its owner,
+     * by asking the dog to set its owner to null.
      *
      * @param dog the dog to remove from the list of owned dogs.
      * @return true if the dog was removed, false otherwise.
@@ -71,40 +74,143 @@ public class Owner implements Comparable<Owner> {
         // If argument is null, then return.
         if (dog == null) return false;
 
-        // Check if owner owns the dog.
-        if (!this.dogs.contains(dog)) return false;
+        return dog.releaseFrom(this);
+    }
 
-        // Remove the dog from owned dogs.
-        this.dogs.remove(dog);
+    /**
+     * Removes all dogs from the list of owned dogs,
+     * and sets the owner of each of the dogs to null.
+     * Takes time proportional to the number of owned dogs.
+     * The dogs are released one at a time, since the lock on a dog
+     * must be taken before the lock on its owner.
+     *
+     * @return the dogs that were owned by this owner, in the order they were added.
+     */
+    public ArrayList<Dog> removeAllDogs() {
+        ArrayList<Dog> removedDogs = new ArrayList<>();
+        for (Dog dog : getDogs()) {
+            if (dog.releaseFrom(this)) removedDogs.add(dog);
+        }
 
-        // If owner is dogs owner, then ask dog to remove owner.
-        if (dog.getOwner() == this) dog.setOwner(null);
+        return removedDogs;
+    }
 
-        return true;
+    /**
+     * Checks if the dog is owned by this owner.
+     *
+     * @param dog the dog to check.
+     * @return true if this owner owns the dog, false otherwise.
+     */
+    public synchronized boolean ownsDog(Dog dog) {
+        return this.dogs.contains(dog);
     }
 
     /**
-     * Returns a list of the dogs owned by this owner.
+     * Checks if this owner doesn't own any dogs.
      *
-     * @return an unmodifiable copy of the dogs owned by this owner.
+     * @return true if this owner owns no dogs, false otherwise.
      */
-    public ArrayList<Dog> getDogs() {
+    public synchronized boolean hasNoDogs() {
+        return this.dogs.isEmpty();
+    }
+
+    /**
+     * Counts the dogs owned by this owner, without getting them.
+     *
+     * @return the number of dogs this owner owns.
+     */
+    public synchronized int getDogCount() {
+        return this.dogs.size();
+    }
+
+    /**
+     * Returns a list of the dogs owned by this owner, in the order they were added.
+     * Copies the dogs while holding the lock on the owner, see "Owner".
+     *
+     * @return a copy of the dogs owned by this owner.
+     */
+    public synchronized ArrayList<Dog> getDogs() {
         return new ArrayList<>(this.dogs);
     }
 
+    /**
+     * Marks the owner as removed from the register, if it owns no dogs.
+     * A removed owner refuses all dogs, so no dog can be given to
+     * the owner after it has been removed. Used by "OwnerCollection".
+     *
+     * @return true if the owner was marked as removed, false if it owns dogs.
+     */
+    public synchronized boolean deregister() {
+        if (!this.dogs.isEmpty()) return false;
+
+        this.deregistered = true;
+        return true;
+    }
+
+    /**
+     * Helper method used by "Dog.setOwner" that adds the dog to the owned dogs,
+     * unless the owner has been removed from the register.
+     * Called while holding the lock on the dog.
+     *
+     * @param dog the dog to add.
+     * @return true if the dog was added, false otherwise.
+     */
+    synchronized boolean attachDog(Dog dog) {
+        if (this.deregistered) return false;
+
+        return this.dogs.add(dog);
+    }
+
+    /**
+     * Helper method used by "Dog" that removes the dog from the owned dogs.
+     * Called while holding the lock on the dog.
+     *
+     * @param dog the dog to remove.
+     */
+    synchronized void detachDog(Dog dog) {
+        this.dogs.remove(dog);
+    }
+
+    /**
+     * Creates a copy of the owner with the same name, but without any dogs.
+     * The copy isn't changed when the owner is.
+     *
+     * @return the copy.
+     */
+    public Owner copy() {
+        return new Owner(this.name, new LinkedHashSet<>());
+    }
+
+    /**
+     * Appends the owner and the dogs it owns the same way as "toString",
+     * for listing many owners without creating a string for each one, see "ListingWriter".
+     *
+     * @param builder the builder to append to.
+     * @param tailLengthFormat the format for the tail lengths of the dogs, with two decimals.
+     * @return the builder.
+     */
+    public StringBuilder appendTo(StringBuilder builder, FixedPointFormat tailLengthFormat) {
+        // The dogs are printed from a copy, since printing a dog takes the lock
+        // on the dog, which must not be taken while holding the lock on the owner.
+        ArrayList<Dog> dogs = getDogs();
+
+        builder.append("Owner [Name: ").append(this.name).append(", Dogs: ");
+        if (dogs.isEmpty()) return builder.append("None]");
+
+        builder.append('[');
+        boolean first = true;
+        for (Dog dog : dogs) {
+            if (!first) builder.append(", ");
+            dog.appendTo(builder, tailLengthFormat);
+            first = false;
+        }
+
+        return builder.append("]]");
+    }
+
     @Override
     public String toString() {
-        if (dogs.isEmpty()) return "Owner [Name: " + this.name + ", Dogs: None]";
-        else {
-            StringBuilder builder = new StringBuilder();
-            builder.append("Owner [Name: ");
-            builder.append(this.name);
-            builder.append(", Dogs: ");
-            builder.append(this.dogs);
-            builder.append("]");
-
-            return builder.toString();
-        }
+        return appendTo(new StringBuilder(), FixedPointFormat.getInstance(2)).toString();
     }
 
     /**
@@ -0,0 +1,316 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.input;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads lines of UTF-8 text from a channel into a reusable byte buffer.
+ * After "nextLine" the current line is the bytes from "getLineStart"
+ * up to "getLineEnd" in "getBuffer", without the line break, so fields
+ * can be parsed straight from the buffer without creating a string per line.
+ */
+public class ByteLineReader implements Closeable {
+
+    // The default size of the buffer, it grows if a line doesn't fit.
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    // Powers of ten that are exact as doubles, for "parseDouble".
+    private static final double[] EXACT_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // The most significant digits that are exact as a double.
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    private final ReadableByteChannel channel;
+    private byte[] buffer;
+    private ByteBuffer byteBuffer;
+
+    // Bytes in the buffer from "position" up to "limit" haven't been read as lines yet.
+    private int position = 0;
+    private int limit = 0;
+    private boolean endOfInput = false;
+
+    private int lineStart = 0;
+    private int lineEnd = 0;
+    private long lineNumber = 0;
+
+    public ByteLineReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = new byte[DEFAULT_BUFFER_SIZE];
+        this.byteBuffer = ByteBuffer.wrap(this.buffer);
+    }
+
+    public ByteLineReader(InputStream inputStream) {
+        this(Channels.newChannel(inputStream));
+    }
+
+    public byte[] getBuffer() {
+        return this.buffer;
+    }
+
+    public int getLineStart() {
+        return this.lineStart;
+    }
+
+    public int getLineEnd() {
+        return this.lineEnd;
+    }
+
+    public long getLineNumber() {
+        return this.lineNumber;
+    }
+
+    /**
+     * Moves to the next line.
+     * A line ends with "\n" or "\r\n", or at the end of the input.
+     *
+     * @return true if there was another line, false at the end of the input.
+     * @throws IOException if reading from the channel fails.
+     */
+    public boolean nextLine() throws IOException {
+        int searchFrom = this.position;
+
+        while (true) {
+            for (int i = searchFrom; i < this.limit; i++) {
+                if (this.buffer[i] == '\n') {
+                    setLine(this.position, i);
+                    this.position = i + 1;
+                    return true;
+                }
+            }
+
+            if (this.endOfInput) {
+                // The last line doesn't have to end with a line break.
+                if (this.position == this.limit) return false;
+
+                setLine(this.position, this.limit);
+                this.position = this.limit;
+                return true;
+            }
+
+            searchFrom = this.limit - this.position;
+            fill();
+            searchFrom += this.position;
+        }
+    }
+
+    /**
+     * Checks if there are bytes in the buffer that haven't been read as lines yet.
+     *
+     * @return true if there are unread bytes.
+     */
+    public boolean hasBufferedInput() {
+        return this.position < this.limit;
+    }
+
+    /**
+     * Gets the current line as a string.
+     *
+     * @return the current line.
+     */
+    public String getLine() {
+        return new String(this.buffer, this.lineStart, this.lineEnd - this.lineStart, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Parses an integer from bytes in a buffer, without creating a string.
+     * Accepts an optional sign followed by digits, nothing else.
+     *
+     * @param bytes the buffer.
+     * @param start the index of the first byte.
+     * @param end the index after the last byte.
+     * @return the parsed integer.
+     * @throws NumberFormatException if the bytes aren't an integer or it's out of range.
+     */
+    public static int parseInt(byte[] bytes, int start, int end) {
+        if (start == end) throw new NumberFormatException("expected a number but found nothing.");
+
+        boolean negative = bytes[start] == '-';
+        int i = (negative || bytes[start] == '+') ? start + 1 : start;
+        if (i == end) throw invalidNumber(bytes, start, end);
+
+        // Accumulate as a negative number, since it has a larger range than a positive one.
+        long limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) throw invalidNumber(bytes, start, end);
+
+            result = result * 10 - digit;
+            if (result < limit) throw new NumberFormatException(text(bytes, start, end) + " is out of range.");
+        }
+
+        return (int) (negative ? result : -result);
+    }
+
+    /**
+     * Parses a double from bytes in a buffer, without creating a string.
+     * Accepts an optional sign, digits with an optional "." and more digits,
+     * and an optional exponent such as "e-3", nothing else.
+     * Numbers with at most 15 significant digits and a small exponent, such as
+     * all tail lengths, are computed with one correctly rounded multiplication
+     * or division, other numbers are passed on to "Double.parseDouble".
+     *
+     * @param bytes the buffer.
+     * @param start the index of the first byte.
+     * @param end the index after the last byte.
+     * @return the parsed double.
+     * @throws NumberFormatException if the bytes aren't a number.
+     */
+    public static double parseDouble(byte[] bytes, int start, int end) {
+        return parseDouble(bytes, start, end, (byte) '.');
+    }
+
+    /**
+     * Parses a double the same way as "parseDouble(byte[], int, int)",
+     * but also accepts another decimal separator than ".", such as the ","
+     * of a locale, so numbers written in the locale can be read back.
+     *
+     * @param bytes the buffer.
+     * @param start the index of the first byte.
+     * @param end the index after the last byte.
+     * @param decimalSeparator the decimal separator that is accepted besides ".".
+     * @return the parsed double.
+     * @throws NumberFormatException if the bytes aren't a number.
+     */
+    public static double parseDouble(byte[] bytes, int start, int end, byte decimalSeparator) {
+        if (start == end) throw new NumberFormatException("expected a number but found nothing.");
+
+        boolean negative = bytes[start] == '-';
+        int i = (negative || bytes[start] == '+') ? start + 1 : start;
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean hasDigits = false;
+        boolean afterPoint = false;
+
+        for (; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit >= 0 && digit <= 9) {
+                hasDigits = true;
+                if (afterPoint) exponent--;
+
+                // Leading zeros aren't significant. Numbers with more significant digits than
+                // fit in the mantissa are passed on to "Double.parseDouble" anyway.
+                if (mantissa == 0 && digit == 0) continue;
+                if (significantDigits <= MAX_EXACT_DIGITS) mantissa = mantissa * 10 + digit;
+                significantDigits++;
+            } else if ((bytes[i] == '.' || bytes[i] == decimalSeparator) && !afterPoint) {
+                afterPoint = true;
+            } else {
+                break;
+            }
+        }
+
+        if (!hasDigits) throw invalidNumber(bytes, start, end);
+
+        if (i < end && (bytes[i] == 'e' || bytes[i] == 'E')) {
+            i++;
+            boolean negativeExponent = i < end && bytes[i] == '-';
+            if (i < end && (negativeExponent || bytes[i] == '+')) i++;
+            if (i == end) throw invalidNumber(bytes, start, end);
+
+            // Larger exponents than this give zero or infinity anyway.
+            int exponentValue = 0;
+            for (; i < end; i++) {
+                int digit = bytes[i] - '0';
+                if (digit < 0 || digit > 9) throw invalidNumber(bytes, start, end);
+                exponentValue = Math.min(exponentValue * 10 + digit, 100_000);
+            }
+
+            exponent += negativeExponent ? -exponentValue : exponentValue;
+        }
+
+        if (i != end) throw invalidNumber(bytes, start, end);
+
+        if (significantDigits > MAX_EXACT_DIGITS || Math.abs(exponent) >= EXACT_POWERS_OF_TEN.length) {
+            return Double.parseDouble(new String(bytes, start, end - start, StandardCharsets.ISO_8859_1).replace((char) decimalSeparator, '.'));
+        }
+
+        // Both the mantissa and the power of ten are exact, so the result is rounded once, correctly.
+        double value = exponent >= 0 ? mantissa * EXACT_POWERS_OF_TEN[exponent] : mantissa / EXACT_POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Helper method that creates the exception for bytes that aren't a valid number.
+     *
+     * @param bytes the buffer.
+     * @param start the index of the first byte.
+     * @param end the index after the last byte.
+     * @return the exception to throw.
+     */
+    static NumberFormatException invalidNumber(byte[] bytes, int start, int end) {
+        return new NumberFormatException(text(bytes, start, end) + " is not a valid number.");
+    }
+
+    /**
+     * Helper method that decodes bytes as UTF-8, for error messages.
+     *
+     * @param bytes the buffer.
+     * @param start the index of the first byte.
+     * @param end the index after the last byte.
+     * @return the decoded text in quotes.
+     */
+    private static String text(byte[] bytes, int start, int end) {
+        return "\"" + new String(bytes, start, end - start, StandardCharsets.UTF_8) + "\"";
+    }
+
+    /**
+     * Helper method that sets the current line, leaving out a "\r" at the end.
+     *
+     * @param start the index of the first byte of the line.
+     * @param end the index of the line break or the end of the input.
+     */
+    private void setLine(int start, int end) {
+        if (end > start && this.buffer[end - 1] == '\r') end--;
+
+        this.lineStart = start;
+        this.lineEnd = end;
+        this.lineNumber++;
+    }
+
+    /**
+     * Helper method that reads more bytes from the channel.
+     * Moves the unread bytes to the start of the buffer first,
+     * and doubles the buffer if the unread bytes fill all of it.
+     *
+     * @throws IOException if reading from the channel fails.
+     */
+    private void fill() throws IOException {
+        int unread = this.limit - this.position;
+
+        if (unread == this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+            this.byteBuffer = ByteBuffer.wrap(this.buffer);
+        } else if (this.position > 0) {
+            System.arraycopy(this.buffer, this.position, this.buffer, 0, unread);
+        }
+
+        this.position = 0;
+        this.limit = unread;
+
+        this.byteBuffer.clear().position(this.limit);
+        int read = this.channel.read(this.byteBuffer);
+
+        if (read == -1) this.endOfInput = true;
+        else this.limit += read;
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.input;
+import java.io.UncheckedIOException;
+import java.util.List;
+import se.su.student.dogregister.persistence.LogRecord;
+
+/**
+ * Where "RegisterImporter" makes its changes, such as the "RegisterEngine",
+ * which logs them before they are made.
+ */
+public interface ImportTarget {
+
+    /**
+     * Logs a batch of imported changes and makes them, with no other changes in between.
+     * The records describe the changes one by one, so replaying them gives the same register
+     * as making the batch.
+     *
+     * @param records the changes in the batch, in the order they are made.
+     * @param changes makes the changes in the collections.
+     * @throws UncheckedIOException if the changes couldn't be logged, in which case none of them were made.
+     */
+    void applyBatch(List<LogRecord> records, Runnable changes);
+}
@@ -0,0 +1,16 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.input;
+
+/**
+ * How an "InputReader" reads its input.
+ * STANDARD: text in the default charset, and numbers the way the locale writes them, such as "3,5" in Swedish.
+ * FAST: UTF-8 text, and numbers written with digits and "." or the decimal separator of the locale
+ * only, which are parsed straight from a byte buffer without creating any objects, for large scripts of commands.
+ */
+public enum InputMode {
+    STANDARD,
+    FAST
+}
@@ -3,27 +3,81 @@
  */
 
 package se.su.student.dogregister.input;
+import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormatSymbols;
+import java.util.InputMismatchException;
+import java.util.Locale;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Wrapper class for Scanner.
- * Defaults to System.in input
+ * Reads input line by line, the same way as a Scanner that reads a value
+ * and then the rest of its line: numbers are read from the first word on
+ * the next line that isn't blank, and strings are whole lines.
+ * Defaults to System.in input and System.out for the prompts,
  * and uses specific prompt format when reading input.
+ * An input stream can only be read by one input reader at a time,
+ * input readers on different threads can read different input streams.
+ * <p>
+ * The answers to the next prompts can also be given in advance, see
+ * "supplyArguments", which is how one-line commands are answered.
+ * <p>
+ * See "InputMode" for the two ways of reading. In the fast mode the lines
+ * stay in the buffer of a "ByteLineReader", and words and arguments are
+ * found by their indexes in it, so only the strings that are asked for are created.
  */
 public class InputReader {
 
-    private static final ArrayList<InputStream> ACTIVE_INPUT_STREAMS = new ArrayList<>();
-    private final Scanner scanner;
+    private static final Set<InputStream> ACTIVE_INPUT_STREAMS = ConcurrentHashMap.newKeySet();
+    private final InputStream inputStream;
+    private final PrintStream out;
 
-    public InputReader(InputStream inputStream) {
+    // Reads the input in the standard mode, "line" is then the line that was read last.
+    private final BufferedReader reader;
+    private String line = "";
+
+    // The decimal separator of the locale, such as "," in Swedish, for the standard mode.
+    private final char decimalSeparator = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)).getDecimalSeparator();
+
+    // The same separator for the fast mode, which also accepts ".", or just "." if the separator isn't one byte.
+    private final byte decimalSeparatorByte = decimalSeparator < 0x80 ? (byte) decimalSeparator : (byte) '.';
+
+    // Reads the input in the fast mode, the line that was read last is then in its buffer.
+    private final ByteLineReader byteReader;
+
+    // Set while the prompts are answered from the arguments from "argumentStart" up to "argumentsEnd".
+    private boolean usingArguments = false;
+    private int argumentStart = 0;
+    private int argumentsEnd = 0;
+
+    // The word or argument that was read last.
+    private int wordStart = 0;
+    private int wordEnd = 0;
+
+    public InputReader(InputStream inputStream, PrintStream out, InputMode mode) {
         // If input stream is already used then throw exception.
-        if (ACTIVE_INPUT_STREAMS.contains(inputStream))
+        if (!ACTIVE_INPUT_STREAMS.add(inputStream))
             throw new IllegalStateException("Error: that input stream is already in use.");
 
-        this.scanner = new Scanner(inputStream);
-        ACTIVE_INPUT_STREAMS.add(inputStream);
+        this.inputStream = inputStream;
+        this.out = out;
+        this.reader = mode == InputMode.STANDARD ? new BufferedReader(new InputStreamReader(inputStream)) : null;
+        this.byteReader = mode == InputMode.FAST ? new ByteLineReader(inputStream) : null;
+    }
+
+    public InputReader(InputStream inputStream, PrintStream out) {
+        this(inputStream, out, InputMode.STANDARD);
+    }
+
+    public InputReader(InputStream inputStream) {
+        this(inputStream, System.out);
     }
 
     public InputReader() {
@@ -31,40 +85,302 @@ public class InputReader {
     }
 
     /**
-     * Prints the prompt and reads an integer from the scanner.
+     * Stops using the input stream, so that another input reader can read it.
+     * Doesn't close the input stream.
+     */
+    public void release() {
+        ACTIVE_INPUT_STREAMS.remove(this.inputStream);
+    }
+
+    /**
+     * Answers the next prompts with the arguments at the end of the line that
+     * "readString" read last, separated by "|", in order, instead of reading
+     * the input stream, and without printing the prompts. A prompt after the
+     * arguments have run out throws, until "clearArguments" is called.
+     *
+     * @param start the index in the line where the arguments start, everything
+     *              before it must be ASCII, such as the name of a command.
+     */
+    public void supplyArguments(int start) {
+        if (this.byteReader != null) {
+            this.argumentStart = this.byteReader.getLineStart() + start;
+            this.argumentsEnd = this.byteReader.getLineEnd();
+        } else {
+            this.argumentStart = start;
+            this.argumentsEnd = this.line.length();
+        }
+
+        this.usingArguments = true;
+    }
+
+    /**
+     * Throws away the arguments that weren't used and goes back to reading the input stream.
+     */
+    public void clearArguments() {
+        this.usingArguments = false;
+    }
+
+    /**
+     * Checks if there is an argument left, so that a one-line command can have optional answers.
+     *
+     * @return true if the prompts are answered from arguments and there is one left.
+     */
+    public boolean hasArgument() {
+        return this.usingArguments && this.argumentStart <= this.argumentsEnd;
+    }
+
+    /**
+     * Checks if the prompts are answered from arguments, see "supplyArguments".
+     *
+     * @return true if the prompts are answered from arguments.
+     */
+    public boolean isUsingArguments() {
+        return this.usingArguments;
+    }
+
+    /**
+     * Checks if there is input that can be read without waiting,
+     * such as the next commands from a client that sends them without waiting for the answers.
+     *
+     * @return true if there is input waiting.
+     */
+    public boolean isInputWaiting() {
+        try {
+            if (this.byteReader != null) return this.byteReader.hasBufferedInput() || this.inputStream.available() > 0;
+            return this.reader.ready();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Prints the prompt and reads an integer.
+     * Input that isn't an integer is asked for again.
      *
      * @param prompt the prompt to print.
-     * @return the integer value from the scanner.
+     * @return the integer value.
+     * @throws InputMismatchException if an argument isn't an integer.
+     * @throws NoSuchElementException if the input has ended, or the arguments have run out.
      */
     public int readInt(String prompt) {
-        System.out.print(prompt + "?> ");
-        int input = scanner.nextInt();
-        scanner.nextLine();
-        return input;
+        while (true) {
+            readWord(prompt);
+            try {
+                return parseInt();
+            } catch (InputMismatchException e) {
+                if (usingArguments) throw e;
+                out.println(e.getMessage());
+            }
+        }
     }
 
     /**
-     * Prints the prompt and reads a double from the scanner.
+     * Prints the prompt and reads a double, written the way the "InputMode" reads numbers.
+     * Input that isn't a number is asked for again.
      *
      * @param prompt the prompt to print.
-     * @return the double value from the scanner.
+     * @return the double value.
+     * @throws InputMismatchException if an argument isn't a number.
+     * @throws NoSuchElementException if the input has ended, or the arguments have run out.
      */
     public double readDouble(String prompt) {
-        System.out.print(prompt + "?> ");
-        double input = scanner.nextDouble();
-        scanner.nextLine();
-        return input;
+        while (true) {
+            readWord(prompt);
+            try {
+                return parseDouble();
+            } catch (InputMismatchException e) {
+                if (usingArguments) throw e;
+                out.println(e.getMessage());
+            }
+        }
     }
 
     /**
-     * Prints the prompt and reads a String from the scanner.
+     * Prints the prompt and reads a line.
      *
      * @param prompt the prompt to print.
-     * @return the string value from the Scanner.
+     * @return the line, without the line separator.
+     * @throws NoSuchElementException if the input has ended, or the arguments have run out.
      */
     public String readString(String prompt) {
-        System.out.print(prompt + "?> ");
-        return scanner.nextLine();
+        if (usingArguments) {
+            nextArgument();
+            return word();
+        }
+
+        prompt(prompt);
+        nextLine();
+        return byteReader != null ? byteReader.getLine() : line;
+    }
+
+    /**
+     * Helper method that prints the prompt and finds the first word of the next line
+     * that isn't blank, skipping the rest of that line, or the next argument without
+     * the whitespace around it.
+     */
+    private void readWord(String prompt) {
+        if (usingArguments) {
+            nextArgument();
+            while (wordStart < wordEnd && isWhitespace(wordStart)) wordStart++;
+            while (wordEnd > wordStart && isWhitespace(wordEnd - 1)) wordEnd--;
+            return;
+        }
+
+        prompt(prompt);
+        int lineEnd;
+        do {
+            nextLine();
+            lineEnd = byteReader != null ? byteReader.getLineEnd() : line.length();
+            wordStart = byteReader != null ? byteReader.getLineStart() : 0;
+            while (wordStart < lineEnd && isWhitespace(wordStart)) wordStart++;
+        } while (wordStart == lineEnd);
+
+        wordEnd = wordStart;
+        while (wordEnd < lineEnd && !isWhitespace(wordEnd)) wordEnd++;
+    }
+
+    /**
+     * Helper method that finds the next argument.
+     */
+    private void nextArgument() {
+        if (argumentStart > argumentsEnd) throw new NoSuchElementException("Error: too few arguments.");
+
+        wordStart = argumentStart;
+        wordEnd = argumentStart;
+        while (wordEnd < argumentsEnd && charAt(wordEnd) != '|') wordEnd++;
+        argumentStart = wordEnd + 1;
+    }
+
+    /**
+     * Helper method that parses the word that was read last as an integer.
+     */
+    private int parseInt() {
+        if (byteReader != null) {
+            try {
+                return ByteLineReader.parseInt(byteReader.getBuffer(), wordStart, wordEnd);
+            } catch (NumberFormatException e) {
+                throw notANumber(word());
+            }
+        }
+
+        // Plain numbers are parsed directly, the Scanner also handles the ways the locale writes numbers.
+        try {
+            return Integer.parseInt(line, wordStart, wordEnd, 10);
+        } catch (NumberFormatException e) {
+            String word = word();
+            try {
+                return new Scanner(word).nextInt();
+            } catch (NoSuchElementException notANumber) {
+                throw notANumber(word);
+            }
+        }
+    }
+
+    /**
+     * Helper method that parses the word that was read last as a double.
+     */
+    private double parseDouble() {
+        if (byteReader != null) {
+            try {
+                return ByteLineReader.parseDouble(byteReader.getBuffer(), wordStart, wordEnd, decimalSeparatorByte);
+            } catch (NumberFormatException e) {
+                throw notANumber(word());
+            }
+        }
+
+        // Plain numbers are parsed directly, the Scanner also handles the other ways the locale writes numbers.
+        String word = word();
+        if (isPlainDecimal()) return Double.parseDouble(word.replace(decimalSeparator, '.'));
+
+        try {
+            return new Scanner(word).nextDouble();
+        } catch (NoSuchElementException e) {
+            throw notANumber(word);
+        }
+    }
+
+    /**
+     * Helper method that checks if the word that was read last is digits with an optional sign,
+     * and an optional decimal separator with more digits, in the standard mode.
+     */
+    private boolean isPlainDecimal() {
+        int i = wordStart;
+        if (i < wordEnd && (line.charAt(i) == '-' || line.charAt(i) == '+')) i++;
+
+        boolean hasDigits = false;
+        boolean hasSeparator = false;
+        for (; i < wordEnd; i++) {
+            char c = line.charAt(i);
+            if (c >= '0' && c <= '9') hasDigits = true;
+            else if (c == decimalSeparator && !hasSeparator) hasSeparator = true;
+            else return false;
+        }
+
+        return hasDigits;
+    }
+
+    /**
+     * Helper method that gets the word that was read last as a string.
+     */
+    private String word() {
+        if (byteReader != null) return new String(byteReader.getBuffer(), wordStart, wordEnd - wordStart, StandardCharsets.UTF_8);
+        return line.substring(wordStart, wordEnd);
+    }
+
+    /**
+     * Helper method that gets a character of the line that was read last.
+     * In the fast mode it's a byte, where the bytes of a character that isn't
+     * ASCII are never whitespace or "|".
+     */
+    private int charAt(int index) {
+        if (byteReader != null) return byteReader.getBuffer()[index] & 0xFF;
+        return line.charAt(index);
+    }
+
+    /**
+     * Helper method that checks if a character of the line that was read last is whitespace.
+     */
+    private boolean isWhitespace(int index) {
+        return Character.isWhitespace(charAt(index));
+    }
+
+    /**
+     * Helper method that reads the next line of the input stream.
+     * An input stream that can't be read is treated as ended, the same as a Scanner does.
+     */
+    private void nextLine() {
+        try {
+            if (byteReader != null) {
+                if (byteReader.nextLine()) return;
+            } else {
+                String next = reader.readLine();
+                if (next != null) {
+                    line = next;
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // Treated as the end of the input.
+        }
+
+        throw new NoSuchElementException("Error: the input has ended.");
+    }
+
+    /**
+     * Helper method that creates the exception for a word that isn't a number.
+     */
+    private static InputMismatchException notANumber(String word) {
+        return new InputMismatchException("Error: " + (word.isEmpty() ? "expected a number." : word + " is not a number."));
+    }
+
+    /**
+     * Helper method that prints the prompt. The prompt is flushed, since the output
+     * may be buffered, such as to a network client, unless there is more input
+     * waiting, so that the answers to commands sent together are sent together.
+     */
+    private void prompt(String prompt) {
+        out.print(prompt + "?> ");
+        if (!isInputWaiting()) out.flush();
     }
 
 }
@@ -0,0 +1,548 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.input;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import se.su.student.dogregister.collections.DogCollection;
+import se.su.student.dogregister.collections.OwnerCollection;
+import se.su.student.dogregister.data.Dog;
+import se.su.student.dogregister.data.Owner;
+import se.su.student.dogregister.persistence.LogRecord;
+import se.su.student.dogregister.util.Utilities;
+
+/**
+ * Imports dogs, owners and ownerships from a file into the collections.
+ * <p>
+ * Files ending in ".ndjson" or ".jsonl" have one JSON object per line:
+ * <pre>
+ * {"type": "dog", "name": "Rex", "breed": "Labrador", "age": 3, "weight": 30}
+ * {"type": "owner", "name": "Anna"}
+ * {"type": "owns", "dog": "Rex", "owner": "Anna"}
+ * </pre>
+ * Other files are read as CSV, with the type in the first field
+ * and no quoting, so fields can't contain commas:
+ * <pre>
+ * dog,Rex,Labrador,3,30
+ * owner,Anna
+ * owns,Rex,Anna
+ * </pre>
+ * Empty lines and lines starting with "#" are skipped in both formats.
+ * Lines are parsed straight from the read buffer, and the rows are added
+ * to the collections in batches through an "ImportTarget", which logs each
+ * batch as the changes it is made of. An ownership is added once both the
+ * dog and the owner have been added, so they can come in any order.
+ * Ownerships whose dog or owner is still missing at the end of the file
+ * are rejected, and so are ownerships that give a dog another owner than it
+ * already has, in the register or on an earlier line.
+ */
+public class RegisterImporter {
+
+    // The number of rows to collect before adding them to the collections.
+    private static final int BATCH_SIZE = 10_000;
+
+    // How often to report progress, in rows.
+    private static final long PROGRESS_INTERVAL = 1_000_000;
+
+    // The most errors to print for one import.
+    private static final int MAX_REPORTED_ERRORS = 10;
+
+    // The most fields on a line.
+    private static final int MAX_FIELDS = 8;
+
+    private static final byte[] DOG_TYPE = bytes("dog");
+    private static final byte[] OWNER_TYPE = bytes("owner");
+    private static final byte[] OWNS_TYPE = bytes("owns");
+
+    private static final byte[] TYPE_KEY = bytes("type");
+    private static final byte[] NAME_KEY = bytes("name");
+    private static final byte[] BREED_KEY = bytes("breed");
+    private static final byte[] AGE_KEY = bytes("age");
+    private static final byte[] WEIGHT_KEY = bytes("weight");
+    private static final byte[] DOG_KEY = bytes("dog");
+    private static final byte[] OWNER_KEY = bytes("owner");
+
+    private final DogCollection dogCollection;
+    private final OwnerCollection ownerCollection;
+    private final ImportTarget target;
+    private final PrintStream out;
+
+    // Rows waiting to be added to the collections. Ownerships wait, by the name key of the dog,
+    // until their dog and owner have been added or the file ends.
+    private final ArrayList<Dog> pendingDogs = new ArrayList<>(BATCH_SIZE);
+    private final ArrayList<Owner> pendingOwners = new ArrayList<>(BATCH_SIZE);
+    private final LinkedHashMap<String, PendingOwnership> pendingOwnerships = new LinkedHashMap<>();
+
+    // The number of pending ownerships that starts adding them. Grows with the ownerships
+    // that are still waiting, so a file that has them before the dogs isn't read over and over.
+    private int ownershipFlushSize = BATCH_SIZE;
+
+    // Start and end of each field on the current line, reused for every line.
+    private final int[] fieldStarts = new int[MAX_FIELDS];
+    private final int[] fieldEnds = new int[MAX_FIELDS];
+
+    private long rowCount;
+    private long rejectedCount;
+    private long dogCount;
+    private long ownerCount;
+    private long ownershipCount;
+
+    // The line that is being imported.
+    private long lineNumber;
+
+    public RegisterImporter(DogCollection dogCollection, OwnerCollection ownerCollection, ImportTarget target, PrintStream out) {
+        this.dogCollection = dogCollection;
+        this.ownerCollection = ownerCollection;
+        this.target = target;
+        this.out = out;
+    }
+
+    public long getRowCount() {
+        return this.rowCount;
+    }
+
+    public long getRejectedCount() {
+        return this.rejectedCount;
+    }
+
+    public long getDogCount() {
+        return this.dogCount;
+    }
+
+    public long getOwnerCount() {
+        return this.ownerCount;
+    }
+
+    public long getOwnershipCount() {
+        return this.ownershipCount;
+    }
+
+    /**
+     * Imports all rows in the file and prints progress and a summary.
+     * Rows that can't be parsed are skipped, and the first few are printed as errors.
+     * Dogs and owners that are already registered are skipped.
+     * If a batch can't be logged the import stops, and the batches before it stay imported.
+     *
+     * @param path the file to import.
+     * @throws IOException if the file can't be read.
+     * @throws java.io.UncheckedIOException if a batch couldn't be logged, see "ImportTarget".
+     */
+    public void importFile(Path path) throws IOException {
+        String fileName = path.getFileName().toString().toLowerCase();
+        boolean json = fileName.endsWith(".ndjson") || fileName.endsWith(".jsonl");
+        long startTime = System.nanoTime();
+
+        try (ByteLineReader reader = new ByteLineReader(FileChannel.open(path, StandardOpenOption.READ))) {
+            while (reader.nextLine()) {
+                byte[] line = reader.getBuffer();
+                int start = reader.getLineStart();
+                int end = reader.getLineEnd();
+
+                if (start == end || line[start] == '#') continue;
+
+                this.lineNumber = reader.getLineNumber();
+                try {
+                    if (json) importJsonRow(line, start, end);
+                    else importCsvRow(line, start, end);
+                } catch (IllegalArgumentException e) {
+                    reject(this.lineNumber, e.getMessage());
+                }
+
+                this.rowCount++;
+                if (this.rowCount % PROGRESS_INTERVAL == 0) {
+                    this.out.printf("Imported %d rows (%.0f rows/s).%n", this.rowCount, rowsPerSecond(startTime));
+                }
+            }
+        }
+
+        flushOwnerships();
+        rejectPendingOwnerships();
+
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        this.out.printf("Imported %d rows in %.2f s (%.0f rows/s): %d dogs, %d owners and %d ownerships added, %d rows rejected.%n",
+                this.rowCount, seconds, rowsPerSecond(startTime), this.dogCount, this.ownerCount, this.ownershipCount, this.rejectedCount);
+    }
+
+    /**
+     * Helper method that imports a CSV row.
+     *
+     * @param line the buffer with the line.
+     * @param start the index of the first byte of the line.
+     * @param end the index after the last byte of the line.
+     */
+    private void importCsvRow(byte[] line, int start, int end) {
+        int fieldCount = splitFields(line, start, end);
+        int typeStart = this.fieldStarts[0];
+        int typeEnd = this.fieldEnds[0];
+
+        if (matches(line, typeStart, typeEnd, DOG_TYPE)) {
+            requireFieldCount(fieldCount, 5);
+            addDog(requireText(line, 1, "name"), requireText(line, 2, "breed"),
+                    ByteLineReader.parseInt(line, this.fieldStarts[3], this.fieldEnds[3]),
+                    ByteLineReader.parseInt(line, this.fieldStarts[4], this.fieldEnds[4]));
+        } else if (matches(line, typeStart, typeEnd, OWNER_TYPE)) {
+            requireFieldCount(fieldCount, 2);
+            addOwner(requireText(line, 1, "name"));
+        } else if (matches(line, typeStart, typeEnd, OWNS_TYPE)) {
+            requireFieldCount(fieldCount, 3);
+            addOwnership(requireText(line, 1, "dog"), requireText(line, 2, "owner"));
+        } else {
+            throw new IllegalArgumentException("unknown row type " + new String(line, typeStart, typeEnd - typeStart, StandardCharsets.UTF_8) + ".");
+        }
+    }
+
+    /**
+     * Helper method that imports an NDJSON row.
+     * Only flat objects with string and integer values are supported.
+     *
+     * @param line the buffer with the line.
+     * @param start the index of the first byte of the line.
+     * @param end the index after the last byte of the line.
+     */
+    private void importJsonRow(byte[] line, int start, int end) {
+        String type = null;
+        String name = null;
+        String breed = null;
+        String dog = null;
+        String owner = null;
+        Integer age = null;
+        Integer weight = null;
+
+        int i = skipSpaces(line, start, end);
+        if (i == end || line[i] != '{') throw new IllegalArgumentException("expected a JSON object.");
+        i = skipSpaces(line, i + 1, end);
+
+        while (i < end && line[i] != '}') {
+            // Read the key, which has no escapes in the supported rows.
+            if (line[i] != '"') throw new IllegalArgumentException("expected a key.");
+            int keyStart = i + 1;
+            int keyEnd = keyStart;
+            while (keyEnd < end && line[keyEnd] != '"') keyEnd++;
+            if (keyEnd == end) throw new IllegalArgumentException("unfinished key.");
+
+            i = skipSpaces(line, keyEnd + 1, end);
+            if (i == end || line[i] != ':') throw new IllegalArgumentException("expected \":\" after a key.");
+            i = skipSpaces(line, i + 1, end);
+
+            // Read the value, a string or an integer. The text stays null for an integer.
+            String text = null;
+            int number = 0;
+            if (i < end && line[i] == '"') {
+                StringBuilder builder = new StringBuilder();
+                i = readJsonString(line, i + 1, end, builder);
+                text = builder.toString();
+            } else {
+                int numberEnd = i;
+                while (numberEnd < end && line[numberEnd] != ',' && line[numberEnd] != '}' && !isSpace(line[numberEnd])) numberEnd++;
+                number = ByteLineReader.parseInt(line, i, numberEnd);
+                i = numberEnd;
+            }
+
+            // A value of the wrong kind rejects the row, so "age": "3" isn't read as age 0.
+            if (matches(line, keyStart, keyEnd, TYPE_KEY)) type = requireString(text, "type");
+            else if (matches(line, keyStart, keyEnd, NAME_KEY)) name = requireString(text, "name");
+            else if (matches(line, keyStart, keyEnd, BREED_KEY)) breed = requireString(text, "breed");
+            else if (matches(line, keyStart, keyEnd, DOG_KEY)) dog = requireString(text, "dog");
+            else if (matches(line, keyStart, keyEnd, OWNER_KEY)) owner = requireString(text, "owner");
+            else if (matches(line, keyStart, keyEnd, AGE_KEY)) age = requireInteger(text, number, "age");
+            else if (matches(line, keyStart, keyEnd, WEIGHT_KEY)) weight = requireInteger(text, number, "weight");
+
+            i = skipSpaces(line, i, end);
+            if (i < end && line[i] == ',') i = skipSpaces(line, i + 1, end);
+        }
+
+        if (i == end) throw new IllegalArgumentException("expected \"}\" at the end of the object.");
+        if (type == null) throw new IllegalArgumentException("missing \"type\".");
+
+        switch (type) {
+            case "dog" -> {
+                if (age == null || weight == null) throw new IllegalArgumentException("a dog needs an \"age\" and a \"weight\".");
+                addDog(requireText(name, "name"), requireText(breed, "breed"), age, weight);
+            }
+            case "owner" -> addOwner(requireText(name, "name"));
+            case "owns" -> addOwnership(requireText(dog, "dog"), requireText(owner, "owner"));
+            default -> throw new IllegalArgumentException("unknown row type " + type + ".");
+        }
+    }
+
+    /**
+     * Helper method that checks that an NDJSON value is a string.
+     *
+     * @param text the value as a string, or null if it was an integer.
+     * @param key the key of the value, for the error.
+     * @return the string.
+     */
+    private static String requireString(String text, String key) {
+        if (text == null) throw new IllegalArgumentException("\"" + key + "\" must be a string.");
+        return text;
+    }
+
+    /**
+     * Helper method that checks that an NDJSON value is an integer.
+     *
+     * @param text the value as a string, or null if it was an integer.
+     * @param number the value as an integer.
+     * @param key the key of the value, for the error.
+     * @return the integer.
+     */
+    private static int requireInteger(String text, int number, String key) {
+        if (text != null) throw new IllegalArgumentException("\"" + key + "\" must be an integer.");
+        return number;
+    }
+
+    /**
+     * Helper method that reads the rest of a JSON string into a builder.
+     *
+     * @param line the buffer with the line.
+     * @param start the index after the opening quote.
+     * @param end the index after the last byte of the line.
+     * @param builder the builder to append the string to.
+     * @return the index after the closing quote.
+     */
+    private static int readJsonString(byte[] line, int start, int end, StringBuilder builder) {
+        int i = start;
+        int runStart = start;
+
+        while (i < end) {
+            byte b = line[i];
+            if (b == '"') {
+                builder.append(new String(line, runStart, i - runStart, StandardCharsets.UTF_8));
+                return i + 1;
+            }
+
+            if (b == '\\') {
+                builder.append(new String(line, runStart, i - runStart, StandardCharsets.UTF_8));
+                if (i + 1 == end) break;
+
+                byte escaped = line[i + 1];
+                i += 2;
+                switch (escaped) {
+                    case 'n' -> builder.append('\n');
+                    case 't' -> builder.append('\t');
+                    case 'r' -> builder.append('\r');
+                    case 'b' -> builder.append('\b');
+                    case 'f' -> builder.append('\f');
+                    case 'u' -> {
+                        if (i + 4 > end) throw new IllegalArgumentException("unfinished \\u escape.");
+                        builder.append((char) Integer.parseInt(new String(line, i, 4, StandardCharsets.US_ASCII), 16));
+                        i += 4;
+                    }
+                    default -> builder.append((char) escaped);
+                }
+
+                runStart = i;
+                continue;
+            }
+
+            i++;
+        }
+
+        throw new IllegalArgumentException("unfinished string.");
+    }
+
+    /**
+     * Helper method that adds a dog to the batch.
+     */
+    private void addDog(String name, String breed, int age, int weight) {
+        this.pendingDogs.add(new Dog(name, breed, age, weight));
+        if (this.pendingDogs.size() == BATCH_SIZE) flushDogs();
+    }
+
+    /**
+     * Helper method that adds an owner to the batch.
+     */
+    private void addOwner(String name) {
+        this.pendingOwners.add(new Owner(name));
+        if (this.pendingOwners.size() == BATCH_SIZE) flushOwners();
+    }
+
+    /**
+     * Helper method that adds an ownership to the batch.
+     * An ownership that gives the dog the owner it already has, or is already
+     * waiting for, is skipped, the same as a dog that is already registered.
+     *
+     * @throws IllegalArgumentException if the dog already has, or is waiting for, another owner.
+     */
+    private void addOwnership(String dogName, String ownerName) {
+        String dogKey = Utilities.toNameKey(dogName);
+        String ownerKey = Utilities.toNameKey(ownerName);
+
+        PendingOwnership pending = this.pendingOwnerships.get(dogKey);
+        if (pending != null) {
+            if (pending.ownerKey.equals(ownerKey)) return;
+            throw new IllegalArgumentException("the dog " + dogName + " is already given to " + pending.ownerName + " on line " + pending.lineNumber + ".");
+        }
+
+        Dog dog = this.dogCollection.getDog(dogName);
+        Owner owner = dog == null ? null : dog.getOwner();
+        if (owner != null) {
+            if (Utilities.toNameKey(owner.getName()).equals(ownerKey)) return;
+            throw new IllegalArgumentException("the dog " + dogName + " is already owned by " + owner.getName() + ".");
+        }
+
+        this.pendingOwnerships.put(dogKey, new PendingOwnership(dogName, ownerName, ownerKey, this.lineNumber));
+        if (this.pendingOwnerships.size() >= this.ownershipFlushSize) flushOwnerships();
+    }
+
+    private void flushDogs() {
+        if (this.pendingDogs.isEmpty()) return;
+
+        ArrayList<LogRecord> records = new ArrayList<>(this.pendingDogs.size());
+        for (Dog dog : this.pendingDogs) {
+            records.add(LogRecord.addDog(dog.getName(), dog.getBreed(), dog.getAge(), dog.getWeight()));
+        }
+
+        this.target.applyBatch(records, () -> this.dogCount += this.dogCollection.addAll(this.pendingDogs));
+        this.pendingDogs.clear();
+    }
+
+    private void flushOwners() {
+        if (this.pendingOwners.isEmpty()) return;
+
+        ArrayList<LogRecord> records = new ArrayList<>(this.pendingOwners.size());
+        for (Owner owner : this.pendingOwners) {
+            records.add(LogRecord.addOwner(owner.getName()));
+        }
+
+        this.target.applyBatch(records, () -> this.ownerCount += this.ownerCollection.addAll(this.pendingOwners));
+        this.pendingOwners.clear();
+    }
+
+    /**
+     * Helper method that adds the pending ownerships whose dog and owner have been added,
+     * after adding the pending dogs and owners they may refer to.
+     * The other ownerships keep waiting, since their rows may come later in the file.
+     */
+    private void flushOwnerships() {
+        flushDogs();
+        flushOwners();
+
+        LinkedHashMap<String, String> dogOwners = new LinkedHashMap<>();
+        ArrayList<LogRecord> records = new ArrayList<>();
+        Iterator<PendingOwnership> iterator = this.pendingOwnerships.values().iterator();
+        while (iterator.hasNext()) {
+            PendingOwnership ownership = iterator.next();
+            if (!this.dogCollection.containsDog(ownership.dogName) || this.ownerCollection.getOwner(ownership.ownerName) == null) continue;
+
+            dogOwners.put(ownership.dogName, ownership.ownerName);
+            records.add(LogRecord.giveDogToOwner(ownership.dogName, ownership.ownerName));
+            iterator.remove();
+        }
+
+        if (!records.isEmpty()) {
+            this.target.applyBatch(records, () -> this.ownershipCount += this.dogCollection.assignOwners(dogOwners, this.ownerCollection));
+        }
+
+        this.ownershipFlushSize = this.pendingOwnerships.size() + Math.max(BATCH_SIZE, this.pendingOwnerships.size());
+    }
+
+    /**
+     * Helper method that rejects the ownerships that are still waiting at the end of the file.
+     */
+    private void rejectPendingOwnerships() {
+        for (PendingOwnership ownership : this.pendingOwnerships.values()) {
+            reject(ownership.lineNumber, "the dog " + ownership.dogName + " or the owner " + ownership.ownerName + " is not registered.");
+        }
+
+        this.pendingOwnerships.clear();
+    }
+
+    /**
+     * Helper method that counts a rejected row, and prints it if few rows have been rejected so far.
+     */
+    private void reject(long lineNumber, String message) {
+        if (this.rejectedCount < MAX_REPORTED_ERRORS) this.out.printf("Error: line %d: %s%n", lineNumber, message);
+        this.rejectedCount++;
+    }
+
+    /**
+     * Helper method that splits a CSV line on commas into the field arrays.
+     *
+     * @return the number of fields.
+     */
+    private int splitFields(byte[] line, int start, int end) {
+        int fieldCount = 0;
+        int fieldStart = start;
+
+        for (int i = start; i <= end; i++) {
+            if (i == end || line[i] == ',') {
+                if (fieldCount == MAX_FIELDS) throw new IllegalArgumentException("too many fields.");
+
+                this.fieldStarts[fieldCount] = fieldStart;
+                this.fieldEnds[fieldCount] = i;
+                fieldCount++;
+                fieldStart = i + 1;
+            }
+        }
+
+        return fieldCount;
+    }
+
+    private static void requireFieldCount(int fieldCount, int expected) {
+        if (fieldCount != expected) throw new IllegalArgumentException("expected " + expected + " fields but found " + fieldCount + ".");
+    }
+
+    /**
+     * Helper method that gets a CSV field as a string that isn't blank.
+     */
+    private String requireText(byte[] line, int field, String fieldName) {
+        int fieldStart = this.fieldStarts[field];
+        return requireText(new String(line, fieldStart, this.fieldEnds[field] - fieldStart, StandardCharsets.UTF_8), fieldName);
+    }
+
+    private static String requireText(String text, String fieldName) {
+        if (text == null || text.isBlank()) throw new IllegalArgumentException("\"" + fieldName + "\" can't be empty.");
+        return text;
+    }
+
+    /**
+     * Helper method that checks if the bytes in a range are equal to the expected bytes.
+     */
+    private static boolean matches(byte[] line, int start, int end, byte[] expected) {
+        return end - start == expected.length && Arrays.equals(line, start, end, expected, 0, expected.length);
+    }
+
+    private static int skipSpaces(byte[] line, int start, int end) {
+        int i = start;
+        while (i < end && isSpace(line[i])) i++;
+        return i;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    private double rowsPerSecond(long startTime) {
+        return this.rowCount / Math.max((System.nanoTime() - startTime) / 1e9, 1e-9);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * An ownership row that waits for its dog and owner to be added.
+     */
+    private static class PendingOwnership {
+        private final String dogName;
+        private final String ownerName;
+        private final String ownerKey;
+        private final long lineNumber;
+
+        PendingOwnership(String dogName, String ownerName, String ownerKey, long lineNumber) {
+            this.dogName = dogName;
+            this.ownerName = ownerName;
+            this.ownerKey = ownerKey;
+            this.lineNumber = lineNumber;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.output;
+import se.su.student.dogregister.data.Dog;
+import se.su.student.dogregister.data.Owner;
+import se.su.student.dogregister.util.FixedPointFormat;
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Writes listings of dogs and owners to a print stream.
+ * The rows are appended to a buffer that is reused for every listing, and the
+ * buffer is written to the stream in large chunks, instead of one "println"
+ * per row, which formats the row into a new string and flushes a console for
+ * every line. The rows look the same as "Dog.toString" and "Owner.toString".
+ * <p>
+ * Doesn't flush the print stream itself, which is up to the owner of the
+ * stream, such as the "DogRegister" at the end of a batch of commands.
+ */
+public class ListingWriter {
+
+    // The size of the chunks that are written to the stream.
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    // The buffer is shrunk back after a row larger than this, such as an owner with many dogs.
+    private static final int MAX_KEPT_BUFFER_SIZE = 1 << 20;
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final PrintStream out;
+    private final StringBuilder buffer = new StringBuilder(CHUNK_SIZE);
+    private final FixedPointFormat tailLengthFormat = new FixedPointFormat(2);
+
+    // Like the tail lengths, but always with the digits 0-9, which both input modes read.
+    private final FixedPointFormat argumentFormat = new FixedPointFormat(2, new Locale.Builder()
+            .setLocale(Locale.getDefault(Locale.Category.FORMAT)).setUnicodeLocaleKeyword("nu", "latn").build());
+
+    public ListingWriter(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Adds a line, such as the heading of a listing.
+     *
+     * @param line the line, without the line separator.
+     */
+    public void println(String line) {
+        this.buffer.append(line);
+        endRow();
+    }
+
+    /**
+     * Adds a row for a dog.
+     *
+     * @param dog the dog.
+     */
+    public void printDog(Dog dog) {
+        dog.appendTo(this.buffer, this.tailLengthFormat);
+        endRow();
+    }
+
+    /**
+     * Adds a row for an owner and the dogs it owns.
+     *
+     * @param owner the owner.
+     */
+    public void printOwner(Owner owner) {
+        owner.appendTo(this.buffer, this.tailLengthFormat);
+        endRow();
+    }
+
+    /**
+     * Adds a line with the one-line command that lists the next page,
+     * such as "Next page: lo 20|Bob". Numbers that aren't integers are
+     * written with two decimals, the decimal separator of the locale and the
+     * digits 0-9, so they can be read back in the same locale in both input modes.
+     *
+     * @param command the short name of the command.
+     * @param arguments the arguments of the command.
+     */
+    public void printNextPage(String command, Object... arguments) {
+        this.buffer.append("Next page: ").append(command);
+
+        for (int i = 0; i < arguments.length; i++) {
+            this.buffer.append(i == 0 ? ' ' : '|');
+
+            if (arguments[i] instanceof Double number) this.argumentFormat.append(this.buffer, number);
+            else this.buffer.append(arguments[i]);
+        }
+
+        endRow();
+    }
+
+    /**
+     * Writes the rows that are left in the buffer to the print stream.
+     * Must be called at the end of a listing, before anything else is printed.
+     */
+    public void flush() {
+        if (this.buffer.length() == 0) return;
+
+        this.out.append(this.buffer);
+        this.buffer.setLength(0);
+
+        if (this.buffer.capacity() > MAX_KEPT_BUFFER_SIZE) {
+            this.buffer.trimToSize();
+            this.buffer.ensureCapacity(CHUNK_SIZE);
+        }
+    }
+
+    /**
+     * Helper method that ends a row, and writes the buffer when a chunk is full.
+     */
+    private void endRow() {
+        this.buffer.append(LINE_SEPARATOR);
+        if (this.buffer.length() >= CHUNK_SIZE) flush();
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.persistence;
+import java.nio.file.Path;
+
+/**
+ * What a checkpoint saved and how long it took, kept by the "CheckpointScheduler"
+ * for the last checkpoint that was written, whether it ran in the background or not.
+ */
+public class CheckpointReport {
+    private final Path snapshotPath;
+    private final int dogCount;
+    private final int ownerCount;
+    private final long lsn;
+    private final long snapshotBytes;
+    private final long copyNanos;
+    private final long writeNanos;
+    private final Path logPath;
+    private final long logSizeBefore;
+    private final long logSizeAfter;
+    private final boolean background;
+
+    /**
+     * Creates a report.
+     *
+     * @param snapshotPath the snapshot file.
+     * @param snapshot the snapshot that was written.
+     * @param snapshotBytes the size of the snapshot file.
+     * @param copyNanos the time it took to copy the register into the snapshot.
+     * @param writeNanos the time it took to write the snapshot file.
+     * @param logPath the log that was compacted, or null if there is no log.
+     * @param logSizeBefore the size of the log before it was compacted, or -1 if it wasn't compacted.
+     * @param logSizeAfter the size of the log after it was compacted, or -1 if it wasn't compacted.
+     * @param background true if the checkpoint ran on the background thread.
+     */
+    CheckpointReport(Path snapshotPath, RegisterSnapshot snapshot, long snapshotBytes, long copyNanos, long writeNanos,
+                     Path logPath, long logSizeBefore, long logSizeAfter, boolean background) {
+        this.snapshotPath = snapshotPath;
+        this.dogCount = snapshot.getDogCount();
+        this.ownerCount = snapshot.getOwnerCount();
+        this.lsn = snapshot.getLsn();
+        this.snapshotBytes = snapshotBytes;
+        this.copyNanos = copyNanos;
+        this.writeNanos = writeNanos;
+        this.logPath = logPath;
+        this.logSizeBefore = logSizeBefore;
+        this.logSizeAfter = logSizeAfter;
+        this.background = background;
+    }
+
+    public int getDogCount() {
+        return this.dogCount;
+    }
+
+    public int getOwnerCount() {
+        return this.ownerCount;
+    }
+
+    /**
+     * Gets the LSN of the last logged change in the snapshot.
+     *
+     * @return the LSN.
+     */
+    public long getLsn() {
+        return this.lsn;
+    }
+
+    public long getSnapshotBytes() {
+        return this.snapshotBytes;
+    }
+
+    /**
+     * Gets the time it took to copy the register, while changes may have been held back.
+     *
+     * @return the time in nanoseconds.
+     */
+    public long getCopyNanos() {
+        return this.copyNanos;
+    }
+
+    public long getWriteNanos() {
+        return this.writeNanos;
+    }
+
+    /**
+     * Gets the size of the log before it was compacted.
+     *
+     * @return the size in bytes, or -1 if there is no log or it couldn't be compacted.
+     */
+    public long getLogSizeBefore() {
+        return this.logSizeBefore;
+    }
+
+    /**
+     * Gets the size of the log after it was compacted.
+     *
+     * @return the size in bytes, or -1 if there is no log or it couldn't be compacted.
+     */
+    public long getLogSizeAfter() {
+        return this.logSizeAfter;
+    }
+
+    public boolean isBackground() {
+        return this.background;
+    }
+
+    /**
+     * Describes the checkpoint for the user, such as
+     * "Saved 3 dogs and 1 owners to register.snapshot (120 bytes) in 0.01 s, ...".
+     *
+     * @return one line, or two if the log was compacted.
+     */
+    public String describe() {
+        String saved = String.format("Saved %d dogs and %d owners to %s (%d bytes) in %.2f s, copying the register took %.2f s.",
+                this.dogCount, this.ownerCount, this.snapshotPath, this.snapshotBytes, this.writeNanos / 1e9, this.copyNanos / 1e9);
+        if (this.logSizeBefore == -1) return saved;
+
+        return saved + System.lineSeparator()
+                + String.format("Compacted %s from %d to %d bytes.", this.logPath, this.logSizeBefore, this.logSizeAfter);
+    }
+}
@@ -0,0 +1,246 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.persistence;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Saves the register to the snapshot file and removes the changes in the
+ * snapshot from the "WriteAheadLog", so the log doesn't grow without bound.
+ * <p>
+ * A checkpoint is due when enough changes have been logged since the last
+ * one, or when some changes have been logged and the interval has passed.
+ * The number of changes is checked by the thread that logs a change, with
+ * a check that doesn't lock, and that thread only starts the checkpoint.
+ * The interval is checked every second on the background thread, so a
+ * register that stops changing is still saved. The register is copied into
+ * a "RegisterSnapshot", the snapshot written and the log compacted on the
+ * background thread. The copy is made by the register, which makes sure it
+ * matches the LSN it is given, see "RegisterEngine". Changes made while the
+ * checkpoint runs are appended to the log as usual and kept by the compaction.
+ * A checkpoint only counts once its snapshot has been written, and one that
+ * fails is tried again at the next check. Background checkpoints only print
+ * errors, so they don't interrupt the commands; a checkpoint made with
+ * "checkpoint" also prints what it saved. Either way, what the last checkpoint
+ * saved and how long it took is kept, see "getLastCheckpoint".
+ * <p>
+ * The methods can be called from any thread.
+ */
+public class CheckpointScheduler implements Closeable {
+
+    // How often the background thread checks if a checkpoint is due.
+    private static final long CHECK_INTERVAL_MILLIS = 1000;
+
+    private final Path snapshotPath;
+    private final WriteAheadLog writeAheadLog;
+    private final Supplier<RegisterSnapshot> register;
+    private final long intervalNanos;
+    private final long maxRecords;
+    private final PrintStream output;
+    private final ScheduledExecutorService executor;
+
+    // Set from when a checkpoint is started until it has finished, so only one is started at a time.
+    private final AtomicBoolean checkpointStarted = new AtomicBoolean();
+
+    // When and at what LSN the last checkpoint that was written was made, and if the last one failed.
+    // Only changed while holding the lock on "this", read without it.
+    private volatile long lastCheckpointTime;
+    private volatile long lastCheckpointLsn;
+    private volatile boolean lastCheckpointFailed = false;
+
+    // What the last checkpoint that was written saved, or null if none has been written yet.
+    private volatile CheckpointReport lastCheckpoint = null;
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param snapshotPath the snapshot file.
+     * @param writeAheadLog the log to compact, or null if there is no log.
+     * @param register copies the register, together with the LSN of the last logged change in the copy.
+     * @param intervalSeconds the longest time between checkpoints while changes are being made.
+     * @param maxRecords the number of logged changes that starts a checkpoint.
+     * @param output the stream to report checkpoints and their errors to.
+     */
+    public CheckpointScheduler(Path snapshotPath, WriteAheadLog writeAheadLog, Supplier<RegisterSnapshot> register,
+                               long intervalSeconds, long maxRecords, PrintStream output) {
+        this.snapshotPath = snapshotPath;
+        this.writeAheadLog = writeAheadLog;
+        this.register = register;
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(intervalSeconds);
+        this.maxRecords = maxRecords;
+        this.output = output;
+        this.lastCheckpointTime = System.nanoTime();
+        this.lastCheckpointLsn = writeAheadLog == null ? 0 : writeAheadLog.getLastLsn();
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (writeAheadLog != null) {
+            this.executor.scheduleWithFixedDelay(this::checkpointIfIntervalDue, CHECK_INTERVAL_MILLIS, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Starts a checkpoint in the background if enough changes have been logged
+     * since the last one and none is running. Doesn't lock, so it can be called
+     * after every change. The interval and failed checkpoints are checked in the background.
+     * Should be called without holding locks that changes to the register take,
+     * since the register may be copied with them held back.
+     *
+     * @param lsn the LSN of the change that was just logged.
+     * @return true if a checkpoint was started.
+     */
+    public boolean checkpointIfDue(long lsn) {
+        if (this.writeAheadLog == null || this.lastCheckpointFailed || lsn - this.lastCheckpointLsn < this.maxRecords) return false;
+        if (!this.checkpointStarted.compareAndSet(false, true)) return false;
+
+        try {
+            this.executor.execute(this::runCheckpoint);
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Closed, the register is saved by "checkpoint" instead.
+            this.checkpointStarted.set(false);
+            return false;
+        }
+    }
+
+    /**
+     * Saves the register and compacts the log on this thread,
+     * after waiting for a running checkpoint to finish, and reports what was saved.
+     * Can still be called after "close".
+     *
+     * @return true if the register was saved.
+     */
+    public synchronized boolean checkpoint() {
+        long startTime = System.nanoTime();
+        RegisterSnapshot snapshot = this.register.get();
+
+        return write(snapshot, System.nanoTime() - startTime, true);
+    }
+
+    /**
+     * Gets what the last checkpoint that was written saved and how long it took,
+     * including checkpoints made in the background.
+     *
+     * @return the report, or null if no checkpoint has been written yet.
+     */
+    public CheckpointReport getLastCheckpoint() {
+        return this.lastCheckpoint;
+    }
+
+    /**
+     * Waits for a running checkpoint to finish and stops the background thread.
+     * Must not be called while holding locks that changes to the register take,
+     * since the running checkpoint may wait for them to copy the register.
+     */
+    @Override
+    public void close() {
+        this.executor.shutdown();
+
+        boolean interrupted = false;
+        while (!this.executor.isTerminated()) {
+            try {
+                this.executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Helper method run every second on the background thread that makes a checkpoint
+     * if changes have been logged and the interval has passed, or the last checkpoint
+     * failed, or enough changes have been logged.
+     */
+    private void checkpointIfIntervalDue() {
+        long records = this.writeAheadLog.getLastLsn() - this.lastCheckpointLsn;
+        if (records == 0) return;
+        if (records < this.maxRecords && !this.lastCheckpointFailed && System.nanoTime() - this.lastCheckpointTime < this.intervalNanos) return;
+
+        if (this.checkpointStarted.compareAndSet(false, true)) runCheckpoint();
+    }
+
+    /**
+     * Helper method that makes a background checkpoint on the background thread.
+     * An exception would stop the checks, so it's reported as a failed checkpoint instead.
+     */
+    private void runCheckpoint() {
+        try {
+            synchronized (this) {
+                long startTime = System.nanoTime();
+                RegisterSnapshot snapshot = this.register.get();
+                write(snapshot, System.nanoTime() - startTime, false);
+            }
+        } catch (RuntimeException e) {
+            this.lastCheckpointFailed = true;
+            this.output.printf("Error: the register could not be saved to %s.%n", this.snapshotPath);
+        } finally {
+            this.checkpointStarted.set(false);
+        }
+    }
+
+    /**
+     * Helper method that writes the snapshot, compacts the log, keeps what was saved
+     * for "getLastCheckpoint" and prints errors.
+     * Must be called while holding the lock on "this".
+     *
+     * @param snapshot the snapshot to write.
+     * @param copyNanos the time it took to copy the register into the snapshot.
+     * @param print true to also print what was saved, false for a background checkpoint.
+     * @return true if the snapshot was written.
+     */
+    private boolean write(RegisterSnapshot snapshot, long copyNanos, boolean print) {
+        long startTime = System.nanoTime();
+
+        long bytesWritten;
+        try {
+            bytesWritten = snapshot.write(this.snapshotPath);
+        } catch (IOException e) {
+            // The last checkpoint stays where it was, so the next check tries again.
+            this.lastCheckpointFailed = true;
+            this.output.printf("Error: the register could not be saved to %s.%n", this.snapshotPath);
+            return false;
+        }
+
+        long writeNanos = System.nanoTime() - startTime;
+        this.lastCheckpointTime = System.nanoTime();
+        this.lastCheckpointLsn = snapshot.getLsn();
+        this.lastCheckpointFailed = false;
+
+        // The snapshot has replaced the old one durably, with its directory, so a crash
+        // can't bring back the old snapshot next to a log without the changes in between.
+        long logSizeBefore = -1;
+        long logSizeAfter = -1;
+        if (this.writeAheadLog != null) {
+            try {
+                long sizeBefore = this.writeAheadLog.size();
+                logSizeAfter = this.writeAheadLog.compact(snapshot.getLsn());
+                logSizeBefore = sizeBefore;
+            } catch (IOException e) {
+                // The changes in the log are skipped when replayed, since the snapshot has their LSNs.
+                this.output.printf("Error: the log %s could not be compacted.%n", this.writeAheadLog.getPath());
+            }
+        }
+
+        this.lastCheckpoint = new CheckpointReport(this.snapshotPath, snapshot, bytesWritten, copyNanos, writeNanos,
+                this.writeAheadLog == null ? null : this.writeAheadLog.getPath(), logSizeBefore, logSizeAfter, !print);
+        if (print) this.output.println(this.lastCheckpoint.describe());
+
+        return true;
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.persistence;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Helper methods for replacing files so the change survives a crash.
+ * A rename is a change to the directory, not to the file, so forcing the
+ * file isn't enough: until the directory is forced too, a crash can bring
+ * back the old file, even after a later rename in the same directory.
+ */
+class DurableFiles {
+
+    /**
+     * Replaces a file with a temporary file that has already been forced to disk,
+     * and forces the directory, so the new file is there after a crash.
+     *
+     * @param temporaryPath the temporary file, in the same directory as the file.
+     * @param path the file to replace.
+     * @throws IOException if the file can't be replaced or the directory can't be forced.
+     */
+    static void replace(Path temporaryPath, Path path) throws IOException {
+        Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        Path directory = path.toAbsolutePath().getParent();
+        if (directory == null) return;
+
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // Some systems, such as Windows, can't open a directory, and make renames durable themselves.
+            return;
+        }
+
+        try (channel) {
+            channel.force(true);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.persistence;
+import se.su.student.dogregister.collections.DogCollection;
+import se.su.student.dogregister.collections.OwnerCollection;
+import se.su.student.dogregister.data.Dog;
+import se.su.student.dogregister.data.Owner;
+
+/**
+ * A change to the register that is written to the "WriteAheadLog".
+ * Each operation matches a command in the dog register, with the
+ * names and values that the command was given.
+ */
+public class LogRecord {
+
+    /**
+     * The operations that can be logged.
+     * The position of an operation is its code in the log file,
+     * so new operations must be added last.
+     */
+    public enum Operation {
+        ADD_DOG,
+        REMOVE_DOG,
+        ADD_OWNER,
+        REMOVE_OWNER,
+        INCREASE_AGE,
+        GIVE_DOG_TO_OWNER,
+        REMOVE_DOG_FROM_OWNER
+    }
+
+    private final Operation operation;
+    private final String name;
+
+    // The breed for ADD_DOG and the owner name for GIVE_DOG_TO_OWNER, otherwise null.
+    private final String value;
+    private final int age;
+    private final int weight;
+
+    LogRecord(Operation operation, String name, String value, int age, int weight) {
+        this.operation = operation;
+        this.name = name;
+        this.value = value;
+        this.age = age;
+        this.weight = weight;
+    }
+
+    public static LogRecord addDog(String name, String breed, int age, int weight) {
+        return new LogRecord(Operation.ADD_DOG, name, breed, age, weight);
+    }
+
+    public static LogRecord removeDog(String name) {
+        return new LogRecord(Operation.REMOVE_DOG, name, null, 0, 0);
+    }
+
+    public static LogRecord addOwner(String name) {
+        return new LogRecord(Operation.ADD_OWNER, name, null, 0, 0);
+    }
+
+    public static LogRecord removeOwner(String name) {
+        return new LogRecord(Operation.REMOVE_OWNER, name, null, 0, 0);
+    }
+
+    public static LogRecord increaseAge(String name) {
+        return new LogRecord(Operation.INCREASE_AGE, name, null, 0, 0);
+    }
+
+    public static LogRecord giveDogToOwner(String dogName, String ownerName) {
+        return new LogRecord(Operation.GIVE_DOG_TO_OWNER, dogName, ownerName, 0, 0);
+    }
+
+    public static LogRecord removeDogFromOwner(String dogName) {
+        return new LogRecord(Operation.REMOVE_DOG_FROM_OWNER, dogName, null, 0, 0);
+    }
+
+    public Operation getOperation() {
+        return this.operation;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Gets the name of the dog that the change is about.
+     *
+     * @return the name of the dog, or null if the change is about an owner.
+     */
+    public String getDogName() {
+        return switch (this.operation) {
+            case ADD_OWNER, REMOVE_OWNER -> null;
+            default -> this.name;
+        };
+    }
+
+    /**
+     * Gets the name of the owner that the change is about.
+     *
+     * @return the name of the owner, or null if the change is only about a dog.
+     */
+    public String getOwnerName() {
+        return switch (this.operation) {
+            case ADD_OWNER, REMOVE_OWNER -> this.name;
+            case GIVE_DOG_TO_OWNER -> this.value;
+            default -> null;
+        };
+    }
+
+    String getValue() {
+        return this.value;
+    }
+
+    int getAge() {
+        return this.age;
+    }
+
+    int getWeight() {
+        return this.weight;
+    }
+
+    /**
+     * Applies the change to the collections, the same way the command did.
+     * Changes that don't apply any more, such as removing a dog that
+     * isn't registered, are skipped.
+     * Changes that depend on each other must be applied in the order they
+     * are logged, so replaying the log ends with the same register.
+     *
+     * @param dogCollection the dogs to change.
+     * @param ownerCollection the owners to change.
+     * @return true if the change was applied, false if it was skipped.
+     */
+    public boolean apply(DogCollection dogCollection, OwnerCollection ownerCollection) {
+        switch (this.operation) {
+            case ADD_DOG -> {
+                return dogCollection.addDog(new Dog(this.name, this.value, this.age, this.weight));
+            }
+            case REMOVE_DOG -> {
+                Dog dog = dogCollection.getDog(this.name);
+                if (dog == null) return false;
+
+                dog.setOwner(null);
+                return dogCollection.removeDog(dog);
+            }
+            case ADD_OWNER -> {
+                return ownerCollection.addOwner(new Owner(this.name));
+            }
+            case REMOVE_OWNER -> {
+                Owner owner = ownerCollection.getOwner(this.name);
+                if (owner == null) return false;
+
+                dogCollection.removeDogsOwnedBy(owner);
+                return ownerCollection.removeOwner(owner);
+            }
+            case INCREASE_AGE -> {
+                return dogCollection.increaseAge(this.name);
+            }
+            case GIVE_DOG_TO_OWNER -> {
+                Owner owner = ownerCollection.getOwner(this.value);
+                return owner != null && dogCollection.giveDogToOwner(this.name, owner);
+            }
+            case REMOVE_DOG_FROM_OWNER -> {
+                return dogCollection.removeDogFromOwner(this.name);
+            }
+            default -> throw new IllegalStateException("Unknown operation " + this.operation + ".");
+        }
+    }
+}
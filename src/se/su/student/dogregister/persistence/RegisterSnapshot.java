@@ -0,0 +1,439 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.persistence;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+import se.su.student.dogregister.collections.DogCollection;
+import se.su.student.dogregister.collections.OwnerCollection;
+import se.su.student.dogregister.data.Dog;
+import se.su.student.dogregister.data.Owner;
+
+/**
+ * Copy of all dogs, owners and ownerships in a register at one point in time,
+ * that can be written to and read from a binary file.
+ * <p>
+ * The file starts with a magic number and a format version, followed by
+ * the breeds, the owners, the dogs and the ownerships. Strings are written as
+ * their UTF-8 length followed by the bytes, and a dog refers to its breed, and
+ * an ownership to its dog and owner, by their position in the file:
+ * <pre>
+ * int magic, int version, long lsn
+ * int breedCount, breedCount * string breed
+ * int ownerCount, ownerCount * string name
+ * int dogCount, dogCount * (string name, int breed, int age, int weight)
+ * int ownershipCount, ownershipCount * (int dog, int owner)
+ * int crc
+ * </pre>
+ * The ownerships of an owner are written in the order the owner got the dogs,
+ * so the owners list their dogs in the same order after the snapshot is loaded.
+ * The LSN is the last change in the "WriteAheadLog" that the snapshot contains,
+ * version 1 files don't have it and are read with LSN 0. Version 1 and 2 files
+ * have no ownerships, instead each dog ends with the position of its owner
+ * (-1 for no owner), and the owners get their dogs in name order.
+ * Version 3 files end with the CRC-32 of all the bytes before it, which is
+ * checked before anything else is read, and no count or string length is
+ * trusted to be larger than what is left of the file.
+ * Files are written to a temporary file that replaces the snapshot file
+ * once it's complete, and read through a memory mapping of the whole file.
+ */
+public class RegisterSnapshot {
+
+    // "DOGR" in ASCII.
+    private static final int MAGIC = 0x444F4752;
+    private static final int VERSION = 3;
+
+    // The size of the buffer used when writing.
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final long lsn;
+    private final String[] breeds;
+    private final String[] ownerNames;
+    private final String[] dogNames;
+    private final int[] dogBreeds;
+    private final int[] dogAges;
+    private final int[] dogWeights;
+
+    // The dog and owner of each ownership, each owner's dogs in the order the owner got them.
+    private final int[] ownershipDogs;
+    private final int[] ownershipOwners;
+
+    private RegisterSnapshot(long lsn, String[] breeds, String[] ownerNames, String[] dogNames, int[] dogBreeds, int[] dogAges, int[] dogWeights,
+                             int[] ownershipDogs, int[] ownershipOwners) {
+        this.lsn = lsn;
+        this.breeds = breeds;
+        this.ownerNames = ownerNames;
+        this.dogNames = dogNames;
+        this.dogBreeds = dogBreeds;
+        this.dogAges = dogAges;
+        this.dogWeights = dogWeights;
+        this.ownershipDogs = ownershipDogs;
+        this.ownershipOwners = ownershipOwners;
+    }
+
+    public long getLsn() {
+        return this.lsn;
+    }
+
+    public int getDogCount() {
+        return this.dogNames.length;
+    }
+
+    public int getOwnerCount() {
+        return this.ownerNames.length;
+    }
+
+    /**
+     * Copies all dogs, owners and ownerships in the collections.
+     *
+     * @param dogCollection the dogs to copy.
+     * @param ownerCollection the owners to copy.
+     * @param lsn the LSN of the last logged change in the collections, or 0 if there is no log.
+     * @return the snapshot.
+     */
+    public static RegisterSnapshot capture(DogCollection dogCollection, OwnerCollection ownerCollection, long lsn) {
+        List<Owner> owners = ownerCollection.getOwners();
+        List<Dog> dogs = dogCollection.getDogs();
+
+        String[] ownerNames = new String[owners.size()];
+        for (int i = 0; i < ownerNames.length; i++) {
+            ownerNames[i] = owners.get(i).getName();
+        }
+
+        // Only the breeds that are used are written, numbered in the order they are found.
+        ArrayList<String> breeds = new ArrayList<>();
+        HashMap<Integer, Integer> breedIndexes = new HashMap<>();
+
+        String[] dogNames = new String[dogs.size()];
+        int[] dogBreeds = new int[dogNames.length];
+        int[] dogAges = new int[dogNames.length];
+        int[] dogWeights = new int[dogNames.length];
+        IdentityHashMap<Dog, Integer> dogIndexes = new IdentityHashMap<>(dogNames.length);
+
+        for (int i = 0; i < dogNames.length; i++) {
+            Dog dog = dogs.get(i);
+            dogNames[i] = dog.getName();
+            dogAges[i] = dog.getAge();
+            dogWeights[i] = dog.getWeight();
+            dogIndexes.put(dog, i);
+
+            dogBreeds[i] = breedIndexes.computeIfAbsent(dog.getBreedId(), id -> {
+                breeds.add(dog.getBreed());
+                return breeds.size() - 1;
+            });
+        }
+
+        // The dogs of each owner in the order the owner got them. Dogs that aren't in the dog collection are left out.
+        IntList ownershipDogs = new IntList();
+        IntList ownershipOwners = new IntList();
+        for (int i = 0; i < ownerNames.length; i++) {
+            for (Dog dog : owners.get(i).getDogs()) {
+                Integer dogIndex = dogIndexes.get(dog);
+                if (dogIndex == null) continue;
+
+                ownershipDogs.add(dogIndex);
+                ownershipOwners.add(i);
+            }
+        }
+
+        return new RegisterSnapshot(lsn, breeds.toArray(new String[0]), ownerNames, dogNames, dogBreeds, dogAges, dogWeights,
+                ownershipDogs.toArray(), ownershipOwners.toArray());
+    }
+
+    /**
+     * Adds the dogs, owners and ownerships in the snapshot to the collections.
+     * Dogs and owners that are already in the collections are skipped.
+     *
+     * @param dogCollection the collection to add the dogs to.
+     * @param ownerCollection the collection to add the owners to.
+     */
+    public void restore(DogCollection dogCollection, OwnerCollection ownerCollection) {
+        ArrayList<Owner> owners = new ArrayList<>(this.ownerNames.length);
+        for (String ownerName : this.ownerNames) {
+            owners.add(new Owner(ownerName));
+        }
+
+        ArrayList<Dog> dogs = new ArrayList<>(this.dogNames.length);
+        for (int i = 0; i < this.dogNames.length; i++) {
+            dogs.add(new Dog(this.dogNames[i], this.breeds[this.dogBreeds[i]], this.dogAges[i], this.dogWeights[i]));
+        }
+
+        ownerCollection.addAll(owners);
+        dogCollection.addAll(dogs);
+
+        // Give the dogs to their owners in the order the owners got them, unless they were already registered.
+        for (int i = 0; i < this.ownershipDogs.length; i++) {
+            Dog dog = dogs.get(this.ownershipDogs[i]);
+            Owner owner = owners.get(this.ownershipOwners[i]);
+            if (dogCollection.getDog(dog.getName()) == dog && ownerCollection.getOwner(owner.getName()) == owner) dog.setOwner(owner);
+        }
+    }
+
+    /**
+     * Writes the snapshot to a file, replacing the file if it exists.
+     * The snapshot is written to a temporary file next to it first, so a
+     * crash while writing leaves the old file in place.
+     *
+     * @param path the file to write.
+     * @return the number of bytes written.
+     * @throws IOException if the file can't be written.
+     */
+    public long write(Path path) throws IOException {
+        Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        long bytesWritten;
+
+        try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            SnapshotOutput output = new SnapshotOutput(channel);
+
+            output.putInt(MAGIC);
+            output.putInt(VERSION);
+            output.putLong(this.lsn);
+
+            output.putInt(this.breeds.length);
+            for (String breed : this.breeds) {
+                output.putString(breed);
+            }
+
+            output.putInt(this.ownerNames.length);
+            for (String ownerName : this.ownerNames) {
+                output.putString(ownerName);
+            }
+
+            output.putInt(this.dogNames.length);
+            for (int i = 0; i < this.dogNames.length; i++) {
+                output.putString(this.dogNames[i]);
+                output.putInt(this.dogBreeds[i]);
+                output.putInt(this.dogAges[i]);
+                output.putInt(this.dogWeights[i]);
+            }
+
+            output.putInt(this.ownershipDogs.length);
+            for (int i = 0; i < this.ownershipDogs.length; i++) {
+                output.putInt(this.ownershipDogs[i]);
+                output.putInt(this.ownershipOwners[i]);
+            }
+
+            output.finish();
+            channel.force(true);
+            bytesWritten = channel.size();
+        }
+
+        DurableFiles.replace(temporaryPath, path);
+        return bytesWritten;
+    }
+
+    /**
+     * Reads a snapshot from a file.
+     *
+     * @param path the file to read.
+     * @return the snapshot.
+     * @throws IOException if the file can't be read or isn't a snapshot in a known version.
+     */
+    public static RegisterSnapshot read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Error: " + path + " is too large to be a snapshot.");
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            try {
+                if (buffer.getInt() != MAGIC) throw new IOException("Error: " + path + " is not a snapshot.");
+
+                int version = buffer.getInt();
+                if (version < 1 || version > VERSION) throw new IOException("Error: snapshot version " + version + " is not supported.");
+
+                if (version >= 3) checkCrc(buffer, path);
+
+                long lsn = version >= 2 ? buffer.getLong() : 0;
+
+                String[] breeds = new String[readCount(buffer, Integer.BYTES)];
+                for (int i = 0; i < breeds.length; i++) {
+                    breeds[i] = getString(buffer);
+                }
+
+                String[] ownerNames = new String[readCount(buffer, Integer.BYTES)];
+                for (int i = 0; i < ownerNames.length; i++) {
+                    ownerNames[i] = getString(buffer);
+                }
+
+                // A name length, breed, age and weight, and in older versions the owner.
+                int dogCount = readCount(buffer, (version < 3 ? 5 : 4) * Integer.BYTES);
+                String[] dogNames = new String[dogCount];
+                int[] dogBreeds = new int[dogCount];
+                int[] dogAges = new int[dogCount];
+                int[] dogWeights = new int[dogCount];
+                IntList ownershipDogs = new IntList();
+                IntList ownershipOwners = new IntList();
+
+                for (int i = 0; i < dogCount; i++) {
+                    dogNames[i] = getString(buffer);
+                    dogBreeds[i] = readIndex(buffer, breeds.length, false);
+                    dogAges[i] = buffer.getInt();
+                    dogWeights[i] = buffer.getInt();
+
+                    // Older versions keep the owner with the dog, so the owners get their dogs in name order.
+                    if (version < 3) {
+                        int owner = readIndex(buffer, ownerNames.length, true);
+                        if (owner == -1) continue;
+
+                        ownershipDogs.add(i);
+                        ownershipOwners.add(owner);
+                    }
+                }
+
+                if (version >= 3) {
+                    int ownershipCount = readCount(buffer, 2 * Integer.BYTES);
+                    for (int i = 0; i < ownershipCount; i++) {
+                        ownershipDogs.add(readIndex(buffer, dogCount, false));
+                        ownershipOwners.add(readIndex(buffer, ownerNames.length, false));
+                    }
+                }
+
+                if (buffer.hasRemaining()) throw new IOException("Error: " + path + " is damaged, it has bytes after the ownerships.");
+
+                return new RegisterSnapshot(lsn, breeds, ownerNames, dogNames, dogBreeds, dogAges, dogWeights,
+                        ownershipDogs.toArray(), ownershipOwners.toArray());
+            } catch (RuntimeException e) {
+                // Reading past the end, or a negative length, means the file is damaged.
+                throw new IOException("Error: " + path + " is damaged.", e);
+            }
+        }
+    }
+
+    /**
+     * Helper method that checks the CRC at the end of the file against the bytes
+     * before it, and leaves the CRC out of what is read after it.
+     */
+    private static void checkCrc(ByteBuffer buffer, Path path) throws IOException {
+        int end = buffer.limit() - Integer.BYTES;
+        if (end < buffer.position()) throw new IOException("Error: " + path + " is damaged.");
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(0).limit(end));
+        if ((int) crc.getValue() != buffer.getInt(end)) throw new IOException("Error: " + path + " is damaged, its CRC doesn't match.");
+
+        buffer.limit(end);
+    }
+
+    /**
+     * Helper method that reads a count and checks that it's not negative, and that
+     * the file has room for that many items of at least the given number of bytes,
+     * so a damaged count can't allocate more than the file could hold.
+     */
+    private static int readCount(ByteBuffer buffer, int itemBytes) throws IOException {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / itemBytes) throw new IOException("Error: count " + count + " is out of range in snapshot.");
+        return count;
+    }
+
+    /**
+     * Helper method that reads a breed, owner or dog position and checks that it's in range.
+     */
+    private static int readIndex(ByteBuffer buffer, int count, boolean allowNone) throws IOException {
+        int index = buffer.getInt();
+        if ((index == -1 && allowNone) || (index >= 0 && index < count)) return index;
+
+        throw new IOException("Error: position " + index + " is out of range in snapshot.");
+    }
+
+    /**
+     * Helper method that reads a string and checks that its length fits in what is left of the file.
+     */
+    private static String getString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) throw new IOException("Error: string length " + length + " is out of range in snapshot.");
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Buffered output to a snapshot file, that keeps the CRC of everything
+     * written so far and writes it last.
+     */
+    private static class SnapshotOutput {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+
+        SnapshotOutput(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            if (this.buffer.remaining() < Integer.BYTES) flush();
+            this.buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            if (this.buffer.remaining() < Long.BYTES) flush();
+            this.buffer.putLong(value);
+        }
+
+        /**
+         * Writes a string as its UTF-8 length and bytes.
+         * Strings larger than the buffer are written straight to the channel.
+         */
+        void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+
+            if (this.buffer.remaining() < bytes.length) flush();
+
+            if (bytes.length > this.buffer.capacity()) writeFully(ByteBuffer.wrap(bytes));
+            else this.buffer.put(bytes);
+        }
+
+        /**
+         * Writes the CRC of everything before it and flushes the buffer.
+         */
+        void finish() throws IOException {
+            flush();
+            this.buffer.putInt((int) this.crc.getValue());
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) this.channel.write(this.buffer);
+            this.buffer.clear();
+        }
+
+        private void flush() throws IOException {
+            this.buffer.flip();
+            writeFully(this.buffer);
+            this.buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer bytes) throws IOException {
+            this.crc.update(bytes.duplicate());
+            while (bytes.hasRemaining()) this.channel.write(bytes);
+        }
+    }
+
+    /**
+     * List of ints that grows by doubling, for the ownerships, whose number
+     * isn't known until all of them have been found.
+     */
+    private static class IntList {
+        private int[] values = new int[16];
+        private int size = 0;
+
+        void add(int value) {
+            if (this.size == this.values.length) this.values = Arrays.copyOf(this.values, this.size * 2);
+            this.values[this.size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(this.values, this.size);
+        }
+    }
+}
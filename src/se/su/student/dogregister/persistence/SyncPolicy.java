@@ -0,0 +1,17 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.persistence;
+
+/**
+ * When the "WriteAheadLog" forces its records to disk.
+ * EVERY_OP: before each commit returns, records committed at the same time share one sync.
+ * INTERVAL: every sync interval from a background thread, a crash loses at most one interval.
+ * OS: never, the records are written on each commit and the OS decides when they reach the disk.
+ */
+public enum SyncPolicy {
+    EVERY_OP,
+    INTERVAL,
+    OS
+}
@@ -0,0 +1,508 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.persistence;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of changes to the register, so changes made after the
+ * last snapshot can be replayed after a crash.
+ * <p>
+ * Each record gets a log sequence number (LSN) one higher than the record
+ * before it, and is written as:
+ * <pre>
+ * int length, int checksum, long lsn, byte operation, string name,
+ * [string breed or owner], [int age, int weight]
+ * </pre>
+ * where the checksum is a CRC-32 of the bytes after it. A record that is cut
+ * off or doesn't match its checksum marks the end of the log, since it can
+ * only come from a crash while writing, and is removed when the log is opened.
+ * <p>
+ * Appended records are collected in a buffer. The thread that syncs takes
+ * all records in the buffer, writes them with one write and forces them with
+ * one sync, so threads that commit at the same time share the sync (group commit).
+ * When the records are synced depends on the "SyncPolicy". If a write or a
+ * sync fails, part of a record may be in the file, and records written after
+ * it would never be replayed, so every append and commit after that fails too.
+ * <p>
+ * Records that are in a snapshot are removed by "compact", which keeps
+ * the records after the snapshot's LSN.
+ */
+public class WriteAheadLog implements Closeable {
+
+    // The length and checksum before each record.
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    // The smallest record: the LSN, the operation and an empty name.
+    private static final int MIN_RECORD_LENGTH = Long.BYTES + 1 + Integer.BYTES;
+
+    // The starting size of the buffers, they grow if the records don't fit.
+    private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+
+    private static final LogRecord.Operation[] OPERATIONS = LogRecord.Operation.values();
+
+    private final Path path;
+    // Replaced when the log is compacted, guarded by "flushLock".
+    private FileChannel channel;
+    private final SyncPolicy syncPolicy;
+    private final ScheduledExecutorService syncExecutor;
+
+    // The end of the records that were in the file when it was opened.
+    private final long recoveredLength;
+    private final long discardedBytes;
+
+    // Records that have been appended but not written, guarded by "this".
+    private ByteBuffer pendingBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private final CRC32 checksum = new CRC32();
+    private long lastLsn;
+
+    // Only one thread writes and syncs at a time, the other threads wait on this lock
+    // and find that their records were written by that thread.
+    private final Object flushLock = new Object();
+    private ByteBuffer flushBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private volatile long writtenLsn;
+    private volatile long durableLsn;
+
+    // The error from a write or sync that failed, reported on every append and commit after it.
+    private volatile IOException syncFailure;
+
+    private WriteAheadLog(Path path, FileChannel channel, SyncPolicy syncPolicy, long syncIntervalMillis,
+                          long recoveredLength, long discardedBytes, long lastLsn) {
+        this.path = path;
+        this.channel = channel;
+        this.syncPolicy = syncPolicy;
+        this.recoveredLength = recoveredLength;
+        this.discardedBytes = discardedBytes;
+        this.lastLsn = lastLsn;
+        this.writtenLsn = lastLsn;
+        this.durableLsn = lastLsn;
+
+        if (syncPolicy == SyncPolicy.INTERVAL) {
+            this.syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.syncExecutor.scheduleWithFixedDelay(this::backgroundSync, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.syncExecutor = null;
+        }
+    }
+
+    /**
+     * Opens a log file, creating it if it doesn't exist.
+     * Records at the end of the file that were cut off by a crash are removed.
+     *
+     * @param path the log file.
+     * @param startLsn the LSN of the last change in the snapshot the log is replayed on,
+     *                 new records get higher LSNs than this even if the log is empty.
+     * @param syncPolicy when records are forced to disk.
+     * @param syncIntervalMillis the time between syncs for SyncPolicy.INTERVAL.
+     * @return the log.
+     * @throws IOException if the file can't be opened or read.
+     */
+    public static WriteAheadLog open(Path path, long startLsn, SyncPolicy syncPolicy, long syncIntervalMillis) throws IOException {
+        if (syncPolicy == SyncPolicy.INTERVAL && syncIntervalMillis <= 0) throw new IllegalArgumentException("The sync interval must be positive.");
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            long fileLength = channel.size();
+            ByteBuffer buffer = map(channel, fileLength);
+            CRC32 checksum = new CRC32();
+
+            long lastLsn = startLsn;
+            ByteBuffer record;
+            while ((record = nextRecord(buffer, checksum)) != null) {
+                lastLsn = Math.max(lastLsn, record.getLong(0));
+            }
+
+            long recoveredLength = buffer.position();
+            if (recoveredLength < fileLength) {
+                channel.truncate(recoveredLength);
+                channel.force(true);
+            }
+
+            channel.position(recoveredLength);
+            return new WriteAheadLog(path, channel, syncPolicy, syncIntervalMillis, recoveredLength, fileLength - recoveredLength, lastLsn);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public Path getPath() {
+        return this.path;
+    }
+
+    public synchronized long getLastLsn() {
+        return this.lastLsn;
+    }
+
+    /**
+     * Gets the number of bytes that were removed from the end of the file
+     * when it was opened, because the last record was cut off.
+     *
+     * @return the number of bytes removed.
+     */
+    public long getDiscardedBytes() {
+        return this.discardedBytes;
+    }
+
+    /**
+     * Passes the records that were in the file when it was opened
+     * to the consumer, in the order they were appended.
+     *
+     * @param afterLsn only records with a higher LSN than this are passed on,
+     *                 usually the LSN of the snapshot the records are replayed on.
+     * @param consumer the consumer of the records.
+     * @return the number of records passed on.
+     * @throws IOException if the file can't be read or a record is damaged.
+     */
+    public int replay(long afterLsn, Consumer<LogRecord> consumer) throws IOException {
+        ByteBuffer buffer = map(this.channel, this.recoveredLength);
+        CRC32 checksum = new CRC32();
+        int replayed = 0;
+
+        ByteBuffer record;
+        while ((record = nextRecord(buffer, checksum)) != null) {
+            if (record.getLong(0) <= afterLsn) continue;
+
+            consumer.accept(decode(record));
+            replayed++;
+        }
+
+        return replayed;
+    }
+
+    /**
+     * Appends a record to the log buffer and gives it the next LSN.
+     * The record isn't durable until "commit" has been called with its LSN,
+     * so the caller can append while holding a lock that orders the changes,
+     * and commit after releasing it.
+     *
+     * @param record the record to append.
+     * @return the LSN of the record.
+     * @throws IOException if an earlier record couldn't be written.
+     */
+    public long append(LogRecord record) throws IOException {
+        IOException failure = this.syncFailure;
+        if (failure != null) throw failure;
+
+        synchronized (this) {
+            long lsn = ++this.lastLsn;
+            encode(record, lsn);
+            return lsn;
+        }
+    }
+
+    /**
+     * Appends records to the log buffer together, with no records from other
+     * threads in between, and gives them the next LSNs in order, see "append".
+     *
+     * @param records the records to append.
+     * @return the LSN of the last record.
+     * @throws IOException if an earlier record couldn't be written.
+     */
+    public long append(List<LogRecord> records) throws IOException {
+        IOException failure = this.syncFailure;
+        if (failure != null) throw failure;
+
+        synchronized (this) {
+            for (LogRecord record : records) {
+                encode(record, ++this.lastLsn);
+            }
+
+            return this.lastLsn;
+        }
+    }
+
+    /**
+     * Waits until the record with the LSN is as durable as the sync policy
+     * makes it: synced for EVERY_OP, written for OS and in the buffer for INTERVAL.
+     * Records appended by other threads up to then are written and synced with it.
+     *
+     * @param lsn the LSN of the record.
+     * @throws IOException if the record couldn't be written.
+     */
+    public void commit(long lsn) throws IOException {
+        switch (this.syncPolicy) {
+            case EVERY_OP -> flush(lsn, true);
+            case OS -> flush(lsn, false);
+            case INTERVAL -> {}
+        }
+    }
+
+    /**
+     * Writes all appended records and forces them to disk.
+     *
+     * @throws IOException if the records can't be written.
+     */
+    public void sync() throws IOException {
+        flush(getLastLsn(), true);
+    }
+
+    /**
+     * Removes the records up to and including an LSN from the log, once they
+     * are in a snapshot. The records after it are copied to a new file that
+     * replaces the log, and records can be appended while this is running.
+     *
+     * @param upToLsn the LSN of the last record to remove.
+     * @return the size of the log after compacting, in bytes.
+     * @throws IOException if the log can't be compacted.
+     */
+    public long compact(long upToLsn) throws IOException {
+        synchronized (this.flushLock) {
+            // Write all appended records, so the records to keep are all in the file.
+            flush(getLastLsn(), false);
+
+            long length = this.channel.size();
+            ByteBuffer buffer = map(this.channel, length);
+            CRC32 checksum = new CRC32();
+
+            long keepFrom = length;
+            int start = buffer.position();
+            ByteBuffer record;
+            while ((record = nextRecord(buffer, checksum)) != null) {
+                if (record.getLong(0) > upToLsn) {
+                    keepFrom = start;
+                    break;
+                }
+
+                start = buffer.position();
+            }
+
+            if (keepFrom == 0) return length;
+
+            Path temporaryPath = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+            try (FileChannel compacted = FileChannel.open(temporaryPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long position = keepFrom;
+                while (position < length) position += this.channel.transferTo(position, length - position, compacted);
+                compacted.force(true);
+            }
+
+            DurableFiles.replace(temporaryPath, this.path);
+            this.channel.close();
+            this.channel = FileChannel.open(this.path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.channel.position(this.channel.size());
+
+            // The records that were kept were forced with the new file.
+            this.durableLsn = this.writtenLsn;
+            return this.channel.size();
+        }
+    }
+
+    /**
+     * Gets the size of the log file, without the records that haven't been written yet.
+     *
+     * @return the size in bytes.
+     * @throws IOException if the size can't be read.
+     */
+    public long size() throws IOException {
+        synchronized (this.flushLock) {
+            return this.channel.size();
+        }
+    }
+
+    /**
+     * Syncs the appended records and closes the file.
+     *
+     * @throws IOException if the records can't be written.
+     */
+    @Override
+    public void close() throws IOException {
+        // Interrupting a thread that is writing to the file would close the file,
+        // so let a background sync that is running finish instead.
+        if (this.syncExecutor != null) {
+            this.syncExecutor.shutdown();
+            try {
+                this.syncExecutor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        try {
+            sync();
+        } finally {
+            synchronized (this.flushLock) {
+                this.channel.close();
+            }
+        }
+    }
+
+    /**
+     * Helper method that writes the appended records up to at least the LSN,
+     * unless another thread already did, and optionally forces them to disk.
+     * Records appended by other threads while waiting for the lock are written too.
+     */
+    private void flush(long lsn, boolean force) throws IOException {
+        synchronized (this.flushLock) {
+            if ((force ? this.durableLsn : this.writtenLsn) >= lsn) return;
+
+            IOException failure = this.syncFailure;
+            if (failure != null) throw failure;
+
+            // Swap the buffers, so appending can continue while the records are written.
+            long groupLsn;
+            synchronized (this) {
+                ByteBuffer records = this.pendingBuffer;
+                this.pendingBuffer = this.flushBuffer;
+                this.flushBuffer = records;
+                groupLsn = this.lastLsn;
+            }
+
+            try {
+                this.flushBuffer.flip();
+                while (this.flushBuffer.hasRemaining()) this.channel.write(this.flushBuffer);
+                this.writtenLsn = groupLsn;
+
+                if (force) {
+                    this.channel.force(false);
+                    this.durableLsn = groupLsn;
+                }
+            } catch (IOException e) {
+                // Part of a record may be in the file now, and replay stops there, so
+                // nothing may be written after it: the log fails for good instead.
+                this.syncFailure = e;
+                throw e;
+            } finally {
+                this.flushBuffer.clear();
+            }
+        }
+    }
+
+    /**
+     * Helper method that syncs from the background thread for SyncPolicy.INTERVAL.
+     * An error is kept by "flush" and reported on the next append.
+     */
+    private void backgroundSync() {
+        try {
+            sync();
+        } catch (IOException e) {
+            // Kept in "syncFailure".
+        }
+    }
+
+    /**
+     * Helper method that adds a record to the pending buffer.
+     * Must be called while holding the lock on "this".
+     */
+    private void encode(LogRecord record, long lsn) {
+        byte[] name = record.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] value = record.getValue() == null ? null : record.getValue().getBytes(StandardCharsets.UTF_8);
+        boolean hasNumbers = record.getOperation() == LogRecord.Operation.ADD_DOG;
+
+        int length = MIN_RECORD_LENGTH + name.length;
+        if (value != null) length += Integer.BYTES + value.length;
+        if (hasNumbers) length += 2 * Integer.BYTES;
+
+        ensurePendingCapacity(HEADER_SIZE + length);
+
+        int start = this.pendingBuffer.position();
+        this.pendingBuffer.putInt(length).putInt(0).putLong(lsn).put((byte) record.getOperation().ordinal());
+        this.pendingBuffer.putInt(name.length).put(name);
+        if (value != null) this.pendingBuffer.putInt(value.length).put(value);
+        if (hasNumbers) this.pendingBuffer.putInt(record.getAge()).putInt(record.getWeight());
+
+        this.checksum.reset();
+        this.checksum.update(this.pendingBuffer.array(), start + HEADER_SIZE, length);
+        this.pendingBuffer.putInt(start + Integer.BYTES, (int) this.checksum.getValue());
+    }
+
+    /**
+     * Helper method that doubles the pending buffer until the bytes fit.
+     */
+    private void ensurePendingCapacity(int bytes) {
+        if (this.pendingBuffer.remaining() >= bytes) return;
+
+        int capacity = this.pendingBuffer.capacity();
+        while (capacity - this.pendingBuffer.position() < bytes) capacity *= 2;
+
+        ByteBuffer larger = ByteBuffer.allocate(capacity);
+        this.pendingBuffer.flip();
+        larger.put(this.pendingBuffer);
+        this.pendingBuffer = larger;
+    }
+
+    /**
+     * Helper method that maps the start of a file, or returns an empty buffer for an empty file.
+     */
+    private static ByteBuffer map(FileChannel channel, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) throw new IOException("Error: the log is too large to be read.");
+        if (length == 0) return ByteBuffer.allocate(0);
+
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+    }
+
+    /**
+     * Helper method that reads the next record and checks its length and checksum.
+     *
+     * @param buffer the log, positioned at the start of a record.
+     * @param checksum the checksum to use.
+     * @return the bytes of the record after the header, or null if there is no complete record.
+     */
+    private static ByteBuffer nextRecord(ByteBuffer buffer, CRC32 checksum) {
+        int start = buffer.position();
+        if (buffer.remaining() < HEADER_SIZE) return null;
+
+        int length = buffer.getInt(start);
+        if (length < MIN_RECORD_LENGTH || length > buffer.remaining() - HEADER_SIZE) return null;
+
+        ByteBuffer record = buffer.slice(start + HEADER_SIZE, length);
+        checksum.reset();
+        checksum.update(record.duplicate());
+        if ((int) checksum.getValue() != buffer.getInt(start + Integer.BYTES)) return null;
+
+        buffer.position(start + HEADER_SIZE + length);
+        return record;
+    }
+
+    /**
+     * Helper method that creates a record from its bytes.
+     */
+    private static LogRecord decode(ByteBuffer record) throws IOException {
+        try {
+            record.position(Long.BYTES);
+
+            int code = record.get();
+            if (code < 0 || code >= OPERATIONS.length) throw new IOException("Error: unknown operation " + code + " in the log.");
+            LogRecord.Operation operation = OPERATIONS[code];
+
+            String name = getString(record);
+            String value = null;
+            int age = 0;
+            int weight = 0;
+
+            if (operation == LogRecord.Operation.ADD_DOG || operation == LogRecord.Operation.GIVE_DOG_TO_OWNER) value = getString(record);
+            if (operation == LogRecord.Operation.ADD_DOG) {
+                age = record.getInt();
+                weight = record.getInt();
+            }
+
+            return new LogRecord(operation, name, value, age, weight);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("Error: a record in the log is damaged.", e);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,235 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.query;
+import java.util.Locale;
+import se.su.student.dogregister.util.Utilities;
+
+/**
+ * A query for dogs, written as terms separated by spaces, such as
+ * "breed=german shepherd age=2..5 tail=3.5.. sort=tail limit=10".
+ * Terms:
+ * "breed=BREED" only dogs of the breed.
+ * "age=RANGE", "weight=RANGE" and "tail=RANGE" only dogs with the value in the range,
+ * such as "2..5", "2.." or "..5" with both ends included, or a single value such as "3".
+ * "owner=NAME" only dogs owned by the owner.
+ * "name=PREFIX" only dogs with a name that starts with the prefix, in any case.
+ * "sort=name|tail|age|weight" sorts the dogs, the default is name.
+ * "limit=N" only the first N dogs.
+ * A value can have spaces in it, it ends where the next term starts.
+ * A query without terms finds every dog.
+ */
+public class DogQuery {
+    private static final String[] TERMS = {"breed", "age", "weight", "tail", "owner", "name", "sort", "limit"};
+
+    private String breed = null;
+    private int minAge = Integer.MIN_VALUE;
+    private int maxAge = Integer.MAX_VALUE;
+    private int minWeight = Integer.MIN_VALUE;
+    private int maxWeight = Integer.MAX_VALUE;
+    private double minTailLength = Double.NEGATIVE_INFINITY;
+    private double maxTailLength = Double.POSITIVE_INFINITY;
+    private String owner = null;
+    private String namePrefix = null;
+    private SortKey sortKey = SortKey.NAME;
+    private int limit = Integer.MAX_VALUE;
+
+    /**
+     * Gets the breed the dogs must have.
+     *
+     * @return the title cased breed, or null for any breed.
+     */
+    public String getBreed() {
+        return this.breed;
+    }
+
+    public int getMinAge() {
+        return this.minAge;
+    }
+
+    public int getMaxAge() {
+        return this.maxAge;
+    }
+
+    public int getMinWeight() {
+        return this.minWeight;
+    }
+
+    public int getMaxWeight() {
+        return this.maxWeight;
+    }
+
+    public double getMinTailLength() {
+        return this.minTailLength;
+    }
+
+    public double getMaxTailLength() {
+        return this.maxTailLength;
+    }
+
+    /**
+     * Checks if the query limits the tail length.
+     *
+     * @return true if the query has a tail length range.
+     */
+    public boolean hasTailRange() {
+        return this.minTailLength != Double.NEGATIVE_INFINITY || this.maxTailLength != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Gets the owner the dogs must have.
+     *
+     * @return the name of the owner, or null for dogs with or without any owner.
+     */
+    public String getOwner() {
+        return this.owner;
+    }
+
+    /**
+     * Gets the start of the names of the dogs.
+     *
+     * @return the title cased prefix, or null for any name.
+     */
+    public String getNamePrefix() {
+        return this.namePrefix;
+    }
+
+    public SortKey getSortKey() {
+        return this.sortKey;
+    }
+
+    /**
+     * Gets the largest number of dogs in the result.
+     *
+     * @return the limit, or "Integer.MAX_VALUE" if there is no limit.
+     */
+    public int getLimit() {
+        return this.limit;
+    }
+
+    /**
+     * Parses a query.
+     *
+     * @param text the query.
+     * @return the query.
+     * @throws IllegalArgumentException if a term is unknown or has an invalid value,
+     *                                  with a message that can be shown to the user.
+     */
+    public static DogQuery parse(String text) {
+        DogQuery query = new DogQuery();
+        String term = null;
+        StringBuilder value = new StringBuilder();
+
+        for (String word : text.strip().split("\\s+")) {
+            if (word.isEmpty()) continue;
+
+            String wordTerm = findTerm(word);
+            if (wordTerm != null) {
+                if (term != null) query.set(term, value.toString());
+
+                term = wordTerm;
+                value.setLength(0);
+                value.append(word, term.length() + 1, word.length());
+            } else if (term != null) {
+                value.append(' ').append(word);
+            } else {
+                throw new IllegalArgumentException("Error: unknown query term " + word + ".");
+            }
+        }
+
+        if (term != null) query.set(term, value.toString());
+        return query;
+    }
+
+    /**
+     * Helper method that finds the term that a word starts, such as "age" for "age=2..5".
+     *
+     * @param word the word.
+     * @return the term, or null if the word doesn't start a term.
+     */
+    private static String findTerm(String word) {
+        int equals = word.indexOf('=');
+        if (equals == -1) return null;
+
+        String name = word.substring(0, equals).toLowerCase(Locale.ROOT);
+        for (String term : TERMS) {
+            if (term.equals(name)) return term;
+        }
+
+        return null;
+    }
+
+    /**
+     * Helper method that sets the value of a term.
+     */
+    private void set(String term, String value) {
+        if (value.isEmpty()) throw invalidValue(term, value);
+
+        try {
+            switch (term) {
+                case "breed" -> this.breed = Utilities.toTitleCase(value);
+                case "age" -> {
+                    this.minAge = parseInt(lowerEnd(value), Integer.MIN_VALUE);
+                    this.maxAge = parseInt(upperEnd(value), Integer.MAX_VALUE);
+                }
+                case "weight" -> {
+                    this.minWeight = parseInt(lowerEnd(value), Integer.MIN_VALUE);
+                    this.maxWeight = parseInt(upperEnd(value), Integer.MAX_VALUE);
+                }
+                case "tail" -> {
+                    this.minTailLength = parseDouble(lowerEnd(value), Double.NEGATIVE_INFINITY);
+                    this.maxTailLength = parseDouble(upperEnd(value), Double.POSITIVE_INFINITY);
+                }
+                case "owner" -> this.owner = value;
+                case "name" -> this.namePrefix = Utilities.toTitleCase(value);
+                case "sort" -> this.sortKey = SortKey.valueOf(value.toUpperCase(Locale.ROOT));
+                case "limit" -> {
+                    this.limit = Integer.parseInt(value);
+                    if (this.limit < 1) throw invalidValue(term, value);
+                }
+                default -> throw new IllegalStateException("Unknown term " + term + ".");
+            }
+        } catch (IllegalArgumentException e) {
+            // Also thrown for numbers and sort keys that can't be parsed.
+            throw invalidValue(term, value);
+        }
+    }
+
+    /**
+     * Helper method that gets the start of a range, such as "2" for "2..5", or the whole value if it isn't a range.
+     */
+    private static String lowerEnd(String range) {
+        int dots = range.indexOf("..");
+        return dots == -1 ? range : range.substring(0, dots);
+    }
+
+    /**
+     * Helper method that gets the end of a range, such as "5" for "2..5", or the whole value if it isn't a range.
+     */
+    private static String upperEnd(String range) {
+        int dots = range.indexOf("..");
+        return dots == -1 ? range : range.substring(dots + 2);
+    }
+
+    /**
+     * Helper method that parses an integer, or gives the default for an open end of a range.
+     */
+    private static int parseInt(String value, int openEnd) {
+        return value.isBlank() ? openEnd : Integer.parseInt(value.strip());
+    }
+
+    /**
+     * Helper method that parses a number written with "." or ",", or gives the default for an open end of a range.
+     */
+    private static double parseDouble(String value, double openEnd) {
+        return value.isBlank() ? openEnd : Double.parseDouble(value.strip().replace(',', '.'));
+    }
+
+    /**
+     * Helper method that creates the exception for an invalid value.
+     */
+    private static IllegalArgumentException invalidValue(String term, String value) {
+        return new IllegalArgumentException("Error: invalid value " + value + " for " + term + ".");
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.query;
+
+/**
+ * Where a "QueryPlan" reads the dogs from, before the rest of the query filters them.
+ * OWNER: the dogs of the owner.
+ * NAME_PREFIX: the dogs with the name prefix, from the name view, sorted by name.
+ * BREED: the dogs of the breed, from the breed index, sorted by name.
+ * TAIL_RANGE: the dogs in the tail length range, from the tail length index, sorted by tail length and name.
+ * SCAN: every dog in the store, tested on the numbers of the query, and then sorted by name.
+ */
+public enum QueryIndex {
+    OWNER,
+    NAME_PREFIX,
+    BREED,
+    TAIL_RANGE,
+    SCAN
+}
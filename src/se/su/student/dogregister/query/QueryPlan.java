@@ -0,0 +1,86 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.query;
+import java.util.ArrayList;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import se.su.student.dogregister.comparators.DogNameComparator;
+import se.su.student.dogregister.data.Dog;
+import se.su.student.dogregister.sorter.DogSorter;
+import se.su.student.dogregister.sorter.SortAlgorithm;
+
+/**
+ * How a "DogQuery" is answered, chosen by the "QueryPlanner".
+ * The dogs are read from one index, and the query then filters them
+ * on everything, including what the index already matched.
+ * If the index is sorted the way the query wants, the dogs are read lazily
+ * and reading stops at the limit, otherwise every match is read and sorted.
+ */
+public class QueryPlan {
+    private final DogQuery query;
+    private final QueryIndex index;
+    private final long estimatedDogs;
+    private final Supplier<Stream<Dog>> source;
+    private final SortKey sourceOrder;
+    private final Predicate<Dog> filter;
+
+    /**
+     * Creates a plan.
+     *
+     * @param query the query.
+     * @param index the index to read the dogs from.
+     * @param estimatedDogs the number of dogs that the index gives, or the number of dogs in the store for a scan.
+     * @param source the dogs of the index, which is read once when the plan is executed.
+     * @param sourceOrder the order of the dogs of the index, or null if they aren't sorted.
+     * @param filter the whole query as a filter.
+     */
+    QueryPlan(DogQuery query, QueryIndex index, long estimatedDogs, Supplier<Stream<Dog>> source, SortKey sourceOrder, Predicate<Dog> filter) {
+        this.query = query;
+        this.index = index;
+        this.estimatedDogs = estimatedDogs;
+        this.source = source;
+        this.sourceOrder = sourceOrder;
+        this.filter = filter;
+    }
+
+    public QueryIndex getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Gets the number of dogs that are read from the index.
+     *
+     * @return the number of dogs, which may have changed since the plan was made.
+     */
+    public long getEstimatedDogs() {
+        return this.estimatedDogs;
+    }
+
+    /**
+     * Reads the dogs that match the query, sorted the way the query wants.
+     * Doesn't wait for changes, a dog that is changed while the query runs may or may not be in the result.
+     *
+     * @return the dogs, at most as many as the limit of the query.
+     */
+    public ArrayList<Dog> execute() {
+        Stream<Dog> matches = this.source.get().filter(this.filter);
+
+        if (this.sourceOrder == this.query.getSortKey()) {
+            return matches.limit(this.query.getLimit()).collect(Collectors.toCollection(ArrayList::new));
+        }
+
+        ArrayList<Dog> dogs = matches.collect(Collectors.toCollection(ArrayList::new));
+
+        // Sorting by name and then by the key with a stable radix sort reads the key of each dog once,
+        // so a dog that gets older during the sort can't make the comparisons disagree.
+        if (this.sourceOrder != SortKey.NAME) DogSorter.sortDogs(DogNameComparator.INSTANCE, dogs, SortAlgorithm.MERGE);
+        if (this.query.getSortKey().getKey() != null) DogSorter.sortDogsByKey(this.query.getSortKey().getKey(), dogs, null);
+
+        if (dogs.size() > this.query.getLimit()) dogs.subList(this.query.getLimit(), dogs.size()).clear();
+        return dogs;
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.query;
+import java.util.ArrayList;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import se.su.student.dogregister.collections.DogCollection;
+import se.su.student.dogregister.collections.DogFilter;
+import se.su.student.dogregister.collections.OwnerCollection;
+import se.su.student.dogregister.data.BreedDictionary;
+import se.su.student.dogregister.data.Dog;
+import se.su.student.dogregister.data.Owner;
+import se.su.student.dogregister.util.Utilities;
+
+/**
+ * Chooses how to answer a "DogQuery".
+ * Every index that the query can use is a candidate: the dogs of the owner,
+ * the name view for a name prefix, the breed index and the tail length index.
+ * The candidate that gives the fewest dogs is chosen, and if no candidate
+ * gives few enough dogs, every dog in the store is scanned instead.
+ * <p>
+ * The owner and breed candidates are counted from the counts the owner and the
+ * breed index keep, and the tail length candidate from the counts the tail length
+ * index keeps for each tail length, so counting them doesn't read any dogs. A name
+ * prefix has no count, so its dogs are read from the name view, but never more than
+ * the fewest dogs found so far, which is at most the number of dogs divided by
+ * "SCAN_SPEEDUP". That is the one case where choosing reads dogs that the chosen
+ * plan may not use.
+ */
+public class QueryPlanner {
+
+    // Scanning the store tests a dog several times faster than reading it from a sorted view,
+    // so an index is only used if it gives fewer dogs than the number of dogs divided by this.
+    private static final int SCAN_SPEEDUP = 4;
+
+    private final DogCollection dogCollection;
+    private final OwnerCollection ownerCollection;
+
+    public QueryPlanner(DogCollection dogCollection, OwnerCollection ownerCollection) {
+        this.dogCollection = dogCollection;
+        this.ownerCollection = ownerCollection;
+    }
+
+    /**
+     * Chooses how to answer the query.
+     *
+     * @param query the query.
+     * @return the plan.
+     */
+    public QueryPlan plan(DogQuery query) {
+        // An unknown breed is -1, which no dog has.
+        int breedId = query.getBreed() == null ? -1 : BreedDictionary.find(query.getBreed());
+        Predicate<Dog> filter = toFilter(query, breedId);
+
+        ArrayList<Candidate> candidates = new ArrayList<>();
+        if (query.getOwner() != null) {
+            Owner owner = this.ownerCollection.getOwner(query.getOwner());
+            candidates.add(new Candidate(QueryIndex.OWNER, () -> owner == null ? Stream.empty() : owner.getDogs().stream(), null,
+                    limit -> owner == null ? 0 : owner.getDogCount()));
+        }
+        if (query.getNamePrefix() != null) {
+            candidates.add(new Candidate(QueryIndex.NAME_PREFIX, () -> this.dogCollection.streamDogsWithNamePrefix(query.getNamePrefix()), SortKey.NAME));
+        }
+        if (query.getBreed() != null) {
+            candidates.add(new Candidate(QueryIndex.BREED, () -> this.dogCollection.streamDogsOfBreed(breedId), SortKey.NAME,
+                    limit -> this.dogCollection.countDogsOfBreed(breedId)));
+        }
+        if (query.hasTailRange()) {
+            candidates.add(new Candidate(QueryIndex.TAIL_RANGE,
+                    () -> this.dogCollection.streamDogsWithTailBetween(query.getMinTailLength(), query.getMaxTailLength()), SortKey.TAIL,
+                    limit -> this.dogCollection.countDogsWithTailBetween(query.getMinTailLength(), query.getMaxTailLength(), limit)));
+        }
+
+        int dogCount = this.dogCollection.size();
+        QueryPlan best = new QueryPlan(query, QueryIndex.SCAN, dogCount,
+                () -> this.dogCollection.getDogsMatching(toDogFilter(query, breedId)).stream(), SortKey.NAME, filter);
+        long fewestDogs = dogCount / SCAN_SPEEDUP;
+
+        for (Candidate candidate : candidates) {
+            // Counting more dogs than the best so far is pointless, since the candidate isn't used then.
+            long count = candidate.count != null ? candidate.count.applyAsLong(fewestDogs) : candidate.source.get().limit(fewestDogs + 1).count();
+            if (count > fewestDogs) continue;
+
+            best = new QueryPlan(query, candidate.index, count, candidate.source, candidate.order, filter);
+            fewestDogs = count;
+        }
+
+        return best;
+    }
+
+    /**
+     * Chooses how to answer the query and answers it.
+     *
+     * @param query the query.
+     * @return the dogs that match the query, see "QueryPlan.execute".
+     */
+    public ArrayList<Dog> execute(DogQuery query) {
+        return plan(query).execute();
+    }
+
+    /**
+     * Helper method that turns the whole query into a filter for dogs.
+     *
+     * @param query the query.
+     * @param breedId the id of the breed of the query, or -1 if the breed is unknown.
+     * @return the filter.
+     */
+    private static Predicate<Dog> toFilter(DogQuery query, int breedId) {
+        DogFilter numbers = toDogFilter(query, breedId);
+        String ownerKey = query.getOwner() == null ? null : Utilities.toNameKey(query.getOwner());
+        String namePrefix = query.getNamePrefix();
+
+        return dog -> {
+            if (!numbers.test(dog.getAge(), dog.getWeight(), dog.getTailLength(), dog.getBreedId())) return false;
+            if (namePrefix != null && !dog.getName().startsWith(namePrefix)) return false;
+            if (ownerKey == null) return true;
+
+            Owner owner = dog.getOwner();
+            return owner != null && Utilities.toNameKey(owner.getName()).equals(ownerKey);
+        };
+    }
+
+    /**
+     * Helper method that turns the breed and the ranges of the query into a filter
+     * that a store can test without reading the dogs, see "DogFilter".
+     *
+     * @param query the query.
+     * @param breedId the id of the breed of the query, or -1 if the breed is unknown.
+     * @return the filter.
+     */
+    private static DogFilter toDogFilter(DogQuery query, int breedId) {
+        boolean anyBreed = query.getBreed() == null;
+        int minAge = query.getMinAge();
+        int maxAge = query.getMaxAge();
+        int minWeight = query.getMinWeight();
+        int maxWeight = query.getMaxWeight();
+        double minTailLength = query.getMinTailLength();
+        double maxTailLength = query.getMaxTailLength();
+
+        return (age, weight, tailLength, dogBreedId) -> (anyBreed || dogBreedId == breedId)
+                && age >= minAge && age <= maxAge
+                && weight >= minWeight && weight <= maxWeight
+                && tailLength >= minTailLength && tailLength <= maxTailLength;
+    }
+
+    /**
+     * An index that a query can read its dogs from, before it's known how many dogs it gives.
+     */
+    private static class Candidate {
+        private final QueryIndex index;
+        private final Supplier<Stream<Dog>> source;
+        private final SortKey order;
+
+        // Counts the dogs without streaming them, given the count above which counting may stop,
+        // or null if they have to be counted from the stream.
+        private final LongUnaryOperator count;
+
+        Candidate(QueryIndex index, Supplier<Stream<Dog>> source, SortKey order, LongUnaryOperator count) {
+            this.index = index;
+            this.source = source;
+            this.order = order;
+            this.count = count;
+        }
+
+        Candidate(QueryIndex index, Supplier<Stream<Dog>> source, SortKey order) {
+            this(index, source, order, null);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.query;
+import java.util.function.ToDoubleFunction;
+import se.su.student.dogregister.data.Dog;
+
+/**
+ * What the result of a "DogQuery" is sorted by.
+ * Dogs with the same value are sorted by name, so the order is always the same.
+ */
+public enum SortKey {
+    NAME(null),
+    TAIL(Dog::getTailLength),
+    AGE(Dog::getAge),
+    WEIGHT(Dog::getWeight);
+
+    private final ToDoubleFunction<Dog> key;
+
+    SortKey(ToDoubleFunction<Dog> key) {
+        this.key = key;
+    }
+
+    /**
+     * Gets the value that dogs are sorted by after they are sorted by name.
+     *
+     * @return the value of a dog, or null when sorting only by name.
+     */
+    public ToDoubleFunction<Dog> getKey() {
+        return this.key;
+    }
+}
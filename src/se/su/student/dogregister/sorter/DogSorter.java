@@ -4,14 +4,22 @@
 
 package se.su.student.dogregister.sorter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.function.ToDoubleFunction;
 import se.su.student.dogregister.data.Dog;
 
 /**
  * Used to sort dogs in a list by using a comparator.
+ * The algorithm can be chosen with "SortAlgorithm",
+ * and dogs can also be sorted by a numeric key with a radix sort.
  */
 public class DogSorter {
 
+    // The number of bits sorted in each pass of the radix sort.
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX_BUCKETS = 1 << RADIX_BITS;
+
     /**
      * Swap the place of two dogs in the specified list.
      *
@@ -45,24 +53,163 @@ public class DogSorter {
     }
 
     /**
-     * Sorts the dogs in the provided list using the provided comparator.
-     * Counts the number of swaps and returns them.
+     * Sorts the dogs in the provided list using the provided comparator
+     * and selection sort. Counts the number of swaps and returns them.
      *
      * @param dogComparator the comparator to use.
      * @param dogList the list to sort.
      * @return the number of swaps.
      */
     public static int sortDogs(Comparator<Dog> dogComparator, ArrayList<Dog> dogList) {
-        int swapCounter = 0;
+        SortMetrics metrics = new SortMetrics();
+        sortDogs(dogComparator, dogList, SortAlgorithm.SELECTION, metrics);
+        return (int) metrics.getSwaps();
+    }
+
+    /**
+     * Sorts the dogs in the provided list using the provided comparator and algorithm.
+     *
+     * @param dogComparator the comparator to use.
+     * @param dogList the list to sort.
+     * @param algorithm the algorithm to sort with.
+     */
+    public static void sortDogs(Comparator<Dog> dogComparator, ArrayList<Dog> dogList, SortAlgorithm algorithm) {
+        sortDogs(dogComparator, dogList, algorithm, null);
+    }
+
+    /**
+     * Sorts the dogs in the provided list using the provided comparator and algorithm.
+     * If metrics are provided, the comparisons and swaps are counted in them.
+     *
+     * @param dogComparator the comparator to use.
+     * @param dogList the list to sort.
+     * @param algorithm the algorithm to sort with.
+     * @param metrics the metrics to count in, or null to not count anything.
+     */
+    public static void sortDogs(Comparator<Dog> dogComparator, ArrayList<Dog> dogList, SortAlgorithm algorithm, SortMetrics metrics) {
+        // Only wrap the comparator when there is something to count.
+        Comparator<Dog> comparator = dogComparator;
+        if (metrics != null) {
+            comparator = (dog, otherDog) -> {
+                metrics.addComparison();
+                return dogComparator.compare(dog, otherDog);
+            };
+        }
+
+        switch (algorithm) {
+            case SELECTION -> selectionSort(comparator, dogList, metrics);
+            case MERGE -> {
+                Dog[] dogs = dogList.toArray(new Dog[0]);
+                Arrays.sort(dogs, comparator);
+                copyBack(dogs, dogList);
+            }
+            case PARALLEL -> {
+                Dog[] dogs = dogList.toArray(new Dog[0]);
+                Arrays.parallelSort(dogs, comparator);
+                copyBack(dogs, dogList);
+            }
+        }
+    }
+
+    /**
+     * Sorts the dogs in the provided list by a numeric key, smallest key first.
+     * Uses a least significant digit radix sort, so the key is only read once
+     * per dog and no comparisons are made. The sort is stable, so sorting a
+     * list that is sorted by name by tail length gives a list sorted by
+     * tail length and name.
+     *
+     * @param keyExtractor the function that gives the key of a dog.
+     * @param dogList the list to sort.
+     * @param metrics the metrics to count the passes in, or null to not count anything.
+     */
+    public static void sortDogsByKey(ToDoubleFunction<Dog> keyExtractor, ArrayList<Dog> dogList, SortMetrics metrics) {
+        int size = dogList.size();
+        Dog[] dogs = dogList.toArray(new Dog[0]);
+        long[] keys = new long[size];
+
+        for (int i = 0; i < size; i++) {
+            keys[i] = toSortableBits(keyExtractor.applyAsDouble(dogs[i]));
+        }
 
+        Dog[] dogBuffer = new Dog[size];
+        long[] keyBuffer = new long[size];
+        int[] counts = new int[RADIX_BUCKETS];
+
+        for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+            Arrays.fill(counts, 0);
+            for (long key : keys) counts[(int) (key >>> shift) & (RADIX_BUCKETS - 1)]++;
+
+            // If all keys have the same digit, this pass wouldn't move anything.
+            if (size == 0 || counts[(int) (keys[0] >>> shift) & (RADIX_BUCKETS - 1)] == size) continue;
+
+            // Turn the counts into the start position of each bucket.
+            int position = 0;
+            for (int bucket = 0; bucket < RADIX_BUCKETS; bucket++) {
+                int count = counts[bucket];
+                counts[bucket] = position;
+                position += count;
+            }
+
+            for (int i = 0; i < size; i++) {
+                int target = counts[(int) (keys[i] >>> shift) & (RADIX_BUCKETS - 1)]++;
+                dogBuffer[target] = dogs[i];
+                keyBuffer[target] = keys[i];
+            }
+
+            Dog[] tempDogs = dogs;
+            dogs = dogBuffer;
+            dogBuffer = tempDogs;
+
+            long[] tempKeys = keys;
+            keys = keyBuffer;
+            keyBuffer = tempKeys;
+
+            if (metrics != null) metrics.addPass();
+        }
+
+        copyBack(dogs, dogList);
+    }
+
+    /**
+     * Helper method that sorts the list with selection sort.
+     *
+     * @param dogComparator the comparator to use.
+     * @param dogList the list to sort.
+     * @param metrics the metrics to count the swaps in, or null.
+     */
+    private static void selectionSort(Comparator<Dog> dogComparator, ArrayList<Dog> dogList, SortMetrics metrics) {
         for (int i = 0; i < dogList.size(); i++) {
             int smallestIndex = nextDog(dogComparator, dogList, i);
             if (smallestIndex != i) {
                 swapDogs(dogList, smallestIndex, i);
-                swapCounter++;
+                if (metrics != null) metrics.addSwap();
             }
         }
+    }
+
+    /**
+     * Helper method that writes the sorted dogs back into the list.
+     *
+     * @param dogs the sorted dogs.
+     * @param dogList the list to write to.
+     */
+    private static void copyBack(Dog[] dogs, ArrayList<Dog> dogList) {
+        for (int i = 0; i < dogs.length; i++) {
+            dogList.set(i, dogs[i]);
+        }
+    }
 
-        return swapCounter;
+    /**
+     * Helper method that converts a double to bits that sort
+     * in the same order as the double when compared as unsigned numbers.
+     * Positive numbers get the sign bit flipped, negative numbers get all bits flipped.
+     *
+     * @param key the double to convert.
+     * @return the sortable bits of the double.
+     */
+    private static long toSortableBits(double key) {
+        // Adding zero turns -0.0 into 0.0.
+        long bits = Double.doubleToLongBits(key + 0.0);
+        return bits ^ ((bits >> 63) | Long.MIN_VALUE);
     }
 }
@@ -0,0 +1,21 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.sorter;
+
+/**
+ * The comparator based algorithms that "DogSorter" can sort dogs with.
+ */
+public enum SortAlgorithm {
+
+    // Selection sort, sorts in place and counts swaps. Not stable, O(n^2).
+    SELECTION,
+
+    // TimSort (a stable merge sort) through "Arrays.sort". O(n log n).
+    MERGE,
+
+    // Stable parallel merge sort on the common fork-join pool through "Arrays.parallelSort".
+    // Falls back to a sequential sort for small lists.
+    PARALLEL
+}
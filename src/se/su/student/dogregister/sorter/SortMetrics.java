@@ -0,0 +1,57 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.sorter;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters that "DogSorter" can fill in while sorting.
+ * Pass an instance to a sort method to collect metrics,
+ * or null to sort without counting anything.
+ */
+public class SortMetrics {
+
+    // Comparisons can be counted from several threads during a parallel sort.
+    private final LongAdder comparisons = new LongAdder();
+    private long swaps;
+    private long passes;
+
+    public long getComparisons() {
+        return this.comparisons.sum();
+    }
+
+    public long getSwaps() {
+        return this.swaps;
+    }
+
+    public long getPasses() {
+        return this.passes;
+    }
+
+    /**
+     * Resets all counters to zero.
+     */
+    public void reset() {
+        this.comparisons.reset();
+        this.swaps = 0;
+        this.passes = 0;
+    }
+
+    void addComparison() {
+        this.comparisons.increment();
+    }
+
+    void addSwap() {
+        this.swaps++;
+    }
+
+    void addPass() {
+        this.passes++;
+    }
+
+    @Override
+    public String toString() {
+        return "SortMetrics [Comparisons: %d, Swaps: %d, Passes: %d]".formatted(getComparisons(), this.swaps, this.passes);
+    }
+}
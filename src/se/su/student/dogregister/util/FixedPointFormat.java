@@ -0,0 +1,142 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.util;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Formats numbers with a fixed number of decimals, the same as "%.2f" does
+ * for a locale, such as "9,00" in Swedish, but without parsing a format string
+ * and without creating a string for each number.
+ * A number that is the closest double to a number with that many decimals,
+ * such as every tail length, is written from a long. Other numbers, which need
+ * rounding, are passed on to "String.format".
+ * A format never changes, so it can be shared between threads.
+ */
+public class FixedPointFormat {
+    private static final int MAX_DECIMALS = 9;
+
+    // The shared formats for the default locale by number of decimals, made when first asked
+    // for and made again if the default locale has changed. Safe to race on, since formats don't change.
+    private static final FixedPointFormat[] DEFAULT_LOCALE_FORMATS = new FixedPointFormat[MAX_DECIMALS + 1];
+
+    private final int decimals;
+    private final long scale;
+    private final Locale locale;
+    private final char zeroDigit;
+    private final char decimalSeparator;
+
+    /**
+     * Creates a format.
+     *
+     * @param decimals the number of decimals, from 0 to 9.
+     * @param locale the locale that decides the decimal separator and the digits.
+     */
+    public FixedPointFormat(int decimals, Locale locale) {
+        checkDecimals(decimals);
+
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        this.decimals = decimals;
+        this.scale = (long) Math.pow(10, decimals);
+        this.locale = locale;
+        this.zeroDigit = symbols.getZeroDigit();
+        this.decimalSeparator = symbols.getDecimalSeparator();
+    }
+
+    /**
+     * Creates a format for the locale that "String.format" uses by default.
+     *
+     * @param decimals the number of decimals, from 0 to 9.
+     */
+    public FixedPointFormat(int decimals) {
+        this(decimals, Locale.getDefault(Locale.Category.FORMAT));
+    }
+
+    /**
+     * Gets a shared format for the locale that "String.format" uses by default,
+     * for formatting a number now and then without creating a format each time.
+     *
+     * @param decimals the number of decimals, from 0 to 9.
+     * @return the format.
+     */
+    public static FixedPointFormat getInstance(int decimals) {
+        checkDecimals(decimals);
+
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        FixedPointFormat format = DEFAULT_LOCALE_FORMATS[decimals];
+        if (format == null || !format.locale.equals(locale)) {
+            format = new FixedPointFormat(decimals, locale);
+            DEFAULT_LOCALE_FORMATS[decimals] = format;
+        }
+
+        return format;
+    }
+
+    /**
+     * Appends the number to the builder.
+     *
+     * @param builder the builder to append to.
+     * @param value the number.
+     * @return the builder.
+     */
+    public StringBuilder append(StringBuilder builder, double value) {
+        // Negative numbers, including -0.0, and numbers too large to scale exactly are left to the Formatter.
+        double scaledValue = value * this.scale;
+        if (Double.doubleToRawLongBits(value) < 0 || !(scaledValue < 1e15)) return builder.append(slowFormat(value));
+
+        long scaled = Math.round(scaledValue);
+        if (scaled / (double) this.scale != value) return builder.append(slowFormat(value));
+
+        int start = builder.length();
+        builder.append(scaled / this.scale);
+
+        if (this.decimals > 0) {
+            builder.append(this.decimalSeparator);
+
+            // The decimals one at a time, with leading zeros, such as "05".
+            long fraction = scaled % this.scale;
+            for (long power = this.scale / 10; power > 0; power /= 10) {
+                builder.append((char) ('0' + fraction / power % 10));
+            }
+        }
+
+        if (this.zeroDigit != '0') localizeDigits(builder, start);
+        return builder;
+    }
+
+    /**
+     * Formats the number.
+     *
+     * @param value the number.
+     * @return the formatted number.
+     */
+    public String format(double value) {
+        return append(new StringBuilder(), value).toString();
+    }
+
+    /**
+     * Helper method that formats a number with "String.format", which rounds it the way "%.2f" does.
+     */
+    private String slowFormat(double value) {
+        return String.format(this.locale, "%." + this.decimals + "f", value);
+    }
+
+    /**
+     * Helper method that replaces the ASCII digits from the index start with the digits of the locale.
+     */
+    private void localizeDigits(StringBuilder builder, int start) {
+        for (int i = start; i < builder.length(); i++) {
+            char c = builder.charAt(i);
+            if (c >= '0' && c <= '9') builder.setCharAt(i, (char) (this.zeroDigit + (c - '0')));
+        }
+    }
+
+    /**
+     * Helper method that checks that a format can have the number of decimals.
+     */
+    private static void checkDecimals(int decimals) {
+        if (decimals < 0 || decimals > MAX_DECIMALS) throw new IllegalArgumentException("Error: can't format with " + decimals + " decimals.");
+    }
+}
@@ -3,6 +3,7 @@
  */
 
 package se.su.student.dogregister.util;
+import java.util.Locale;
 
 /**
  * Different utility methods used for the dog register.
@@ -17,9 +18,22 @@ public class Utilities {
         String[] words = str.trim().split(" ");
 
         for (int i = 0; i < words.length; i++) {
+            // Two spaces in a row give an empty word.
+            if (words[i].isEmpty()) continue;
+
             words[i] = words[i].substring(0, 1).toUpperCase().concat(words[i].substring(1).toLowerCase());
         }
 
         return String.join(" ", words);
     }
+
+    /**
+     * Convert a name to the key used to look it up in a collection.
+     * Names are matched case-insensitively, so the key is the name in lowercase.
+     * @param name the name to convert.
+     * @return the lookup key for the name.
+     */
+    public static String toNameKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
 }
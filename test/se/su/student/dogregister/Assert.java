@@ -0,0 +1,62 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister;
+import java.util.Objects;
+
+/**
+ * Checks for the tests. A check that fails throws an "AssertionError"
+ * with a message that says what was expected, see "TestRunner".
+ */
+public final class Assert {
+
+    private Assert() {
+    }
+
+    /**
+     * Work for "assertThrows" that may throw anything.
+     */
+    @FunctionalInterface
+    public interface Work {
+        void run() throws Exception;
+    }
+
+    public static void assertTrue(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    public static void assertFalse(boolean condition, String message) {
+        if (condition) throw new AssertionError(message);
+    }
+
+    public static void assertEquals(Object expected, Object actual) {
+        if (!Objects.equals(expected, actual)) throw new AssertionError("expected <" + expected + "> but was <" + actual + ">");
+    }
+
+    public static void assertNull(Object actual) {
+        if (actual != null) throw new AssertionError("expected null but was <" + actual + ">");
+    }
+
+    public static void assertSame(Object expected, Object actual) {
+        if (expected != actual) throw new AssertionError("expected the same object as <" + expected + "> but was <" + actual + ">");
+    }
+
+    /**
+     * Checks that work throws an exception of a type.
+     *
+     * @param type the type of exception.
+     * @param work the work.
+     * @return the exception.
+     */
+    public static <T extends Throwable> T assertThrows(Class<T> type, Work work) {
+        try {
+            work.run();
+        } catch (Throwable e) {
+            if (type.isInstance(e)) return type.cast(e);
+            throw new AssertionError("expected " + type.getSimpleName() + " but was " + e, e);
+        }
+
+        throw new AssertionError("expected " + type.getSimpleName() + " but nothing was thrown");
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister;
+import static se.su.student.dogregister.Assert.assertEquals;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import se.su.student.dogregister.input.InputMode;
+import se.su.student.dogregister.input.InputReader;
+
+/**
+ * Tests the one-line commands of "DogRegister", such as "rnd Rex|Labrador|3|30",
+ * in both input modes, by running a session on a script and reading the replies.
+ */
+public class DogRegisterTest {
+
+    public void testAnswersOneLineCommandsInOrder() {
+        for (InputMode mode : InputMode.values()) {
+            List<String> replies = run(mode, """
+                    rnd Rex|Labrador|3|30
+                    rno Anna
+                    gdto Rex|Anna
+                    ia Rex
+                    ld 0
+                    rdfo Rex
+                    lo\s
+                    """);
+
+            assertEquals(List.of(
+                    "Rex has been added to the register.",
+                    "Anna has been added to the register.",
+                    "Rex is now owned by Anna.",
+                    "Rex is now one year older.",
+                    "Dogs in register:\nDog [Name: Rex, Breed: Labrador, Age: 4, Weight: 30, Tail length: 12.00, Owner: Anna]",
+                    "Rex no longer has an owner.",
+                    "Owners in register:\nOwner [Name: Anna, Dogs: None]"), replies);
+        }
+    }
+
+    public void testFailsCommandWithBadArgumentsWithoutTakingTheNextLine() {
+        for (InputMode mode : InputMode.values()) {
+            List<String> replies = run(mode, """
+                    rnd  |Tax|2|5
+                    rnd Amy|Tax|two|5
+                    rnd Bo|Tax
+                    rnd Rex|Labrador|3|30
+                    """);
+
+            assertEquals(List.of(
+                    "Error: Enter dog name can't be empty.",
+                    "Error: two is not a number.",
+                    "Error: too few arguments.",
+                    "Rex has been added to the register."), replies);
+        }
+    }
+
+    public void testPromptsForCommandOnItsOwn() {
+        for (InputMode mode : InputMode.values()) {
+            List<String> replies = run(mode, """
+                    rnd
+                    Max
+                    Poodle
+                    1
+                    2
+                    rd Max
+                    """);
+
+            assertEquals(List.of(
+                    "Enter dog name?> Enter dog breed?> Enter dog age?> Enter dog weight?> Max has been added to the register.",
+                    "Max has been removed from the register."), replies);
+        }
+    }
+
+    public void testPicksTheLongestCommand() {
+        List<String> replies = run(InputMode.STANDARD, """
+                rnd Rex|Labrador|3|30
+                rno Anna
+                give dog to owner Rex|Anna
+                remove dog from owner Rex
+                remove dog Rex
+                """);
+
+        assertEquals("Rex no longer has an owner.", replies.get(3));
+        assertEquals("Rex has been removed from the register.", replies.get(4));
+    }
+
+    public void testNextPagesListEveryDogOnceWhenTailLengthsTie() {
+        for (InputMode mode : InputMode.values()) {
+            for (boolean removeLast : new boolean[] {false, true}) {
+                RegisterEngine engine = registerWithDogs(mode);
+
+                // 17 dogs in 3 tail lengths, 2.10, 3.70 and 9.00, on pages of 4 that end inside a tail length.
+                List<String> listed = followPages(engine, mode, "ld 0|4", "Dog", removeLast ? "rd " : null);
+                assertEquals(List.of("Amy", "Cid", "Eve", "Gus", "Ivy", "Kim", "Ada", "Ben", "Olle",
+                        "Bo", "Dan", "Fia", "Hugo", "Jan", "Lo", "Max", "Ned"), listed);
+
+                // The last dog of each of the 5 pages was removed.
+                if (removeLast) assertEquals(1 + 12, run(engine, mode, "ld 0\n").get(0).split("\n").length);
+            }
+        }
+    }
+
+    public void testNextPagesListEveryOwnerOnce() {
+        for (InputMode mode : InputMode.values()) {
+            for (boolean removeLast : new boolean[] {false, true}) {
+                RegisterEngine engine = new RegisterEngine(new RegisterOptions(), new PrintStream(OutputStream.nullOutputStream()));
+                List<String> owners = List.of("Anna", "Bertil", "Cecilia", "David", "Erik", "Frida", "Gustav", "Hanna", "Ivar", "Jonna");
+                StringBuilder script = new StringBuilder();
+                for (String owner : owners) script.append("rno ").append(owner).append('\n');
+                run(engine, mode, script.toString());
+
+                // 10 owners on pages of 3, with the owner each page ended with removed before the next page when asked.
+                assertEquals(owners, followPages(engine, mode, "lo 3", "Owner", removeLast ? "ro " : null));
+            }
+        }
+    }
+
+    /**
+     * Helper method that registers 17 dogs whose tail lengths tie, 6 Labradors
+     * with tail length 2.10, 3 Tax with 3.70 and 8 Labradors with 9.00, so the
+     * names of each tail length are spread over the names of the others.
+     */
+    private static RegisterEngine registerWithDogs(InputMode mode) {
+        RegisterEngine engine = new RegisterEngine(new RegisterOptions(), new PrintStream(OutputStream.nullOutputStream()));
+        StringBuilder script = new StringBuilder();
+        for (String name : List.of("Bo", "Dan", "Fia", "Hugo", "Jan", "Lo", "Max", "Ned")) script.append("rnd ").append(name).append("|Labrador|3|30\n");
+        for (String name : List.of("Amy", "Cid", "Eve", "Gus", "Ivy", "Kim")) script.append("rnd ").append(name).append("|Labrador|3|7\n");
+        for (String name : List.of("Ada", "Ben", "Olle")) script.append("rnd ").append(name).append("|Tax|2|5\n");
+        run(engine, mode, script.toString());
+        return engine;
+    }
+
+    /**
+     * Helper method that lists the first page and then follows the "Next page" line
+     * of every page in a new session, as a client would.
+     *
+     * @param kind "Dog" or "Owner", the start of the listed rows.
+     * @param removeCommand the command that removes the last listed dog or owner
+     *                      before the next page is listed, or null to remove nothing.
+     * @return the names in the order they were listed.
+     */
+    private static List<String> followPages(RegisterEngine engine, InputMode mode, String firstPage, String kind, String removeCommand) {
+        ArrayList<String> names = new ArrayList<>();
+        String command = firstPage;
+
+        while (command != null) {
+            String page = run(engine, mode, command + "\n").get(0);
+            command = null;
+
+            for (String line : page.split("\n")) {
+                if (line.startsWith(kind + " [Name: ")) names.add(line.substring(kind.length() + 8, line.indexOf(',')));
+                if (line.startsWith("Next page: ")) command = line.substring("Next page: ".length());
+            }
+
+            if (removeCommand != null) run(engine, mode, removeCommand + names.get(names.size() - 1) + "\n");
+        }
+
+        return names;
+    }
+
+    /**
+     * Helper method that runs a session on a script that ends with "exit".
+     *
+     * @return the reply to each command, without the welcome message and the prompt for the command.
+     */
+    private static List<String> run(InputMode mode, String script) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        return run(new RegisterEngine(new RegisterOptions(), new PrintStream(output, true, StandardCharsets.UTF_8)), output, mode, script);
+    }
+
+    /**
+     * Helper method that runs a session on an engine that other sessions share.
+     */
+    private static List<String> run(RegisterEngine engine, InputMode mode, String script) {
+        return run(engine, new ByteArrayOutputStream(), mode, script);
+    }
+
+    private static List<String> run(RegisterEngine engine, ByteArrayOutputStream output, InputMode mode, String script) {
+        PrintStream out = new PrintStream(output, true, StandardCharsets.UTF_8);
+        InputReader inputReader = new InputReader(new ByteArrayInputStream((script + "exit\n").getBytes(StandardCharsets.UTF_8)), out, mode);
+
+        try {
+            new DogRegister(engine, inputReader, out).runSession();
+        } finally {
+            inputReader.release();
+        }
+
+        // Skip the welcome message before the first prompt, and the empty reply to "exit".
+        String[] replies = output.toString(StandardCharsets.UTF_8).replace(System.lineSeparator(), "\n").split("Command\\?> ", -1);
+        return Arrays.stream(replies, 1, replies.length - 1).map(String::strip).toList();
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister;
+import static se.su.student.dogregister.Assert.assertEquals;
+import static se.su.student.dogregister.Assert.assertNull;
+import static se.su.student.dogregister.Assert.assertTrue;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import se.su.student.dogregister.data.Dog;
+import se.su.student.dogregister.persistence.CheckpointReport;
+import se.su.student.dogregister.persistence.LogRecord;
+
+/**
+ * Tests that a "RegisterEngine" with a snapshot and a log gets its changes back after a crash.
+ * A crash is an engine that is never closed, so its snapshot is never written on shutdown.
+ */
+public class RegisterEngineTest {
+    private final Path directory;
+    private final PrintStream out = new PrintStream(OutputStream.nullOutputStream());
+
+    public RegisterEngineTest() throws IOException {
+        this.directory = Files.createTempDirectory("engine");
+    }
+
+    public void testReplaysCommittedChangesAfterCrash() throws IOException {
+        RegisterEngine crashed = openEngine();
+        crashed.apply(LogRecord.addDog("Rex", "Labrador", 3, 30));
+        crashed.apply(LogRecord.addDog("Amy", "Tax", 2, 5));
+        crashed.apply(LogRecord.addOwner("Anna"));
+        crashed.apply(LogRecord.giveDogToOwner("Rex", "Anna"));
+        crashed.apply(LogRecord.increaseAge("Rex"));
+        crashed.apply(LogRecord.removeDog("Amy"));
+
+        RegisterEngine recovered = openEngine();
+        assertEquals(4, recovered.getDogCollection().getDog("Rex").getAge());
+        assertEquals("Anna", recovered.getDogCollection().getDog("Rex").getOwner().getName());
+        assertNull(recovered.getDogCollection().getDog("Amy"));
+        recovered.close();
+
+        // Closing wrote a snapshot, and the next start reads it with the rest of the log.
+        RegisterEngine reopened = openEngine();
+        assertEquals(1, reopened.getDogCollection().size());
+        assertEquals(1, reopened.getOwnerCollection().getOwner("Anna").getDogCount());
+        reopened.close();
+        cleanUp();
+    }
+
+    public void testIgnoresChangeCutOffByCrash() throws IOException {
+        RegisterEngine crashed = openEngine();
+        crashed.apply(LogRecord.addDog("Rex", "Labrador", 3, 30));
+        crashed.apply(LogRecord.addDog("Bo", "Poodle", 1, 4));
+
+        // The crash happens while Bo's record is written, so only half of it reaches the disk.
+        Path log = this.directory.resolve("register.wal");
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(log) - 3);
+        }
+
+        RegisterEngine recovered = openEngine();
+        assertTrue(recovered.getDogCollection().containsDog("Rex"), "the whole record is replayed");
+        assertNull(recovered.getDogCollection().getDog("Bo"));
+
+        // The log goes on from the last whole record.
+        recovered.apply(LogRecord.addDog("Max", "Labrador", 2, 20));
+        recovered.close();
+
+        RegisterEngine reopened = openEngine();
+        assertEquals(2, reopened.getDogCollection().size());
+        reopened.close();
+        cleanUp();
+    }
+
+    public void testRefusesToStartOnDamagedSnapshot() throws IOException {
+        Files.write(this.directory.resolve("register.snapshot"), ByteBuffer.allocate(16).putInt(0x444F4752).putInt(3).array());
+
+        RegisterEngine engine = new RegisterEngine(options(), this.out);
+        assertTrue(!engine.open(), "an engine with a damaged snapshot doesn't start empty");
+        cleanUp();
+    }
+
+    public void testReadsSeeOneVersionWhileChangesAreMade() throws Exception {
+        RegisterEngine engine = new RegisterEngine(RegisterOptions.parse(new String[0]), this.out);
+        assertTrue(engine.open(), "the engine opens");
+        for (int i = 0; i < 2000; i++) engine.apply(LogRecord.addDog("Middle" + i, "Labrador", 1, 10));
+
+        // A token dog moves between the first and the last name: the old one is removed before the
+        // new one is added, so a listing that mixes two versions can see two tokens.
+        engine.apply(LogRecord.addDog("Atoken0", "Labrador", 1, 10));
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 1; !Thread.currentThread().isInterrupted(); i++) {
+                    engine.apply(LogRecord.removeDog(token(i - 1)));
+                    engine.apply(LogRecord.addDog(token(i), "Labrador", 1, 10));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.start();
+
+        try {
+            for (int read = 0; read < 200; read++) {
+                List<Dog> dogs = engine.read(() -> RegisterEngine.copyDogs(engine.getDogCollection().streamDogsWithLongerTail(0)));
+                long tokens = dogs.stream().filter(dog -> dog.getName().contains("token")).count();
+                assertTrue(tokens <= 1, "a listing sees at most one token, saw " + tokens);
+                assertTrue(dogs.size() - tokens == 2000, "a listing sees every other dog");
+            }
+        } finally {
+            writer.interrupt();
+            writer.join();
+        }
+
+        engine.close();
+        cleanUp();
+    }
+
+    public void testKeepsWhatBackgroundCheckpointSaved() throws Exception {
+        RegisterEngine engine = new RegisterEngine(options("--checkpoint-records", "10"), this.out);
+        assertTrue(engine.open(), "the engine opens");
+        assertNull(engine.getLastCheckpoint());
+
+        for (int i = 0; i < 30; i++) engine.apply(LogRecord.addDog("Dog" + i, "Labrador", 1, 10));
+
+        // The checkpoints run on the background thread, give them a while. A later checkpoint may
+        // replace the file before its report is kept, so wait until the file and the report agree.
+        Path snapshotPath = this.directory.resolve("register.snapshot");
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        CheckpointReport checkpoint = engine.getLastCheckpoint();
+        while ((checkpoint == null || checkpoint.getLsn() < 20 || Files.size(snapshotPath) != checkpoint.getSnapshotBytes())
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            checkpoint = engine.getLastCheckpoint();
+        }
+
+        assertTrue(checkpoint != null && checkpoint.isBackground(), "a background checkpoint is kept");
+        assertEquals((int) checkpoint.getLsn(), checkpoint.getDogCount());
+        assertEquals(Files.size(snapshotPath), checkpoint.getSnapshotBytes());
+        assertTrue(checkpoint.getLogSizeAfter() < checkpoint.getLogSizeBefore(), "the log was compacted");
+        assertTrue(checkpoint.describe().startsWith("Saved " + checkpoint.getDogCount() + " dogs"), "the checkpoint is described");
+
+        engine.close();
+        assertTrue(!engine.getLastCheckpoint().isBackground(), "the checkpoint on shutdown is kept");
+        assertEquals(30, engine.getLastCheckpoint().getDogCount());
+        cleanUp();
+    }
+
+    private static String token(int i) {
+        return (i % 2 == 0 ? "Atoken" : "Ztoken") + i;
+    }
+
+    private RegisterEngine openEngine() {
+        RegisterEngine engine = new RegisterEngine(options(), this.out);
+        assertTrue(engine.open(), "the engine opens");
+        return engine;
+    }
+
+    private RegisterOptions options(String... extraArgs) {
+        ArrayList<String> args = new ArrayList<>(List.of(
+            "--snapshot", this.directory.resolve("register.snapshot").toString(),
+            "--wal", this.directory.resolve("register.wal").toString()));
+        args.addAll(List.of(extraArgs));
+        return RegisterOptions.parse(args.toArray(new String[0]));
+    }
+
+    private void cleanUp() throws IOException {
+        try (var files = Files.list(this.directory)) {
+            for (Path path : files.toList()) Files.delete(path);
+        }
+        Files.delete(this.directory);
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Runs the tests, without a test framework. The tests are plain programs,
+ * built and run with javac and java:
+ * <pre>
+ * javac -encoding UTF-8 -d out $(find src test -name "*.java")
+ * java -cp out se.su.student.dogregister.TestRunner
+ * </pre>
+ * Every class on the class path whose name ends with "Test" is a test class,
+ * and every public method without parameters whose name starts with "test" is
+ * a test. Each test gets a new instance of its class. Class names given as
+ * arguments run only those classes. Exits with 1 if any test fails.
+ */
+public class TestRunner {
+
+    public static void main(String[] args) throws Exception {
+        ArrayList<String> classNames = new ArrayList<>(Arrays.asList(args));
+        if (classNames.isEmpty()) classNames.addAll(findTestClasses());
+
+        int passed = 0;
+        int failed = 0;
+        for (String className : classNames) {
+            Class<?> testClass = Class.forName(className);
+            Method[] methods = testClass.getMethods();
+            Arrays.sort(methods, Comparator.comparing(Method::getName));
+
+            for (Method method : methods) {
+                if (!method.getName().startsWith("test") || method.getParameterCount() != 0 || Modifier.isStatic(method.getModifiers())) continue;
+
+                try {
+                    method.invoke(testClass.getDeclaredConstructor().newInstance());
+                    passed++;
+                } catch (InvocationTargetException e) {
+                    failed++;
+                    System.out.println("FAILED " + testClass.getSimpleName() + "." + method.getName() + ": " + e.getCause());
+                    for (StackTraceElement element : e.getCause().getStackTrace()) {
+                        if (element.getClassName().equals(className)) System.out.println("    at " + element);
+                    }
+                }
+            }
+        }
+
+        System.out.println(passed + " passed, " + failed + " failed.");
+        if (failed > 0) System.exit(1);
+    }
+
+    /**
+     * Helper method that finds the test classes in the directories on the class path.
+     *
+     * @return the names of the test classes, sorted.
+     */
+    private static ArrayList<String> findTestClasses() throws IOException {
+        ArrayList<String> classNames = new ArrayList<>();
+
+        for (String entry : System.getProperty("java.class.path").split(java.io.File.pathSeparator)) {
+            Path root = Path.of(entry);
+            if (!Files.isDirectory(root)) continue;
+
+            try (Stream<Path> files = Files.walk(root)) {
+                files.map(file -> root.relativize(file).toString())
+                        .filter(file -> file.endsWith("Test.class"))
+                        .map(file -> file.substring(0, file.length() - ".class".length()).replace(java.io.File.separatorChar, '.'))
+                        .sorted()
+                        .forEach(classNames::add);
+            }
+        }
+
+        return classNames;
+    }
+}
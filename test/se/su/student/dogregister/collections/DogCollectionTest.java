@@ -0,0 +1,278 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.collections;
+import static se.su.student.dogregister.Assert.assertEquals;
+import static se.su.student.dogregister.Assert.assertFalse;
+import static se.su.student.dogregister.Assert.assertNull;
+import static se.su.student.dogregister.Assert.assertSame;
+import static se.su.student.dogregister.Assert.assertThrows;
+import static se.su.student.dogregister.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.stream.Stream;
+import se.su.student.dogregister.data.Dog;
+import se.su.student.dogregister.data.Owner;
+
+/**
+ * Tests looking dogs up by name in a "DogCollection", and the batch changes
+ * against the same changes made one dog at a time.
+ */
+public class DogCollectionTest {
+
+    public void testLooksUpNamesInAnyCase() {
+        DogCollection dogCollection = new DogCollection();
+        Dog rex = new Dog("Rex", "Labrador", 3, 30);
+        dogCollection.addDog(rex);
+
+        assertSame(rex, dogCollection.getDog("rex"));
+        assertSame(rex, dogCollection.getDog("REX"));
+        assertTrue(dogCollection.containsDog("rEx"), "a name in another case is found");
+        assertNull(dogCollection.getDog("Rexy"));
+    }
+
+    public void testRejectsNameInAnotherCase() {
+        DogCollection dogCollection = new DogCollection();
+
+        assertTrue(dogCollection.addDog(new Dog("Rex", "Labrador", 3, 30)), "the first dog is added");
+        assertFalse(dogCollection.addDog(new Dog("REX", "Poodle", 1, 5)), "the same name in another case isn't added");
+        assertEquals(1, dogCollection.size());
+        assertEquals("Labrador", dogCollection.getDog("rex").getBreed());
+    }
+
+    public void testRemovedDogIsNotFound() {
+        DogCollection dogCollection = new DogCollection();
+        dogCollection.addDog(new Dog("Rex", "Labrador", 3, 30));
+        dogCollection.addDog(new Dog("Amy", "Tax", 2, 5));
+
+        assertTrue(dogCollection.removeDog("REX"), "the dog is removed by name in any case");
+        assertNull(dogCollection.getDog("Rex"));
+        assertFalse(dogCollection.removeDog("Rex"), "a removed dog can't be removed again");
+        assertEquals(List.of("Amy"), dogCollection.getDogs().stream().map(Dog::getName).toList());
+    }
+
+    public void testListsDogsByName() {
+        DogCollection dogCollection = new DogCollection();
+        dogCollection.addDog(new Dog("Zed", "Labrador", 3, 30));
+        dogCollection.addDog(new Dog("amy", "Tax", 2, 5));
+        dogCollection.addDog(new Dog("Bo", "Poodle", 1, 4));
+
+        assertEquals(List.of("Amy", "Bo", "Zed"), dogCollection.getDogs().stream().map(Dog::getName).toList());
+    }
+
+    public void testOnlyTheCollectionAgesItsDogs() {
+        DogCollection dogCollection = new DogCollection();
+        Dog rex = new Dog("Rex", "Labrador", 3, 30);
+        dogCollection.addDog(rex);
+
+        assertThrows(IllegalStateException.class, () -> rex.increaseAge(null));
+        assertThrows(IllegalStateException.class, () -> rex.increaseAge(new Object()));
+        assertFalse(new DogCollection().addDog(rex), "a dog in a collection isn't added to another");
+
+        assertTrue(dogCollection.increaseAge("rex"), "the collection ages the dog");
+        assertEquals(4, rex.getAge());
+        assertEquals(List.of(rex), dogCollection.streamDogsWithTailBetween(12.0, 12.0).toList());
+        assertEquals(0L, dogCollection.streamDogsWithTailBetween(9.0, 9.0).count());
+
+        // A removed dog can be added to another collection.
+        assertTrue(dogCollection.removeDog("Rex"), "the dog is removed");
+        assertTrue(new DogCollection().addDog(rex), "a removed dog can be added again");
+    }
+
+    public void testAddAllSkipsNamesRepeatedInTheBatch() {
+        DogCollection dogCollection = new DogCollection();
+        dogCollection.addDog(new Dog("Bo", "Poodle", 1, 4));
+        Dog rex = new Dog("Rex", "Labrador", 3, 30);
+
+        int added = dogCollection.addAll(List.of(rex, new Dog("REX", "Tax", 2, 5), new Dog("bo", "Tax", 2, 5), new Dog("Amy", "Tax", 2, 5), new Dog("amy", "Tax", 4, 6)));
+
+        assertEquals(2, added);
+        assertEquals(List.of("Amy", "Bo", "Rex"), names(dogCollection.getDogs().stream()));
+        assertSame(rex, dogCollection.getDog("rex"));
+        assertEquals(2, dogCollection.getDog("AMY").getAge());
+        assertEquals("Poodle", dogCollection.getDog("Bo").getBreed());
+    }
+
+    public void testRemoveAllAtTheRebuildThresholdKeepsTheSameViews() {
+        // 1000 of 8000 dogs is both the smallest batch and the smallest fraction that is rebuilt.
+        DogCollection rebuilt = new DogCollection();
+        DogCollection incremental = new DogCollection();
+        rebuilt.addAll(manyDogs(8000));
+        for (Dog dog : manyDogs(8000)) incremental.addDog(dog);
+
+        ArrayList<String> names = new ArrayList<>();
+        for (int i = 0; i < 8000; i += 8) names.add("Dog" + i);
+        assertEquals(1000, rebuilt.removeAll(names));
+        for (String name : names) incremental.removeDog(name);
+        assertSameViews(incremental, rebuilt);
+
+        // The rebuilt views keep working for changes one dog at a time.
+        for (DogCollection dogCollection : List.of(rebuilt, incremental)) {
+            dogCollection.increaseAge("Dog1");
+            dogCollection.removeDog("Dog2");
+            dogCollection.addDog(new Dog("Dog0", "Tax", 9, 9));
+        }
+        assertSameViews(incremental, rebuilt);
+
+        // One dog below the smallest batch, removed dog by dog.
+        names.clear();
+        for (int i = 1; i < 8000 && names.size() < 999; i += 8) names.add("Dog" + i);
+        assertEquals(999, rebuilt.removeAll(names));
+        for (String name : names) incremental.removeDog(name);
+        assertSameViews(incremental, rebuilt);
+    }
+
+    public void testRemoveAllSkipsOwnedDogs() {
+        DogCollection dogCollection = new DogCollection();
+        Owner anna = new Owner("Anna");
+        dogCollection.addAll(manyDogs(2000));
+        ArrayList<String> names = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) names.add("Dog" + i);
+
+        // Both the batch that is removed dog by dog and the one that is rebuilt keep the owned dogs.
+        dogCollection.giveDogToOwner("Dog3", anna);
+        assertEquals(4, dogCollection.removeAll(List.of("Dog1", "Dog2", "Dog3", "Dog4", "Dog5")));
+        dogCollection.giveDogToOwner("Dog1000", anna);
+        assertEquals(1994, dogCollection.removeAll(names));
+
+        assertEquals(List.of("Dog1000", "Dog3"), names(dogCollection.getDogs().stream()));
+        assertEquals(List.of("Dog1000", "Dog3"), names(dogCollection.streamDogsWithLongerTail(0)));
+        assertSame(anna, dogCollection.getDog("Dog3").getOwner());
+    }
+
+    public void testAssignOwnersSkipsUnknownOwnersAndDogs() {
+        DogCollection dogCollection = new DogCollection();
+        OwnerCollection ownerCollection = new OwnerCollection();
+        Owner anna = new Owner("Anna");
+        Owner bertil = new Owner("Bertil");
+        ownerCollection.addOwner(anna);
+        ownerCollection.addOwner(bertil);
+        for (String name : List.of("Rex", "Amy", "Bo", "Zed")) dogCollection.addDog(new Dog(name, "Labrador", 3, 30));
+        dogCollection.giveDogToOwner("Zed", bertil);
+
+        LinkedHashMap<String, String> dogOwners = new LinkedHashMap<>();
+        dogOwners.put("Rex", "anna");
+        dogOwners.put("Amy", "Cecilia");
+        dogOwners.put("Bo", "Cecilia");
+        dogOwners.put("Max", "Anna");
+        dogOwners.put("Zed", "Anna");
+
+        assertEquals(1, dogCollection.assignOwners(dogOwners, ownerCollection));
+        assertSame(anna, dogCollection.getDog("Rex").getOwner());
+        assertNull(dogCollection.getDog("Amy").getOwner());
+        assertNull(dogCollection.getDog("Bo").getOwner());
+        assertSame(bertil, dogCollection.getDog("Zed").getOwner());
+        assertEquals(List.of("Rex"), names(anna.getDogs().stream()));
+    }
+
+    public void testStreamsDogsAfterAPositionThatIsNoLongerADog() {
+        DogCollection dogCollection = new DogCollection();
+        for (String name : List.of("Bo", "Dan", "Fia")) dogCollection.addDog(new Dog(name, "Labrador", 3, 30));
+        for (String name : List.of("Amy", "Cid")) dogCollection.addDog(new Dog(name, "Labrador", 3, 7));
+
+        assertEquals(List.of("Dan", "Fia"), names(dogCollection.streamDogsAfter(9.0, "Bo")));
+        dogCollection.removeDog("Bo");
+        assertEquals(List.of("Dan", "Fia"), names(dogCollection.streamDogsAfter(9.0, "Bo")));
+        assertEquals(List.of("Cid", "Dan", "Fia"), names(dogCollection.streamDogsAfter(2.1, "Bo")));
+        assertEquals(List.of("Dan", "Fia"), names(dogCollection.streamDogsAfter(5.0, "Zed")));
+        assertEquals(0L, dogCollection.streamDogsAfter(9.0, "Fia").count());
+    }
+
+    public void testCountsBreedsAndTailLengthsWithoutReadingTheDogs() {
+        DogCollection dogCollection = new DogCollection();
+        dogCollection.addAll(manyDogs(3000));
+        int tax = new Dog("Breed", "Tax", 1, 1).getBreedId();
+
+        // Counted after building the views in one go, after one dog at a time, and after a rebuild.
+        for (int round = 0; round < 3; round++) {
+            assertEquals((int) dogCollection.streamDogsOfBreed(tax).count(), dogCollection.countDogsOfBreed(tax));
+            assertEquals(dogCollection.streamDogsWithTailBetween(2, 20).count(), dogCollection.countDogsWithTailBetween(2, 20, Long.MAX_VALUE));
+
+            if (round == 0) {
+                for (int i = 0; i < 50; i++) dogCollection.increaseAge("Dog" + i);
+                for (int i = 50; i < 100; i++) dogCollection.removeDog("Dog" + i);
+                dogCollection.addDog(new Dog("Dog50", "Tax", 2, 40));
+            } else {
+                ArrayList<String> names = new ArrayList<>();
+                for (int i = 100; i < 1200; i++) names.add("Dog" + i);
+                dogCollection.removeAll(names);
+            }
+        }
+
+        assertEquals(0, dogCollection.countDogsOfBreed(new Dog("Breed", "Unused breed", 1, 1).getBreedId()));
+        assertEquals(0L, dogCollection.countDogsWithTailBetween(20, 2, Long.MAX_VALUE));
+        long limited = dogCollection.countDogsWithTailBetween(0, 1000, 10);
+        assertTrue(limited > 10 && limited < dogCollection.size(), "counting stops after the limit");
+    }
+
+    public void testConcurrentChangesKeepTheViewsInStep() throws InterruptedException {
+        DogCollection dogCollection = new DogCollection();
+        OwnerCollection ownerCollection = new OwnerCollection();
+        Owner anna = new Owner("Anna");
+        ownerCollection.addOwner(anna);
+
+        // Each thread adds, ages, gives away and removes dogs, sharing the names with the other threads.
+        ArrayList<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    String name = "Dog" + ((i * 7 + thread) % 50);
+                    switch ((i + thread) % 4) {
+                        case 0 -> dogCollection.addDog(new Dog(name, "Labrador", 1 + i % 5, 10));
+                        case 1 -> dogCollection.increaseAge(name);
+                        case 2 -> dogCollection.giveDogToOwner(name, anna);
+                        default -> dogCollection.removeDog(name);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) thread.join();
+
+        // Every dog is in every view once, and the owner has exactly the dogs that name it as owner.
+        ArrayList<Dog> dogs = dogCollection.getDogs();
+        assertEquals(dogCollection.size(), dogs.size());
+        assertEquals(dogs.size(), (int) dogCollection.streamDogsWithLongerTail(0).count());
+        for (Dog dog : dogs) {
+            assertSame(dog, dogCollection.getDog(dog.getName()));
+            assertEquals(dog.getOwner() == anna, anna.ownsDog(dog));
+        }
+        for (Dog dog : anna.getDogs()) assertSame(dog, dogCollection.getDog(dog.getName()));
+    }
+
+    /**
+     * Helper method that checks that two collections have the same dogs in
+     * every sorted view, compared by name since the dogs are different objects.
+     */
+    private static void assertSameViews(DogCollection expected, DogCollection actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(names(expected.getDogs().stream()), names(actual.getDogs().stream()));
+        assertEquals(names(expected.streamDogs("Dog5")), names(actual.streamDogs("Dog5")));
+        assertEquals(names(expected.streamDogsWithLongerTail(0)), names(actual.streamDogsWithLongerTail(0)));
+        assertEquals(names(expected.streamDogsWithTailBetween(5, 20)), names(actual.streamDogsWithTailBetween(5, 20)));
+        assertEquals(names(expected.streamDogsWithNamePrefix("Dog12")), names(actual.streamDogsWithNamePrefix("Dog12")));
+        for (String breed : List.of("Labrador", "Tax", "Poodle")) {
+            int breedId = new Dog("Breed", breed, 1, 1).getBreedId();
+            assertEquals(names(expected.streamDogsOfBreed(breedId)), names(actual.streamDogsOfBreed(breedId)));
+        }
+    }
+
+    /**
+     * Helper method that creates new dogs named "Dog0" and up, with tail lengths that often tie.
+     */
+    private static List<Dog> manyDogs(int count) {
+        ArrayList<Dog> dogs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String breed = i % 7 == 0 ? "Tax" : i % 5 == 0 ? "Poodle" : "Labrador";
+            dogs.add(new Dog("Dog" + i, breed, 1 + i % 12, 1 + i % 40));
+        }
+        return dogs;
+    }
+
+    private static List<String> names(Stream<Dog> dogs) {
+        return dogs.map(Dog::getName).toList();
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.collections;
+import static se.su.student.dogregister.Assert.assertEquals;
+import static se.su.student.dogregister.Assert.assertFalse;
+import static se.su.student.dogregister.Assert.assertNull;
+import static se.su.student.dogregister.Assert.assertSame;
+import static se.su.student.dogregister.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Supplier;
+import se.su.student.dogregister.data.Dog;
+import se.su.student.dogregister.util.Utilities;
+
+/**
+ * Tests every "DogStore" through the same cases, and the storages through "DogCollection".
+ */
+public class DogStoreTest {
+
+    /**
+     * Helper method that gets a new store of every kind.
+     */
+    private static List<Supplier<DogStore>> stores() {
+        return List.of(ObjectDogStore::new, ColumnarDogStore::new, () -> new StripedDogStore(4, ColumnarDogStore::new));
+    }
+
+    public void testAddsGetsAndRemoves() {
+        for (Supplier<DogStore> storeFactory : stores()) {
+            DogStore store = storeFactory.get();
+            Dog rex = new Dog("Rex", "Labrador", 3, 30);
+
+            assertTrue(store.add("rex", rex), "a new name is added");
+            assertFalse(store.add("rex", new Dog("Rex", "Poodle", 1, 1)), "a name that is present isn't added");
+            assertSame(rex, store.get("rex"));
+            assertEquals(1, store.size());
+
+            assertSame(rex, store.remove("rex"));
+            assertNull(store.get("rex"));
+            assertNull(store.remove("rex"));
+            assertEquals(0, store.size());
+        }
+    }
+
+    public void testKeepsEveryOtherDogWhenRemovingMany() {
+        for (Supplier<DogStore> storeFactory : stores()) {
+            DogStore store = storeFactory.get();
+            for (int i = 0; i < 5000; i++) store.add(key(i), dog(i));
+            for (int i = 0; i < 5000; i += 2) store.remove(key(i));
+
+            assertEquals(2500, store.size());
+            for (int i = 0; i < 5000; i++) {
+                if (i % 2 == 0) assertNull(store.get(key(i)));
+                else assertEquals("Dog" + i, store.get(key(i)).getName());
+            }
+        }
+    }
+
+    public void testScanSeesUpdatedFields() {
+        for (Supplier<DogStore> storeFactory : stores()) {
+            DogStore store = storeFactory.get();
+            Dog rex = new Dog("Rex", "Labrador", 3, 30);
+            Object registration = new Object();
+            rex.register(registration);
+            store.add("rex", rex);
+            store.add("amy", new Dog("Amy", "Tax", 2, 5));
+
+            DogFilter olderThanThree = (age, weight, tailLength, breedId) -> age > 3;
+            assertEquals(0, scan(store, olderThanThree).size());
+
+            rex.increaseAge(registration);
+            store.update("rex", rex);
+            assertEquals(List.of(rex), scan(store, olderThanThree));
+        }
+    }
+
+    public void testScansEveryDogOnce() {
+        for (Supplier<DogStore> storeFactory : stores()) {
+            DogStore store = storeFactory.get();
+            store.ensureCapacity(1000);
+            for (int i = 0; i < 1000; i++) store.add(key(i), dog(i));
+
+            ArrayList<Dog> all = scan(store, (age, weight, tailLength, breedId) -> true);
+            assertEquals(1000, all.size());
+            assertEquals(1000, new HashSet<>(all).size());
+
+            ArrayList<Dog> young = scan(store, (age, weight, tailLength, breedId) -> age == 1);
+            assertEquals(1000 / 15 + 1, young.size());
+        }
+    }
+
+    public void testEveryStorageAnswersTheSameQueries() {
+        for (DogStorage storage : DogStorage.values()) {
+            DogCollection dogCollection = new DogCollection(storage);
+            for (int i = 0; i < 300; i++) dogCollection.addDog(dog(i));
+            dogCollection.removeDog("Dog7");
+            dogCollection.increaseAge("Dog8");
+
+            assertEquals(299, dogCollection.size());
+            assertNull(dogCollection.getDog("dog7"));
+            assertEquals(dog(8).getAge() + 1, dogCollection.getDog("DOG8").getAge());
+
+            // Age 10 is every fifteenth dog from Dog9, and Dog8 after its birthday.
+            ArrayList<String> expected = new ArrayList<>(List.of("Dog8"));
+            for (int i = 9; i < 300; i += 15) expected.add("Dog" + i);
+            expected.sort(null);
+
+            ArrayList<Dog> matches = dogCollection.getDogsMatching((age, weight, tailLength, breedId) -> age == 10);
+            assertEquals(expected, matches.stream().map(Dog::getName).toList());
+        }
+    }
+
+    public void testColumnarScanSeesDogsAgedThroughTheCollection() {
+        DogCollection dogCollection = new DogCollection(DogStorage.COLUMNAR);
+        for (int i = 0; i < 100; i++) dogCollection.addDog(dog(i));
+
+        // Dog5 goes from 6 to 9 years, Dog8 from 9 to 10.
+        for (int i = 0; i < 3; i++) dogCollection.increaseAge("Dog5");
+        dogCollection.increaseAge("dog8");
+        double tailLength = dogCollection.getDog("Dog5").getTailLength();
+
+        ArrayList<Dog> nine = dogCollection.getDogsMatching((age, weight, tail, breedId) -> age == 9);
+        assertEquals(List.of("Dog23", "Dog38", "Dog5", "Dog53", "Dog68", "Dog83", "Dog98"), nine.stream().map(Dog::getName).toList());
+
+        ArrayList<Dog> longTails = dogCollection.getDogsMatching((age, weight, tail, breedId) -> tail == tailLength);
+        assertTrue(longTails.stream().anyMatch(dog -> dog.getName().equals("Dog5")), "the scan sees the new tail length");
+        for (Dog dog : longTails) assertEquals(tailLength, dog.getTailLength());
+    }
+
+    static String key(int i) {
+        return Utilities.toNameKey("Dog" + i);
+    }
+
+    static Dog dog(int i) {
+        return new Dog("Dog" + i, i % 7 == 0 ? "Tax" : "Labrador", 1 + i % 15, 1 + i % 50);
+    }
+
+    static ArrayList<Dog> scan(DogStore store, DogFilter filter) {
+        ArrayList<Dog> dogs = new ArrayList<>();
+        store.scan(filter, dogs::add);
+        return dogs;
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.comparators;
+import static se.su.student.dogregister.Assert.assertEquals;
+import static se.su.student.dogregister.Assert.assertTrue;
+import se.su.student.dogregister.data.Dog;
+
+/**
+ * Tests the shared dog comparators.
+ */
+public class DogComparatorTest {
+
+    public void testTailNameComparesTailFirst() {
+        Dog shortTail = new Dog("Zed", "Labrador", 1, 10);
+        Dog longTail = new Dog("Amy", "Labrador", 5, 10);
+
+        assertTrue(DogTailNameComparator.INSTANCE.compare(shortTail, longTail) < 0, "the shorter tail comes first");
+        assertTrue(DogTailNameComparator.INSTANCE.compare(longTail, shortTail) > 0, "the longer tail comes last");
+    }
+
+    public void testTailNameComparesNamesOnEqualTails() {
+        // Dachshunds all have the same tail length.
+        Dog amy = new Dog("Amy", "Tax", 1, 10);
+        Dog bo = new Dog("Bo", "Dachshund", 9, 3);
+
+        assertEquals(0, DogTailComparator.INSTANCE.compare(amy, bo));
+        assertTrue(DogTailNameComparator.INSTANCE.compare(amy, bo) < 0, "the names decide");
+        assertEquals(0, DogTailNameComparator.INSTANCE.compare(amy, new Dog("Amy", "Tax", 2, 2)));
+    }
+
+    public void testNameComparatorIsCaseSensitiveOnTitleCasedNames() {
+        assertTrue(DogNameComparator.INSTANCE.compare(new Dog("amy", "Lab", 1, 1), new Dog("Bo", "Lab", 1, 1)) < 0,
+                "names are title cased before they are compared");
+    }
+
+    public void testNewComparatorsCompareAsTheSharedOnes() {
+        Dog rex = new Dog("Rex", "Labrador", 3, 30);
+        Dog amy = new Dog("Amy", "Tax", 2, 5);
+
+        assertEquals(DogNameComparator.INSTANCE.compare(rex, amy), new DogNameComparator().compare(rex, amy));
+        assertEquals(DogTailComparator.INSTANCE.compare(rex, amy), new DogTailComparator().compare(rex, amy));
+        assertEquals(DogTailNameComparator.INSTANCE.compare(amy, rex), new DogTailNameComparator().compare(amy, rex));
+    }
+}
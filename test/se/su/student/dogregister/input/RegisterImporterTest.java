@@ -0,0 +1,156 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.input;
+import static se.su.student.dogregister.Assert.assertEquals;
+import static se.su.student.dogregister.Assert.assertNull;
+import static se.su.student.dogregister.Assert.assertSame;
+import static se.su.student.dogregister.Assert.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import se.su.student.dogregister.collections.DogCollection;
+import se.su.student.dogregister.collections.OwnerCollection;
+import se.su.student.dogregister.data.Dog;
+import se.su.student.dogregister.data.Owner;
+import se.su.student.dogregister.persistence.LogRecord;
+
+/**
+ * Tests importing CSV and NDJSON files with "RegisterImporter".
+ */
+public class RegisterImporterTest {
+    private final DogCollection dogCollection = new DogCollection();
+    private final OwnerCollection ownerCollection = new OwnerCollection();
+    private final ArrayList<LogRecord> loggedRecords = new ArrayList<>();
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final RegisterImporter importer = new RegisterImporter(this.dogCollection, this.ownerCollection, (records, changes) -> {
+        this.loggedRecords.addAll(records);
+        changes.run();
+    }, new PrintStream(this.output, true, StandardCharsets.UTF_8));
+
+    public void testImportsCsvWithOwnershipsBeforeTheirDogs() throws IOException {
+        importText("register.csv", """
+                # Ownerships can come before the dog and the owner.
+                owns,Rex,Anna
+
+                dog,Rex,Labrador,3,30
+                dog,Amy,Tax,2,5
+                owner,Anna
+                """);
+
+        assertEquals(4L, this.importer.getRowCount());
+        assertEquals(2L, this.importer.getDogCount());
+        assertEquals(1L, this.importer.getOwnerCount());
+        assertEquals(1L, this.importer.getOwnershipCount());
+        assertEquals(0L, this.importer.getRejectedCount());
+        assertEquals("Anna", this.dogCollection.getDog("rex").getOwner().getName());
+        assertNull(this.dogCollection.getDog("amy").getOwner());
+    }
+
+    public void testReplayingTheLoggedChangesGivesTheSameRegister() throws IOException {
+        importText("register.csv", """
+                owns,Rex,Anna
+                dog,Rex,Labrador,3,30
+                dog,Rex,Poodle,1,1
+                owner,Anna
+                dog,Amy,Tax,2,5
+                """);
+
+        // The second Rex is logged before the batch is made, and is skipped again when replayed.
+        DogCollection replayedDogs = new DogCollection();
+        OwnerCollection replayedOwners = new OwnerCollection();
+        for (LogRecord record : this.loggedRecords) record.apply(replayedDogs, replayedOwners);
+
+        assertEquals(this.dogCollection.getDogs().toString(), replayedDogs.getDogs().toString());
+        assertEquals(this.ownerCollection.getOwners().toString(), replayedOwners.getOwners().toString());
+        assertEquals("Labrador", replayedDogs.getDog("Rex").getBreed());
+    }
+
+    public void testRejectsBadCsvRows() throws IOException {
+        importText("register.csv", """
+                dog,Rex,Labrador,three,30
+                dog,Amy,Tax,2
+                cat,Tom
+                owns,Bo,Nobody
+                dog,Bo,Poodle,1,4
+                """);
+
+        assertEquals(4L, this.importer.getRejectedCount());
+        assertEquals(1, this.dogCollection.size());
+        assertTrue(this.output.toString(StandardCharsets.UTF_8).contains("Error: line 3: unknown row type cat."), "the row type is reported");
+        assertTrue(this.output.toString(StandardCharsets.UTF_8).contains("Error: line 4: "), "the missing owner is reported at the ownership's line");
+    }
+
+    public void testRejectsOwnershipsThatGiveADogAnotherOwner() throws IOException {
+        Owner bertil = new Owner("Bertil");
+        this.ownerCollection.addOwner(bertil);
+        this.dogCollection.addDog(new Dog("Amy", "Tax", 2, 5));
+        this.dogCollection.giveDogToOwner("Amy", bertil);
+
+        importText("register.csv", """
+                owns,Rex,Anna
+                owns,REX,Bertil
+                owns,rex,anna
+                owns,Amy,Anna
+                owns,amy,Bertil
+                dog,Rex,Labrador,3,30
+                owner,Anna
+                """);
+
+        assertEquals(2L, this.importer.getRejectedCount());
+        assertEquals(1L, this.importer.getOwnershipCount());
+        assertEquals("Anna", this.dogCollection.getDog("Rex").getOwner().getName());
+        assertSame(bertil, this.dogCollection.getDog("Amy").getOwner());
+
+        String errors = this.output.toString(StandardCharsets.UTF_8);
+        assertTrue(errors.contains("Error: line 2: the dog REX is already given to Anna on line 1."), "the conflict within the file is reported");
+        assertTrue(errors.contains("Error: line 4: the dog Amy is already owned by Bertil."), "the conflict with the register is reported");
+    }
+
+    public void testImportsNdjson() throws IOException {
+        importText("register.ndjson", """
+                {"type": "dog", "name": "Rex", "breed": "Labrador", "age": 3, "weight": 30}
+                {"type":"owner","name":"Ann\\u00e9 \\"A\\""}
+                {"type": "owns", "dog": "Rex", "owner": "Ann\\u00e9 \\"A\\""}
+                """);
+
+        assertEquals(0L, this.importer.getRejectedCount());
+        Dog rex = this.dogCollection.getDog("Rex");
+        assertEquals(3, rex.getAge());
+        assertEquals(30, rex.getWeight());
+        assertEquals("Anné \"a\"", rex.getOwner().getName());
+    }
+
+    public void testRejectsNdjsonValuesOfTheWrongKind() throws IOException {
+        importText("register.jsonl", """
+                {"type": "dog", "name": "Rex", "breed": "Labrador", "age": "3", "weight": 30}
+                {"type": "dog", "name": 7, "breed": "Labrador", "age": 3, "weight": 30}
+                {"type": "owner", "name": "Anna"}
+                {"type": "owns", "dog": "Rex", "owner": 5}
+                """);
+
+        assertEquals(3L, this.importer.getRejectedCount());
+        assertEquals(0, this.dogCollection.size());
+        assertEquals(1L, this.importer.getOwnerCount());
+    }
+
+    /**
+     * Helper method that writes text to a temporary file and imports it.
+     */
+    private void importText(String fileName, String text) throws IOException {
+        Path directory = Files.createTempDirectory("import");
+        Path file = directory.resolve(fileName);
+        try {
+            Files.writeString(file, text);
+            this.importer.importFile(file);
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(directory);
+        }
+    }
+}
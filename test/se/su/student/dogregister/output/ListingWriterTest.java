@@ -0,0 +1,88 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.output;
+import static se.su.student.dogregister.Assert.assertEquals;
+import static se.su.student.dogregister.Assert.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import se.su.student.dogregister.data.Dog;
+import se.su.student.dogregister.data.Owner;
+import se.su.student.dogregister.util.FixedPointFormat;
+
+/**
+ * Tests that "ListingWriter" writes the same rows as "Dog.toString" and "Owner.toString".
+ */
+public class ListingWriterTest {
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final PrintStream out = new PrintStream(this.bytes, false, StandardCharsets.UTF_8);
+    private final ListingWriter writer = new ListingWriter(this.out);
+
+    public void testDogRowsMatchToString() {
+        // Every age and weight up to 30 gives tail lengths with zero, one and two decimals.
+        StringBuilder expected = new StringBuilder();
+        for (int age = 1; age <= 30; age++) {
+            for (int weight = 1; weight <= 30; weight++) {
+                Dog dog = new Dog("Dog" + age + "-" + weight, weight % 5 == 0 ? "Tax" : "Labrador", age, weight);
+                this.writer.printDog(dog);
+                expected.append(dog).append(LINE_SEPARATOR);
+            }
+        }
+
+        assertEquals(expected.toString(), written());
+    }
+
+    public void testOwnerRowsMatchToString() {
+        Owner withoutDogs = new Owner("Alice");
+        Owner withDogs = new Owner("Bob");
+        withDogs.addDog(new Dog("Rex", "Labrador", 3, 30));
+        withDogs.addDog(new Dog("Fido", "Tax", 5, 7));
+
+        this.writer.printOwner(withoutDogs);
+        this.writer.printOwner(withDogs);
+
+        assertEquals(withoutDogs + LINE_SEPARATOR + withDogs + LINE_SEPARATOR, written());
+        assertTrue(withDogs.toString().contains("Owner: Bob"), "the dogs of an owner are listed with the owner");
+    }
+
+    public void testNextPageLine() {
+        String tailLength = new FixedPointFormat(2).format(4.5);
+
+        this.writer.printNextPage("ld", 4.5, 20, 4.5, "Rex");
+        this.writer.printNextPage("lo", 20, "Bob");
+
+        assertEquals("Next page: ld " + tailLength + "|20|" + tailLength + "|Rex" + LINE_SEPARATOR
+                + "Next page: lo 20|Bob" + LINE_SEPARATOR, written());
+    }
+
+    public void testRowsAreKeptUntilFlushOrFullChunk() {
+        this.writer.println("Heading");
+        this.out.flush();
+        assertEquals(0, this.bytes.size());
+
+        // More rows than fit in a chunk are written without a flush, and none are lost.
+        StringBuilder expected = new StringBuilder("Heading").append(LINE_SEPARATOR);
+        for (int i = 0; i < 5000; i++) {
+            Dog dog = new Dog("Dog" + i, "Labrador", 1 + i % 15, 1 + i % 50);
+            this.writer.printDog(dog);
+            expected.append(dog).append(LINE_SEPARATOR);
+        }
+        this.out.flush();
+        assertTrue(this.bytes.size() > 0, "a full chunk is written before the flush");
+
+        assertEquals(expected.toString(), written());
+    }
+
+    /**
+     * Helper method that flushes the writer and gets everything written so far.
+     */
+    private String written() {
+        this.writer.flush();
+        this.out.flush();
+        return this.bytes.toString(StandardCharsets.UTF_8);
+    }
+}
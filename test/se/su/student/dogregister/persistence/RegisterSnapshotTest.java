@@ -0,0 +1,200 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.persistence;
+import static se.su.student.dogregister.Assert.assertEquals;
+import static se.su.student.dogregister.Assert.assertNull;
+import static se.su.student.dogregister.Assert.assertThrows;
+import static se.su.student.dogregister.Assert.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import se.su.student.dogregister.collections.DogCollection;
+import se.su.student.dogregister.collections.OwnerCollection;
+import se.su.student.dogregister.data.Dog;
+import se.su.student.dogregister.data.Owner;
+
+/**
+ * Tests writing and reading "RegisterSnapshot" files, in the current version
+ * and in the older versions, which are written by hand here.
+ */
+public class RegisterSnapshotTest {
+
+    // "DOGR" in ASCII.
+    private static final int MAGIC = 0x444F4752;
+
+    private Path file;
+
+    public RegisterSnapshotTest() throws IOException {
+        this.file = Files.createTempFile("snapshot", ".bin");
+    }
+
+    public void testRestoresOwnersDogsInTheOrderTheyGotThem() throws IOException {
+        DogCollection dogCollection = new DogCollection();
+        OwnerCollection ownerCollection = new OwnerCollection();
+        Owner anna = new Owner("Anna");
+        ownerCollection.addOwner(anna);
+        for (String name : List.of("Zed", "Amy", "Max", "Bo")) dogCollection.addDog(new Dog(name, "Labrador", 3, 30));
+        for (String name : List.of("Zed", "Amy", "Max")) dogCollection.giveDogToOwner(name, anna);
+        dogCollection.increaseAge("Amy");
+
+        RegisterSnapshot snapshot = RegisterSnapshot.capture(dogCollection, ownerCollection, 42);
+        snapshot.write(this.file);
+
+        DogCollection restoredDogs = new DogCollection();
+        OwnerCollection restoredOwners = new OwnerCollection();
+        RegisterSnapshot restored = RegisterSnapshot.read(this.file);
+        restored.restore(restoredDogs, restoredOwners);
+        Files.delete(this.file);
+
+        assertEquals(42L, restored.getLsn());
+        assertEquals(4, restored.getDogCount());
+        assertEquals(List.of("Zed", "Amy", "Max"), restoredOwners.getOwner("anna").getDogs().stream().map(Dog::getName).toList());
+        assertEquals(4, restoredDogs.getDog("Amy").getAge());
+        assertNull(restoredDogs.getDog("Bo").getOwner());
+    }
+
+    public void testReadsVersionTwoWithOwnersOnTheDogs() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(2);
+        out.writeLong(7);
+        writeStrings(out, "Labrador", "Tax");
+        writeStrings(out, "Anna");
+        out.writeInt(3);
+        writeDog(out, "Amy", 1, 2, 5, 0);
+        writeDog(out, "Rex", 0, 3, 30, -1);
+        writeDog(out, "Zed", 0, 4, 20, 0);
+
+        RegisterSnapshot snapshot = readBytes(bytes.toByteArray());
+        DogCollection dogCollection = new DogCollection();
+        OwnerCollection ownerCollection = new OwnerCollection();
+        snapshot.restore(dogCollection, ownerCollection);
+
+        assertEquals(7L, snapshot.getLsn());
+        assertEquals("Tax", dogCollection.getDog("Amy").getBreed());
+        assertNull(dogCollection.getDog("Rex").getOwner());
+        assertEquals(List.of("Amy", "Zed"), ownerCollection.getOwner("Anna").getDogs().stream().map(Dog::getName).toList());
+    }
+
+    public void testReadsVersionOneWithoutLsn() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(1);
+        writeStrings(out, "Labrador");
+        writeStrings(out, "Anna", "Bertil");
+        out.writeInt(1);
+        writeDog(out, "Rex", 0, 3, 30, 1);
+
+        RegisterSnapshot snapshot = readBytes(bytes.toByteArray());
+        DogCollection dogCollection = new DogCollection();
+        OwnerCollection ownerCollection = new OwnerCollection();
+        snapshot.restore(dogCollection, ownerCollection);
+
+        assertEquals(0L, snapshot.getLsn());
+        assertEquals(2, snapshot.getOwnerCount());
+        assertEquals("Bertil", dogCollection.getDog("Rex").getOwner().getName());
+    }
+
+    public void testRejectsUnknownVersionsAndDamagedFiles() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(4);
+        IOException unknown = assertThrows(IOException.class, () -> readBytes(bytes.toByteArray()));
+        assertTrue(unknown.getMessage().contains("version 4"), "the version is named");
+
+        // A dog whose breed is out of range.
+        bytes.reset();
+        out.writeInt(MAGIC);
+        out.writeInt(1);
+        writeStrings(out, "Labrador");
+        writeStrings(out);
+        out.writeInt(1);
+        writeDog(out, "Rex", 1, 3, 30, -1);
+        assertThrows(IOException.class, () -> readBytes(bytes.toByteArray()));
+
+        // A file that ends in the middle of a dog.
+        DogCollection dogCollection = new DogCollection();
+        dogCollection.addDog(new Dog("Rex", "Labrador", 3, 30));
+        RegisterSnapshot.capture(dogCollection, new OwnerCollection(), 1).write(this.file);
+        byte[] complete = Files.readAllBytes(this.file);
+        IOException damaged = assertThrows(IOException.class, () -> readBytes(Arrays.copyOf(complete, complete.length - 10)));
+        assertTrue(damaged.getMessage().contains("damaged"), "the file is reported as damaged");
+    }
+
+    public void testRejectsCountsAndLengthsLargerThanTheFile() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(2);
+        out.writeLong(1);
+        out.writeInt(Integer.MAX_VALUE);
+        IOException count = assertThrows(IOException.class, () -> readBytes(bytes.toByteArray()));
+        assertTrue(count.getMessage().contains("out of range"), "the count is rejected before anything is allocated");
+
+        bytes.reset();
+        out.writeInt(MAGIC);
+        out.writeInt(2);
+        out.writeLong(1);
+        out.writeInt(1);
+        out.writeInt(Integer.MAX_VALUE);
+        out.write(new byte[8]);
+        IOException length = assertThrows(IOException.class, () -> readBytes(bytes.toByteArray()));
+        assertTrue(length.getMessage().contains("out of range"), "the string length is rejected before anything is allocated");
+    }
+
+    public void testRejectsAFileWithAChangedByte() throws IOException {
+        DogCollection dogCollection = new DogCollection();
+        dogCollection.addDog(new Dog("Rex", "Labrador", 3, 30));
+        RegisterSnapshot.capture(dogCollection, new OwnerCollection(), 1).write(this.file);
+        byte[] changed = Files.readAllBytes(this.file);
+
+        // The age of Rex, which would still be read as a valid dog.
+        changed[changed.length - 4 - 4 - 8] ^= 1;
+        IOException damaged = assertThrows(IOException.class, () -> readBytes(changed));
+        assertTrue(damaged.getMessage().contains("CRC"), "the CRC doesn't match");
+    }
+
+    /**
+     * Helper method that reads a snapshot from bytes through the file.
+     */
+    private RegisterSnapshot readBytes(byte[] bytes) throws IOException {
+        try {
+            Files.write(this.file, bytes);
+            return RegisterSnapshot.read(this.file);
+        } finally {
+            Files.deleteIfExists(this.file);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, String... values) throws IOException {
+        out.writeInt(values.length);
+        for (String value : values) writeString(out, value);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Helper method that writes a dog as version 1 and 2 do, with the position of its owner last.
+     */
+    private static void writeDog(DataOutputStream out, String name, int breed, int age, int weight, int owner) throws IOException {
+        writeString(out, name);
+        out.writeInt(breed);
+        out.writeInt(age);
+        out.writeInt(weight);
+        out.writeInt(owner);
+    }
+}
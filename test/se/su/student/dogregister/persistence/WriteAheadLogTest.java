@@ -0,0 +1,142 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.persistence;
+import static se.su.student.dogregister.Assert.assertEquals;
+import static se.su.student.dogregister.Assert.assertTrue;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests appending to, replaying, recovering and compacting a "WriteAheadLog".
+ */
+public class WriteAheadLogTest {
+    private final Path directory;
+    private final Path file;
+
+    public WriteAheadLogTest() throws IOException {
+        this.directory = Files.createTempDirectory("wal");
+        this.file = this.directory.resolve("register.wal");
+    }
+
+    public void testReplaysRecordsInOrderAfterReopening() throws IOException {
+        try (WriteAheadLog log = WriteAheadLog.open(this.file, 0, SyncPolicy.EVERY_OP, 0)) {
+            assertEquals(1L, log.append(LogRecord.addDog("Rex", "Labrador", 3, 30)));
+            long lsn = log.append(List.of(LogRecord.addOwner("Anna"), LogRecord.giveDogToOwner("Rex", "Anna")));
+            assertEquals(3L, lsn);
+            log.commit(lsn);
+        }
+
+        try (WriteAheadLog log = WriteAheadLog.open(this.file, 0, SyncPolicy.EVERY_OP, 0)) {
+            List<LogRecord> records = replay(log, 0);
+            assertEquals(3, records.size());
+            assertEquals(LogRecord.Operation.ADD_DOG, records.get(0).getOperation());
+            assertEquals("Rex", records.get(0).getName());
+            assertEquals("Anna", records.get(2).getOwnerName());
+
+            // Only the records after a snapshot are replayed, and new records continue the numbering.
+            assertEquals(1, replay(log, 2).size());
+            assertEquals(4L, log.append(LogRecord.increaseAge("Rex")));
+        }
+        cleanUp();
+    }
+
+    public void testStartsAfterTheSnapshotLsnWhenEmpty() throws IOException {
+        try (WriteAheadLog log = WriteAheadLog.open(this.file, 41, SyncPolicy.OS, 0)) {
+            assertEquals(42L, log.append(LogRecord.addOwner("Anna")));
+        }
+        cleanUp();
+    }
+
+    public void testRemovesRecordCutOffByCrash() throws IOException {
+        writeRecords(3);
+        long intactLength = Files.size(this.file);
+        try (WriteAheadLog log = WriteAheadLog.open(this.file, 0, SyncPolicy.EVERY_OP, 0)) {
+            log.commit(log.append(LogRecord.addDog("Cut", "Labrador", 1, 1)));
+        }
+
+        // A crash while writing the last record leaves only part of it.
+        try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(this.file) - 5);
+        }
+
+        try (WriteAheadLog log = WriteAheadLog.open(this.file, 0, SyncPolicy.EVERY_OP, 0)) {
+            assertTrue(log.getDiscardedBytes() > 0, "the cut off record is discarded");
+            assertEquals(intactLength, Files.size(this.file));
+            assertEquals(List.of("Dog1", "Dog2", "Dog3"), names(replay(log, 0)));
+            assertEquals(4L, log.append(LogRecord.addDog("Next", "Labrador", 1, 1)));
+        }
+        cleanUp();
+    }
+
+    public void testStopsAtRecordWithWrongChecksum() throws IOException {
+        writeRecords(2);
+        long intactLength = Files.size(this.file);
+        writeRecords(1);
+
+        // Damage the last byte of the last record, as a torn write would.
+        try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer lastByte = ByteBuffer.allocate(1);
+            channel.read(lastByte, channel.size() - 1);
+            lastByte.put(0, (byte) ~lastByte.get(0));
+            channel.write(lastByte.rewind(), channel.size() - 1);
+        }
+
+        try (WriteAheadLog log = WriteAheadLog.open(this.file, 0, SyncPolicy.EVERY_OP, 0)) {
+            assertEquals(List.of("Dog1", "Dog2"), names(replay(log, 0)));
+            assertEquals(intactLength, Files.size(this.file));
+        }
+        cleanUp();
+    }
+
+    public void testCompactKeepsRecordsAfterTheSnapshot() throws IOException {
+        try (WriteAheadLog log = WriteAheadLog.open(this.file, 0, SyncPolicy.EVERY_OP, 0)) {
+            for (int i = 1; i <= 5; i++) log.append(LogRecord.addDog("Dog" + i, "Labrador", 1, 1));
+            log.sync();
+            long fullSize = log.size();
+
+            assertTrue(log.compact(3) < fullSize, "the log gets smaller");
+            log.commit(log.append(LogRecord.addDog("Dog6", "Labrador", 1, 1)));
+        }
+
+        try (WriteAheadLog log = WriteAheadLog.open(this.file, 3, SyncPolicy.EVERY_OP, 0)) {
+            assertEquals(List.of("Dog4", "Dog5", "Dog6"), names(replay(log, 3)));
+        }
+        cleanUp();
+    }
+
+    /**
+     * Helper method that appends dogs named after their number in the file, starting at one.
+     */
+    private void writeRecords(int count) throws IOException {
+        try (WriteAheadLog log = WriteAheadLog.open(this.file, 0, SyncPolicy.EVERY_OP, 0)) {
+            long first = log.getLastLsn() + 1;
+            for (int i = 0; i < count; i++) log.append(LogRecord.addDog("Dog" + (first + i), "Labrador", 1, 1));
+            log.sync();
+        }
+    }
+
+    private static List<LogRecord> replay(WriteAheadLog log, long afterLsn) throws IOException {
+        ArrayList<LogRecord> records = new ArrayList<>();
+        log.replay(afterLsn, records::add);
+        return records;
+    }
+
+    private static List<String> names(List<LogRecord> records) {
+        return records.stream().map(LogRecord::getName).toList();
+    }
+
+    private void cleanUp() throws IOException {
+        try (var files = Files.list(this.directory)) {
+            for (Path path : files.toList()) Files.delete(path);
+        }
+        Files.delete(this.directory);
+    }
+}
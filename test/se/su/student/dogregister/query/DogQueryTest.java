@@ -0,0 +1,71 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.query;
+import static se.su.student.dogregister.Assert.assertEquals;
+import static se.su.student.dogregister.Assert.assertFalse;
+import static se.su.student.dogregister.Assert.assertNull;
+import static se.su.student.dogregister.Assert.assertThrows;
+import static se.su.student.dogregister.Assert.assertTrue;
+
+/**
+ * Tests parsing queries with "DogQuery.parse".
+ */
+public class DogQueryTest {
+
+    public void testEmptyQueryFindsEveryDog() {
+        DogQuery query = DogQuery.parse("  ");
+
+        assertNull(query.getBreed());
+        assertNull(query.getOwner());
+        assertNull(query.getNamePrefix());
+        assertEquals(Integer.MIN_VALUE, query.getMinAge());
+        assertEquals(Integer.MAX_VALUE, query.getMaxAge());
+        assertFalse(query.hasTailRange(), "no tail length range");
+        assertEquals(SortKey.NAME, query.getSortKey());
+        assertEquals(Integer.MAX_VALUE, query.getLimit());
+    }
+
+    public void testParsesEveryTerm() {
+        DogQuery query = DogQuery.parse("breed=german shepherd age=2..5 weight=..30 tail=3,5.. owner=Anna Berg name=re sort=tail limit=10");
+
+        assertEquals("German Shepherd", query.getBreed());
+        assertEquals(2, query.getMinAge());
+        assertEquals(5, query.getMaxAge());
+        assertEquals(Integer.MIN_VALUE, query.getMinWeight());
+        assertEquals(30, query.getMaxWeight());
+        assertEquals(3.5, query.getMinTailLength());
+        assertEquals(Double.POSITIVE_INFINITY, query.getMaxTailLength());
+        assertTrue(query.hasTailRange(), "a tail length range");
+        assertEquals("Anna Berg", query.getOwner());
+        assertEquals("Re", query.getNamePrefix());
+        assertEquals(SortKey.TAIL, query.getSortKey());
+        assertEquals(10, query.getLimit());
+    }
+
+    public void testSingleValueIsARangeOfOne() {
+        DogQuery query = DogQuery.parse("AGE=3 tail=4.5");
+
+        assertEquals(3, query.getMinAge());
+        assertEquals(3, query.getMaxAge());
+        assertEquals(4.5, query.getMinTailLength());
+        assertEquals(4.5, query.getMaxTailLength());
+    }
+
+    public void testLaterTermReplacesEarlierTerm() {
+        DogQuery query = DogQuery.parse("sort=age sort=weight limit=5 limit=2");
+
+        assertEquals(SortKey.WEIGHT, query.getSortKey());
+        assertEquals(2, query.getLimit());
+    }
+
+    public void testRejectsUnknownTermsAndInvalidValues() {
+        String[] invalid = {"colour=brown", "rex", "age=", "age=two", "age=1..x", "tail=long..", "sort=colour", "limit=0", "limit=-3", "weight=1.5"};
+
+        for (String text : invalid) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> DogQuery.parse(text));
+            assertTrue(e.getMessage().startsWith("Error: "), "a message for the user for " + text);
+        }
+    }
+}
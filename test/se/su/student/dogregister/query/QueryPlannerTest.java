@@ -0,0 +1,145 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.query;
+import static se.su.student.dogregister.Assert.assertEquals;
+import static se.su.student.dogregister.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import se.su.student.dogregister.collections.DogCollection;
+import se.su.student.dogregister.collections.DogStorage;
+import se.su.student.dogregister.collections.OwnerCollection;
+import se.su.student.dogregister.comparators.DogNameComparator;
+import se.su.student.dogregister.data.Dog;
+import se.su.student.dogregister.data.Owner;
+import se.su.student.dogregister.util.Utilities;
+
+/**
+ * Tests that the "QueryPlanner" chooses the index that gives the fewest dogs,
+ * and that every plan finds the same dogs as testing every dog.
+ */
+public class QueryPlannerTest {
+    private static final int DOG_COUNT = 400;
+
+    private static final String[] QUERIES = {
+            "", "owner=anna", "owner=nobody", "name=dog12", "name=cat", "breed=poodle", "breed=collie",
+            "breed=breed3", "tail=40..", "tail=2..3,5", "age=3..5 weight=..10", "age=15 sort=weight",
+            "owner=anna breed=poodle", "breed=breed3 tail=..5 sort=tail limit=4", "name=dog1 sort=age limit=7",
+            "tail=1.. sort=tail limit=10", "limit=25", "owner=anna sort=weight limit=3"
+    };
+
+    public void testChoosesTheIndexWithTheFewestDogs() {
+        QueryPlanner planner = planner(DogStorage.OBJECT);
+
+        assertEquals(QueryIndex.OWNER, planner.plan(DogQuery.parse("owner=anna")).getIndex());
+        assertEquals(QueryIndex.NAME_PREFIX, planner.plan(DogQuery.parse("name=dog12")).getIndex());
+        assertEquals(QueryIndex.BREED, planner.plan(DogQuery.parse("breed=poodle")).getIndex());
+        assertEquals(QueryIndex.TAIL_RANGE, planner.plan(DogQuery.parse("tail=40..")).getIndex());
+
+        // Anna has 8 dogs and there are 10 poodles.
+        QueryPlan plan = planner.plan(DogQuery.parse("owner=anna breed=poodle"));
+        assertEquals(QueryIndex.OWNER, plan.getIndex());
+        assertEquals(8L, plan.getEstimatedDogs());
+    }
+
+    public void testScansWhenNoIndexIsSelectiveEnough() {
+        QueryPlanner planner = planner(DogStorage.OBJECT);
+
+        assertEquals(QueryIndex.SCAN, planner.plan(DogQuery.parse("")).getIndex());
+        assertEquals(QueryIndex.SCAN, planner.plan(DogQuery.parse("age=3..5")).getIndex());
+        assertEquals(QueryIndex.SCAN, planner.plan(DogQuery.parse("tail=0..")).getIndex());
+
+        // Every dog has a name that starts with "Dog", so the prefix doesn't help.
+        QueryPlan plan = planner.plan(DogQuery.parse("name=dog"));
+        assertEquals(QueryIndex.SCAN, plan.getIndex());
+        assertEquals((long) DOG_COUNT, plan.getEstimatedDogs());
+    }
+
+    public void testUnknownOwnerAndBreedFindNoDogs() {
+        QueryPlanner planner = planner(DogStorage.OBJECT);
+
+        assertEquals(List.of(), planner.execute(DogQuery.parse("owner=nobody")));
+        assertEquals(List.of(), planner.execute(DogQuery.parse("breed=collie")));
+    }
+
+    public void testEveryPlanMatchesTestingEveryDog() {
+        for (DogStorage storage : DogStorage.values()) {
+            DogCollection dogCollection = new DogCollection(storage);
+            QueryPlanner planner = new QueryPlanner(dogCollection, owners(dogCollection));
+
+            for (String text : QUERIES) {
+                DogQuery query = DogQuery.parse(text);
+                assertEquals(names(bruteForce(dogCollection, query)), names(planner.execute(query)));
+            }
+        }
+    }
+
+    public void testLimitStopsAtTheFirstDogs() {
+        QueryPlanner planner = planner(DogStorage.OBJECT);
+
+        ArrayList<Dog> dogs = planner.execute(DogQuery.parse("tail=1.. sort=tail limit=10"));
+        assertEquals(10, dogs.size());
+        for (int i = 1; i < dogs.size(); i++) {
+            assertTrue(dogs.get(i - 1).getTailLength() <= dogs.get(i).getTailLength(), "sorted by tail length");
+        }
+    }
+
+    /**
+     * Helper method that creates a planner for a register with the dogs of "owners".
+     */
+    private static QueryPlanner planner(DogStorage storage) {
+        DogCollection dogCollection = new DogCollection(storage);
+        return new QueryPlanner(dogCollection, owners(dogCollection));
+    }
+
+    /**
+     * Helper method that adds the dogs to the collection: eight breeds, ten poodles,
+     * and every 50th dog owned by Anna. Returns the owners.
+     */
+    private static OwnerCollection owners(DogCollection dogCollection) {
+        OwnerCollection ownerCollection = new OwnerCollection();
+        Owner anna = new Owner("Anna");
+        ownerCollection.addOwner(anna);
+        ownerCollection.addOwner(new Owner("Bo"));
+
+        for (int i = 0; i < DOG_COUNT; i++) {
+            String breed = i % 40 == 0 ? "Poodle" : "Breed" + i % 8;
+            dogCollection.addDog(new Dog("Dog" + i, breed, 1 + i % 15, 1 + (i / 15) % 50));
+            if (i % 50 == 0) dogCollection.giveDogToOwner("Dog" + i, anna);
+        }
+
+        return ownerCollection;
+    }
+
+    /**
+     * Helper method that answers a query by testing every dog and sorting the matches.
+     */
+    private static ArrayList<Dog> bruteForce(DogCollection dogCollection, DogQuery query) {
+        ArrayList<Dog> dogs = new ArrayList<>();
+        for (Dog dog : dogCollection.getDogs()) {
+            if (query.getBreed() != null && !dog.getBreed().equals(query.getBreed())) continue;
+            if (dog.getAge() < query.getMinAge() || dog.getAge() > query.getMaxAge()) continue;
+            if (dog.getWeight() < query.getMinWeight() || dog.getWeight() > query.getMaxWeight()) continue;
+            if (dog.getTailLength() < query.getMinTailLength() || dog.getTailLength() > query.getMaxTailLength()) continue;
+            if (query.getNamePrefix() != null && !dog.getName().startsWith(query.getNamePrefix())) continue;
+            if (query.getOwner() != null && (dog.getOwner() == null
+                    || !Utilities.toNameKey(dog.getOwner().getName()).equals(Utilities.toNameKey(query.getOwner())))) continue;
+            dogs.add(dog);
+        }
+
+        ToDoubleFunction<Dog> key = query.getSortKey().getKey();
+        dogs.sort(key == null ? DogNameComparator.INSTANCE
+                : Comparator.comparingDouble(key).thenComparing(DogNameComparator.INSTANCE));
+        return new ArrayList<>(dogs.subList(0, Math.min(dogs.size(), query.getLimit())));
+    }
+
+    /**
+     * Helper method that gets the names of the dogs.
+     */
+    private static List<String> names(List<Dog> dogs) {
+        return dogs.stream().map(Dog::getName).toList();
+    }
+}
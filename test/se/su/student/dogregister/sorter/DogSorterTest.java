@@ -0,0 +1,85 @@
+/**
+ * @author Martin Hansson, maha6445.
+ */
+
+package se.su.student.dogregister.sorter;
+import static se.su.student.dogregister.Assert.assertEquals;
+import static se.su.student.dogregister.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import se.su.student.dogregister.comparators.DogNameComparator;
+import se.su.student.dogregister.comparators.DogTailComparator;
+import se.su.student.dogregister.comparators.DogTailNameComparator;
+import se.su.student.dogregister.data.Dog;
+
+/**
+ * Tests the sort algorithms of "DogSorter".
+ */
+public class DogSorterTest {
+
+    public void testEveryAlgorithmSortsByTailAndName() {
+        ArrayList<Dog> expected = randomDogs(500);
+        expected.sort(DogTailNameComparator.INSTANCE);
+
+        for (SortAlgorithm algorithm : SortAlgorithm.values()) {
+            ArrayList<Dog> dogs = randomDogs(500);
+            DogSorter.sortDogs(DogTailNameComparator.INSTANCE, dogs, algorithm);
+            assertEquals(names(expected), names(dogs));
+        }
+    }
+
+    public void testMergeAndParallelAreStable() {
+        // Sorted by name, then by tail length only, so dogs with the same tail length must stay in name order.
+        ArrayList<Dog> expected = randomDogs(20_000);
+        expected.sort(DogTailNameComparator.INSTANCE);
+
+        for (SortAlgorithm algorithm : List.of(SortAlgorithm.MERGE, SortAlgorithm.PARALLEL)) {
+            ArrayList<Dog> dogs = randomDogs(20_000);
+            DogSorter.sortDogs(DogNameComparator.INSTANCE, dogs, SortAlgorithm.MERGE);
+            DogSorter.sortDogs(DogTailComparator.INSTANCE, dogs, algorithm);
+            assertEquals(names(expected), names(dogs));
+        }
+    }
+
+    public void testSortByKeyIsStableAndCountsPasses() {
+        ArrayList<Dog> expected = randomDogs(1000);
+        expected.sort(DogTailNameComparator.INSTANCE);
+
+        ArrayList<Dog> dogs = randomDogs(1000);
+        DogSorter.sortDogs(DogNameComparator.INSTANCE, dogs, SortAlgorithm.MERGE);
+        SortMetrics metrics = new SortMetrics();
+        DogSorter.sortDogsByKey(Dog::getTailLength, dogs, metrics);
+
+        assertEquals(names(expected), names(dogs));
+        assertTrue(metrics.getPasses() > 0 && metrics.getPasses() <= Long.SIZE / 8, "a pass per byte of the key at most");
+        assertEquals(0L, metrics.getComparisons());
+    }
+
+    public void testSelectionSortCountsSwaps() {
+        ArrayList<Dog> dogs = new ArrayList<>(List.of(new Dog("C", "Lab", 1, 1), new Dog("A", "Lab", 1, 1), new Dog("B", "Lab", 1, 1)));
+
+        // C A B -> A C B -> A B C.
+        assertEquals(2, DogSorter.sortDogs(DogNameComparator.INSTANCE, dogs));
+        assertEquals(List.of("A", "B", "C"), names(dogs));
+        assertEquals(0, DogSorter.sortDogs(DogNameComparator.INSTANCE, dogs));
+    }
+
+    /**
+     * Helper method that creates dogs with unique names in a random order, with few different tail lengths.
+     */
+    private static ArrayList<Dog> randomDogs(int count) {
+        ArrayList<Dog> dogs = new ArrayList<>(count);
+        Random random = new Random(count);
+        for (int i = 0; i < count; i++) {
+            dogs.add(new Dog("Dog" + i, i % 9 == 0 ? "Tax" : "Labrador", 1 + random.nextInt(5), 1 + random.nextInt(5)));
+        }
+
+        java.util.Collections.shuffle(dogs, random);
+        return dogs;
+    }
+
+    private static List<String> names(List<Dog> dogs) {
+        return dogs.stream().map(Dog::getName).toList();
+    }
+}